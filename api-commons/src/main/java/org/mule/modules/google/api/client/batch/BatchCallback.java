@@ -23,12 +23,41 @@ import com.google.api.client.googleapis.json.GoogleJsonError;
  */
 public abstract class BatchCallback<W, T> extends JsonBatchCallback<T> {
 
-	private BatchResponse<W> response = new BatchResponse<W>();
+	private final BatchResponse<W> response;
+	private final Integer index;
 	
+	public BatchCallback() {
+		this(new BatchResponse<W>());
+	}
+	
+	/**
+	 * Creates a callback that reports into the given response, so that
+	 * many callbacks can share it
+	 * @param response the response to report into
+	 */
+	public BatchCallback(BatchResponse<W> response) {
+		this.response = response;
+		this.index = null;
+	}
+	
+	/**
+	 * Creates a callback for a single batched item that reports into the given response,
+	 * tagging its errors with the item's index
+	 * @param response the response to report into
+	 * @param index the index of the item
+	 */
+	public BatchCallback(BatchResponse<W> response, int index) {
+		this.response = response;
+		this.index = index;
+	}
 	
 	@Override
 	public void onFailure(GoogleJsonError e, GoogleHeaders responseHeaders) throws IOException {
-		this.response.addError(e);
+		if (this.index == null) {
+			this.response.addError(e);
+		} else {
+			this.response.addError(e, this.index);
+		}
 		
 	}
 	
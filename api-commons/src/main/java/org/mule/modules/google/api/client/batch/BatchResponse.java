@@ -24,6 +24,11 @@ import com.google.api.client.googleapis.json.GoogleJsonError.ErrorInfo;
  */
 public class BatchResponse<T> {
 
+	/**
+	 * Key under which errors keep the index of the batched item that caused them
+	 */
+	public static final String ERROR_INDEX = "index";
+
 	private List<T> successful = new ArrayList<T>();
 	private List<ErrorInfo> errors = new ArrayList<ErrorInfo>();
 	
@@ -37,6 +42,32 @@ public class BatchResponse<T> {
 		return this;
 	}
 
+	/**
+	 * Adds the errors of a batched item, tagging each of them with the item's
+	 * index under the {@link #ERROR_INDEX} key
+	 * @param error the error
+	 * @param index the index of the item that caused the error
+	 * @return this response
+	 */
+	public BatchResponse<T> addError(GoogleJsonError error, int index) {
+		for (ErrorInfo info : error.getErrors()) {
+			info.set(ERROR_INDEX, index);
+			this.errors.add(info);
+		}
+		return this;
+	}
+
+	/**
+	 * Adds the results of another response to this one
+	 * @param other the response to add
+	 * @return this response
+	 */
+	public BatchResponse<T> addAll(BatchResponse<T> other) {
+		this.successful.addAll(other.getSuccessful());
+		this.errors.addAll(other.getErrors());
+		return this;
+	}
+
 	public List<T> getSuccessful() {
 		return successful;
 	}
@@ -0,0 +1,188 @@
+/**
+ * Mule Google Api Commons
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.modules.google.api.client.batch;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+import org.apache.log4j.Logger;
+import org.mule.modules.google.api.concurrent.ExecutionUtils;
+import org.mule.modules.google.oauth.invalidation.OAuthTokenExpiredException;
+
+import com.google.api.client.googleapis.batch.BatchRequest;
+import com.google.api.client.googleapis.json.GoogleJsonError;
+import com.google.api.client.googleapis.json.GoogleJsonError.ErrorInfo;
+import com.google.common.collect.Lists;
+
+/**
+ * Executes one operation per item through the google apis batch endpoint. Since the endpoint
+ * takes a limited number of operations per request, the items are split into batches of at most
+ * batchSize operations which are submitted using up to maxConcurrency concurrent requests.
+ *
+ * Each batch reports into its own {@link org.mule.modules.google.api.client.batch.BatchResponse}
+ * and all of them are merged in the order of the items once every batch finishes. Items are queued along with
+ * their index in the given collection, so that callbacks can tag errors with it. If a batch cannot be
+ * submitted at all, every item on it is reported as an error tagged with its index, so that the
+ * results of the other batches are not lost.
+ *
+ * @author mariano.gonzalez@mulesoft.com
+ *
+ * @param <I> the type of the items
+ * @param <W> the type of the successful results
+ */
+public abstract class ChunkedBatch<I, W> {
+
+	/**
+	 * Maximum number of operations accepted by the batch endpoint on a single request
+	 */
+	public static final int MAX_BATCH_SIZE = 100;
+
+	/**
+	 * Reason of the errors reported for the items of a batch that could not be submitted
+	 */
+	public static final String BATCH_FAILED_REASON = "batchFailed";
+
+	private static final Logger logger = Logger.getLogger(ChunkedBatch.class);
+
+	private final int batchSize;
+	private final int maxConcurrency;
+
+	/**
+	 * @param batchSize the maximum number of operations per batch. It's capped to {@link #MAX_BATCH_SIZE}
+	 * @param maxConcurrency the maximum number of batches to be submitted at the same time
+	 */
+	public ChunkedBatch(int batchSize, int maxConcurrency) {
+		this.batchSize = Math.max(1, Math.min(MAX_BATCH_SIZE, batchSize));
+		this.maxConcurrency = maxConcurrency;
+	}
+
+	/**
+	 * @return a new empty batch request
+	 */
+	protected abstract BatchRequest newBatch();
+
+	/**
+	 * Queues the operation of the given item into the batch, using a callback that
+	 * reports into the given response
+	 *
+	 * @param batch the batch of the item
+	 * @param item the item
+	 * @param index the index of the item in the executed collection
+	 * @param response the response of the batch
+	 * @throws IOException if the operation could not be queued
+	 */
+	protected abstract void queue(BatchRequest batch, I item, int index, BatchResponse<W> response) throws IOException;
+
+	/**
+	 * Sends the given batch, which reports the result of each operation to its callback
+	 *
+	 * @param batch the batch to send
+	 * @throws IOException if the batch could not be sent
+	 */
+	protected void submit(BatchRequest batch) throws IOException {
+		batch.execute();
+	}
+
+	/**
+	 * Executes the operation of every item
+	 *
+	 * @param items the items
+	 * @return a {@link org.mule.modules.google.api.client.batch.BatchResponse} with the results of all the batches.
+	 * 			Items of batches that could not be submitted are reported as errors
+	 * @throws IOException if the batches could not be executed
+	 */
+	public BatchResponse<W> execute(Collection<I> items) throws IOException {
+		List<Callable<BatchResponse<W>>> batches = new ArrayList<Callable<BatchResponse<W>>>();
+
+		int offset = 0;
+
+		for (final List<I> chunk : Lists.partition(new ArrayList<I>(items), this.batchSize)) {
+			final int chunkOffset = offset;
+			offset += chunk.size();
+
+			batches.add(new Callable<BatchResponse<W>>() {
+
+				@Override
+				public BatchResponse<W> call() throws Exception {
+					BatchResponse<W> response = new BatchResponse<W>();
+
+					try {
+						BatchRequest batch = newBatch();
+
+						for (int i = 0; i < chunk.size(); i++) {
+							queue(batch, chunk.get(i), chunkOffset + i, response);
+						}
+
+						submit(batch);
+						return response;
+					} catch (OAuthTokenExpiredException e) {
+						throw e;
+					} catch (IOException e) {
+						return failed(chunk.size(), chunkOffset, e);
+					} catch (RuntimeException e) {
+						return failed(chunk.size(), chunkOffset, e);
+					}
+				}
+			});
+		}
+
+		BatchResponse<W> response = new BatchResponse<W>();
+
+		try {
+			for (BatchResponse<W> batchResponse : ExecutionUtils.invokeAll(batches, this.maxConcurrency)) {
+				response.addAll(batchResponse);
+			}
+		} catch (IOException e) {
+			throw e;
+		} catch (RuntimeException e) {
+			throw e;
+		} catch (Exception e) {
+			throw new IOException("Could not execute batch", e);
+		}
+
+		return response;
+	}
+
+	/**
+	 * Builds the response of a batch that could not be submitted, with one error per item.
+	 * Results that callbacks could have reported before the failure are discarded so that no item
+	 * is reported twice
+	 *
+	 * @param size the number of items in the batch
+	 * @param offset the index of the first item of the batch
+	 * @param cause the failure
+	 * @return a response with the errors
+	 */
+	private BatchResponse<W> failed(int size, int offset, Exception cause) {
+		logger.warn(String.format("Could not submit batch of items %d to %d", offset, offset + size - 1), cause);
+
+		BatchResponse<W> response = new BatchResponse<W>();
+
+		for (int i = 0; i < size; i++) {
+			ErrorInfo info = new ErrorInfo();
+			info.setReason(BATCH_FAILED_REASON);
+			info.setMessage(cause.getMessage() != null ? cause.getMessage() : cause.getClass().getName());
+
+			GoogleJsonError error = new GoogleJsonError();
+			error.setMessage(info.getMessage());
+			List<ErrorInfo> errors = new ArrayList<ErrorInfo>();
+			errors.add(info);
+			error.setErrors(errors);
+
+			response.addError(error, offset + i);
+		}
+
+		return response;
+	}
+}
@@ -0,0 +1,39 @@
+/**
+ * Mule Google Api Commons
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.modules.google.api.client.batch;
+
+/**
+ * Callback for operations which response carries nothing of interest, such as deletes.
+ * Each successful operation is reported as the id of the resource it was executed on
+ * 
+ * @author mariano.gonzalez@mulesoft.com
+ *
+ */
+public class IdBatchCallback<T> extends BatchCallback<String, T> {
+	
+	private final String id;
+	
+	/**
+	 * @param id the id of the resource the operation is executed on
+	 * @param response the response to report into
+	 * @param index the index of the item in the batch
+	 */
+	public IdBatchCallback(String id, BatchResponse<String> response, int index) {
+		super(response, index);
+		this.id = id;
+	}
+	
+	@Override
+	protected String typeToWrapper(T object) {
+		return this.id;
+	}
+
+}
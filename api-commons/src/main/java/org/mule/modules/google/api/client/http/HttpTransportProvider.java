@@ -0,0 +1,327 @@
+/**
+ * Mule Google Api Commons
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.modules.google.api.client.http;
+
+import java.io.IOException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.conn.params.ConnManagerParams;
+import org.apache.http.conn.params.ConnPerRouteBean;
+import org.apache.http.conn.scheme.PlainSocketFactory;
+import org.apache.http.conn.scheme.Scheme;
+import org.apache.http.conn.scheme.SchemeRegistry;
+import org.apache.http.conn.ssl.SSLSocketFactory;
+import org.apache.http.impl.client.DefaultHttpClient;
+import org.apache.http.impl.client.DefaultHttpRequestRetryHandler;
+import org.apache.http.impl.conn.tsccm.ThreadSafeClientConnManager;
+import org.apache.http.params.BasicHttpParams;
+import org.apache.http.params.HttpConnectionParams;
+import org.apache.http.params.HttpParams;
+
+import com.google.api.client.http.HttpRequest;
+import com.google.api.client.http.HttpRequestInitializer;
+import com.google.api.client.http.HttpTransport;
+import com.google.api.client.http.LowLevelHttpRequest;
+import com.google.api.client.http.apache.ApacheHttpTransport;
+import com.google.api.client.json.JsonFactory;
+import com.google.api.client.json.jackson.JacksonFactory;
+
+/**
+ * Provides an {@link com.google.api.client.http.HttpTransport} and a {@link com.google.api.client.json.JsonFactory}
+ * meant to be shared by all the clients of the google apis, no matter how many users are authorized.
+ *
+ * The transport is backed by a pool of keep alive connections, so that clients reuse connections
+ * instead of opening new ones for each request. Connections that stay idle for longer than idleConnectionTimeout
+ * are evicted from the pool by a background thread.
+ *
+ * Properties need to be set before the transport is first requested, since it's created lazily
+ * and never reconfigured afterwards. All the connectors use the instance returned by {@link #getDefault()} unless
+ * a different one is configured, which is how pool limits and timeouts are tuned.
+ *
+ * Connectors {@link #retain()} the provider when they start and {@link #release()} it when they stop. Once the last
+ * user releases it the pool and the eviction thread are shut down, so that nothing outlives an application redeploy.
+ * The transport handed to clients delegates each request to the current pool, so clients built before a shutdown
+ * keep working on a new pool once the connectors are started again.
+ *
+ * @author mariano.gonzalez@mulesoft.com
+ *
+ */
+public class HttpTransportProvider {
+
+	public static final int DEFAULT_MAX_CONNECTIONS_PER_ROUTE = 20;
+	public static final int DEFAULT_MAX_TOTAL_CONNECTIONS = 200;
+	public static final int DEFAULT_CONNECT_TIMEOUT = 20000;
+	public static final int DEFAULT_READ_TIMEOUT = 60000;
+	public static final long DEFAULT_IDLE_CONNECTION_TIMEOUT = 60000;
+
+	private static HttpTransportProvider defaultInstance;
+
+	/**
+	 * Maximum number of pooled connections to the same host
+	 */
+	private int maxConnectionsPerRoute = DEFAULT_MAX_CONNECTIONS_PER_ROUTE;
+
+	/**
+	 * Maximum number of pooled connections
+	 */
+	private int maxTotalConnections = DEFAULT_MAX_TOTAL_CONNECTIONS;
+
+	/**
+	 * Connection timeout in milliseconds
+	 */
+	private int connectTimeout = DEFAULT_CONNECT_TIMEOUT;
+
+	/**
+	 * Socket read timeout in milliseconds
+	 */
+	private int readTimeout = DEFAULT_READ_TIMEOUT;
+
+	/**
+	 * Time in milliseconds after which an idle connection is closed. Use zero or less to disable eviction
+	 */
+	private long idleConnectionTimeout = DEFAULT_IDLE_CONNECTION_TIMEOUT;
+
+	private final JsonFactory jsonFactory = new JacksonFactory();
+	private ThreadSafeClientConnManager connectionManager;
+	private ScheduledExecutorService evictor;
+	private ApacheHttpTransport pooledTransport;
+	private final HttpTransport transport = new PooledTransport();
+	private int references = 0;
+
+	/**
+	 * @return the instance shared by all the connectors
+	 */
+	public static synchronized HttpTransportProvider getDefault() {
+		if (defaultInstance == null) {
+			defaultInstance = new HttpTransportProvider();
+		}
+
+		return defaultInstance;
+	}
+
+	/**
+	 * @return the shared transport. Its pool is created on the first request
+	 */
+	public HttpTransport getTransport() {
+		return this.transport;
+	}
+
+	/**
+	 * @return the transport backed by the current pool, creating it if there's none
+	 */
+	private synchronized ApacheHttpTransport getPooledTransport() {
+		if (this.pooledTransport == null) {
+			this.pooledTransport = this.createTransport();
+		}
+
+		return this.pooledTransport;
+	}
+
+	/**
+	 * @return the shared json factory
+	 */
+	public JsonFactory getJsonFactory() {
+		return this.jsonFactory;
+	}
+
+	/**
+	 * Returns an initializer that applies this provider's timeouts to each request
+	 * before delegating to the given one
+	 *
+	 * @param delegate the initializer of the client, typically its credential. Can be null
+	 * @return a {@link com.google.api.client.http.HttpRequestInitializer}
+	 */
+	public HttpRequestInitializer getRequestInitializer(final HttpRequestInitializer delegate) {
+		return new HttpRequestInitializer() {
+
+			@Override
+			public void initialize(HttpRequest request) throws IOException {
+				request.setConnectTimeout(connectTimeout);
+				request.setReadTimeout(readTimeout);
+
+				if (delegate != null) {
+					delegate.initialize(request);
+				}
+			}
+		};
+	}
+
+	/**
+	 * Registers a new user of this provider
+	 */
+	public synchronized void retain() {
+		this.references++;
+	}
+
+	/**
+	 * Unregisters a user of this provider. When no users are left, the provider is shut down
+	 */
+	public synchronized void release() {
+		if (this.references > 0 && --this.references == 0) {
+			this.shutdown();
+		}
+	}
+
+	/**
+	 * Closes all the pooled connections and stops the eviction thread.
+	 * The next request sent through the transport creates a new pool
+	 */
+	public synchronized void shutdown() {
+		if (this.evictor != null) {
+			this.evictor.shutdownNow();
+			this.evictor = null;
+		}
+
+		if (this.connectionManager != null) {
+			this.connectionManager.shutdown();
+			this.connectionManager = null;
+		}
+
+		this.pooledTransport = null;
+	}
+
+	private ApacheHttpTransport createTransport() {
+		HttpParams params = new BasicHttpParams();
+		HttpConnectionParams.setConnectionTimeout(params, this.connectTimeout);
+		HttpConnectionParams.setSoTimeout(params, this.readTimeout);
+		HttpConnectionParams.setSocketBufferSize(params, 8192);
+		ConnManagerParams.setMaxTotalConnections(params, this.maxTotalConnections);
+		ConnManagerParams.setMaxConnectionsPerRoute(params, new ConnPerRouteBean(this.maxConnectionsPerRoute));
+
+		SchemeRegistry registry = new SchemeRegistry();
+		registry.register(new Scheme("http", PlainSocketFactory.getSocketFactory(), 80));
+		registry.register(new Scheme("https", SSLSocketFactory.getSocketFactory(), 443));
+
+		this.connectionManager = new ThreadSafeClientConnManager(params, registry);
+
+		DefaultHttpClient client = new DefaultHttpClient(this.connectionManager, params);
+		// retries are handled by the google client
+		client.setHttpRequestRetryHandler(new DefaultHttpRequestRetryHandler(0, false));
+
+		if (this.idleConnectionTimeout > 0) {
+			this.startEvictor(this.connectionManager);
+		}
+
+		return new ApacheHttpTransport(client);
+	}
+
+	private void startEvictor(final ThreadSafeClientConnManager connectionManager) {
+		this.evictor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread thread = new Thread(r, "google-idle-connection-evictor");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+
+		long period = Math.max(1000, this.idleConnectionTimeout / 2);
+
+		this.evictor.scheduleWithFixedDelay(new Runnable() {
+
+			@Override
+			public void run() {
+				connectionManager.closeExpiredConnections();
+				connectionManager.closeIdleConnections(idleConnectionTimeout, TimeUnit.MILLISECONDS);
+			}
+		}, period, period, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Transport that builds each request on the pool that is current at the time
+	 */
+	private class PooledTransport extends HttpTransport {
+
+		@Override
+		public boolean supportsHead() {
+			return true;
+		}
+
+		@Override
+		public boolean supportsPatch() {
+			return true;
+		}
+
+		@Override
+		protected LowLevelHttpRequest buildDeleteRequest(String url) throws IOException {
+			return getPooledTransport().buildDeleteRequest(url);
+		}
+
+		@Override
+		protected LowLevelHttpRequest buildGetRequest(String url) throws IOException {
+			return getPooledTransport().buildGetRequest(url);
+		}
+
+		@Override
+		protected LowLevelHttpRequest buildHeadRequest(String url) throws IOException {
+			return getPooledTransport().buildHeadRequest(url);
+		}
+
+		@Override
+		protected LowLevelHttpRequest buildPatchRequest(String url) throws IOException {
+			return getPooledTransport().buildPatchRequest(url);
+		}
+
+		@Override
+		protected LowLevelHttpRequest buildPostRequest(String url) throws IOException {
+			return getPooledTransport().buildPostRequest(url);
+		}
+
+		@Override
+		protected LowLevelHttpRequest buildPutRequest(String url) throws IOException {
+			return getPooledTransport().buildPutRequest(url);
+		}
+	}
+
+	public int getMaxConnectionsPerRoute() {
+		return maxConnectionsPerRoute;
+	}
+
+	public void setMaxConnectionsPerRoute(int maxConnectionsPerRoute) {
+		this.maxConnectionsPerRoute = maxConnectionsPerRoute;
+	}
+
+	public int getMaxTotalConnections() {
+		return maxTotalConnections;
+	}
+
+	public void setMaxTotalConnections(int maxTotalConnections) {
+		this.maxTotalConnections = maxTotalConnections;
+	}
+
+	public int getConnectTimeout() {
+		return connectTimeout;
+	}
+
+	public void setConnectTimeout(int connectTimeout) {
+		this.connectTimeout = connectTimeout;
+	}
+
+	public int getReadTimeout() {
+		return readTimeout;
+	}
+
+	public void setReadTimeout(int readTimeout) {
+		this.readTimeout = readTimeout;
+	}
+
+	public long getIdleConnectionTimeout() {
+		return idleConnectionTimeout;
+	}
+
+	public void setIdleConnectionTimeout(long idleConnectionTimeout) {
+		this.idleConnectionTimeout = idleConnectionTimeout;
+	}
+}
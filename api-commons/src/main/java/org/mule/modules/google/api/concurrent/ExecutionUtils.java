@@ -0,0 +1,105 @@
+/**
+ * Mule Google Api Commons
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.modules.google.api.concurrent;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Utility class for running a group of tasks with a bounded level of concurrency
+ *
+ * @author mariano.gonzalez@mulesoft.com
+ *
+ */
+public abstract class ExecutionUtils {
+
+	/**
+	 * Executes the given tasks using at most maxConcurrency threads and waits for all of them to finish.
+	 * If maxConcurrency is lower than two or there's only one task, then the tasks are executed
+	 * in the invoking thread.
+	 *
+	 * @param tasks the tasks to be executed
+	 * @param maxConcurrency the maximum number of tasks to be executed at the same time
+	 * @return a list with the results of each task in the same order as the tasks list
+	 * @throws Exception the exception thrown by the first failing task (in list order)
+	 */
+	public static <T> List<T> invokeAll(List<? extends Callable<T>> tasks, int maxConcurrency) throws Exception {
+		List<T> results = new ArrayList<T>(tasks.size());
+
+		if (maxConcurrency < 2 || tasks.size() < 2) {
+			for (Callable<T> task : tasks) {
+				results.add(task.call());
+			}
+			return results;
+		}
+
+		ExecutorService executor = Executors.newFixedThreadPool(Math.min(maxConcurrency, tasks.size()));
+
+		try {
+			return invokeAll(tasks, executor);
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * Executes the given tasks on the given executor and waits for all of them to finish, even
+	 * if some of them fail, so that no task is left running on the executor. The executor
+	 * is not shut down, so that it can be reused by the caller.
+	 *
+	 * @param tasks the tasks to be executed
+	 * @param executor the executor in which the tasks are run
+	 * @return a list with the results of each task in the same order as the tasks list
+	 * @throws Exception the exception thrown by the first failing task (in list order)
+	 */
+	public static <T> List<T> invokeAll(List<? extends Callable<T>> tasks, ExecutorService executor) throws Exception {
+		List<Future<T>> futures = new ArrayList<Future<T>>(tasks.size());
+		for (Callable<T> task : tasks) {
+			futures.add(executor.submit(task));
+		}
+
+		List<T> results = new ArrayList<T>(tasks.size());
+		Exception failure = null;
+
+		for (Future<T> future : futures) {
+			try {
+				results.add(future.get());
+			} catch (ExecutionException e) {
+				if (failure == null) {
+					failure = unwrap(e);
+				}
+			}
+		}
+
+		if (failure != null) {
+			throw failure;
+		}
+
+		return results;
+	}
+
+	private static Exception unwrap(ExecutionException e) {
+		Throwable cause = e.getCause();
+
+		if (cause instanceof Exception) {
+			return (Exception) cause;
+		} else if (cause instanceof Error) {
+			throw (Error) cause;
+		}
+
+		return e;
+	}
+}
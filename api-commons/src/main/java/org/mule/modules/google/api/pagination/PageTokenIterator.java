@@ -0,0 +1,61 @@
+/**
+ * Mule Google Api Commons
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.modules.google.api.pagination;
+
+import org.apache.commons.lang.StringUtils;
+
+/**
+ * {@link org.mule.modules.google.api.pagination.PagingIterator} for the listings of the google apis
+ * which are paged through a continuation token. Each page carries the token of the next one and the
+ * listing ends when a page comes without a token.
+ *
+ * @author mariano.gonzalez@mulesoft.com
+ *
+ * @param <P> the type of the pages
+ * @param <T> the type of the items
+ */
+public abstract class PageTokenIterator<P, T> extends PagingIterator<P, T> {
+
+	private final String firstPageToken;
+
+	/**
+	 * @param maxPagesInFlight the maximum number of pages to be fetched ahead of the consumer
+	 * @param firstPageToken the token of the first page to fetch or null to start from the beginning
+	 */
+	public PageTokenIterator(int maxPagesInFlight, String firstPageToken) {
+		super(maxPagesInFlight);
+		this.firstPageToken = firstPageToken;
+	}
+
+	/**
+	 * Fetches the page of the given token
+	 * @param pageToken the page token or null for the first page
+	 * @return the page
+	 * @throws Exception if the page could not be fetched
+	 */
+	protected abstract P fetch(String pageToken) throws Exception;
+
+	/**
+	 * @param page a page
+	 * @return the token of the page that follows the given one or null if it's the last one
+	 */
+	protected abstract String getNextPageToken(P page);
+
+	@Override
+	protected final P fetchPage(P previous) throws Exception {
+		if (previous == null) {
+			return this.fetch(StringUtils.isBlank(this.firstPageToken) ? null : this.firstPageToken);
+		}
+
+		String pageToken = this.getNextPageToken(previous);
+		return StringUtils.isBlank(pageToken) ? null : this.fetch(pageToken);
+	}
+}
@@ -0,0 +1,259 @@
+/**
+ * Mule Google Api Commons
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.modules.google.api.pagination;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.NoSuchElementException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lazy iterator over the items of a paginated listing. Pages are only requested
+ * as the items are consumed, so that a whole listing never needs to be held in memory.
+ *
+ * If maxPagesInFlight is greater than zero, pages are fetched by a background thread
+ * which runs ahead of the consumer by up to that number of pages, so that the next page is usually
+ * already available once the current one has been consumed. New pages are only requested when the consumer
+ * takes one, so an iterator which is abandoned without being closed fetches at most maxPagesInFlight more pages
+ * and its thread ends once it has been idle for a while. Consumers that stop reading early should still
+ * {@link #close()} the iterator to release it right away.
+ *
+ * Failing to fetch a page ends the iteration: the iterator is closed and every following
+ * invocation of {@link #hasNext()} or {@link #next()} throws the same exception. Processors should return
+ * the iterator through {@link #open()}, so that errors on the first page, such as an expired access token,
+ * are raised while the processor is still executing.
+ *
+ * Implementations only need to know how to fetch the page that follows a given one and how to
+ * get the items out of a page.
+ *
+ * @author mariano.gonzalez@mulesoft.com
+ *
+ * @param <P> the type of the pages
+ * @param <T> the type of the items
+ */
+public abstract class PagingIterator<P, T> implements Iterator<T>, Closeable {
+
+	/**
+	 * Number of milliseconds the fetching thread waits for new requests before ending
+	 */
+	private static final long FETCHER_KEEP_ALIVE = 30000;
+
+	private final int maxPagesInFlight;
+	private final LinkedList<Future<P>> inFlight = new LinkedList<Future<P>>();
+	private ThreadPoolExecutor fetcher;
+	private Iterator<T> current = Collections.<T>emptyList().iterator();
+	private RuntimeException failure = null;
+	private boolean finished = false;
+
+	// only accessed by the thread fetching pages
+	private P lastPage = null;
+	private boolean lastPageReached = false;
+
+	/**
+	 * @param maxPagesInFlight the maximum number of pages to be fetched ahead of the consumer.
+	 * 			Use zero to fetch each page only when the previous one is exhausted
+	 */
+	public PagingIterator(int maxPagesInFlight) {
+		this.maxPagesInFlight = maxPagesInFlight;
+	}
+
+	/**
+	 * Fetches the page that follows the given one
+	 *
+	 * @param previous the last fetched page or null if the first page is to be fetched
+	 * @return the next page or null if previous was the last one
+	 * @throws Exception if the page could not be fetched
+	 */
+	protected abstract P fetchPage(P previous) throws Exception;
+
+	/**
+	 * Returns the items contained in the given page
+	 * @param page a page
+	 * @return the page's items
+	 */
+	protected abstract Collection<T> getItems(P page);
+
+	/**
+	 * Fetches the first page on the invoking thread. Must be invoked before consuming any item
+	 *
+	 * @return this iterator
+	 * @throws IOException if the first page could not be fetched
+	 */
+	public PagingIterator<P, T> open() throws IOException {
+		try {
+			this.consume(this.fetchNext());
+		} catch (IOException e) {
+			this.fail(e);
+			throw e;
+		} catch (RuntimeException e) {
+			this.fail(e);
+			throw e;
+		} catch (Exception e) {
+			IOException failure = new IOException("Could not fetch page", e);
+			this.fail(failure);
+			throw failure;
+		}
+
+		return this;
+	}
+
+	@Override
+	public boolean hasNext() {
+		while (!this.current.hasNext()) {
+			if (this.failure != null) {
+				throw this.failure;
+			}
+
+			if (this.finished) {
+				return false;
+			}
+
+			this.consume(this.nextPage());
+		}
+
+		return true;
+	}
+
+	@Override
+	public T next() {
+		if (!this.hasNext()) {
+			throw new NoSuchElementException();
+		}
+
+		return this.current.next();
+	}
+
+	@Override
+	public void remove() {
+		throw new UnsupportedOperationException("remove is not supported");
+	}
+
+	/**
+	 * Stops fetching pages. Items of the page being consumed can still be read but no more pages will be fetched
+	 */
+	@Override
+	public void close() {
+		this.finished = true;
+
+		for (Future<P> page : this.inFlight) {
+			page.cancel(true);
+		}
+
+		this.inFlight.clear();
+
+		if (this.fetcher != null) {
+			this.fetcher.shutdownNow();
+		}
+	}
+
+	private void consume(P page) {
+		if (page == null) {
+			this.close();
+		} else {
+			Collection<T> items = this.getItems(page);
+			if (items != null) {
+				this.current = items.iterator();
+			}
+		}
+	}
+
+	private P nextPage() {
+		try {
+			if (this.maxPagesInFlight <= 0) {
+				return this.fetchNext();
+			}
+
+			this.schedule();
+			P page = this.inFlight.removeFirst().get();
+
+			// the window is only refilled as the consumer takes pages
+			if (page != null) {
+				this.schedule();
+			}
+
+			return page;
+		} catch (ExecutionException e) {
+			throw this.fail(e.getCause());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw this.fail(e);
+		} catch (Exception e) {
+			throw this.fail(e);
+		}
+	}
+
+	private void schedule() {
+		if (this.fetcher == null) {
+			this.fetcher = new ThreadPoolExecutor(1, 1, FETCHER_KEEP_ALIVE, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+
+				@Override
+				public Thread newThread(Runnable r) {
+					Thread thread = new Thread(r, "google-page-fetcher");
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+
+			this.fetcher.allowCoreThreadTimeOut(true);
+		}
+
+		while (this.inFlight.size() < this.maxPagesInFlight) {
+			this.inFlight.addLast(this.fetcher.submit(new Callable<P>() {
+
+				@Override
+				public P call() throws Exception {
+					return fetchNext();
+				}
+			}));
+		}
+	}
+
+	/**
+	 * Fetches the page following the last one. Invocations never overlap since pages are either fetched
+	 * by the consumer or by the single fetching thread, which runs them in order
+	 */
+	private P fetchNext() throws Exception {
+		if (this.lastPageReached) {
+			return null;
+		}
+
+		P page = this.fetchPage(this.lastPage);
+
+		if (page == null) {
+			this.lastPageReached = true;
+		} else {
+			this.lastPage = page;
+		}
+
+		return page;
+	}
+
+	private RuntimeException fail(Throwable cause) {
+		this.failure = cause instanceof RuntimeException ? (RuntimeException) cause : new RuntimeException("Could not fetch page", cause);
+		this.close();
+
+		return this.failure;
+	}
+
+	public int getMaxPagesInFlight() {
+		return maxPagesInFlight;
+	}
+}
@@ -0,0 +1,117 @@
+/**
+ * Mule Google Api Commons
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.modules.google.api.sync;
+
+import java.io.Serializable;
+
+import org.mule.api.store.ObjectStore;
+import org.mule.api.store.ObjectStoreException;
+
+/**
+ * Keeps the checkpoint of a source in an {@link org.mule.api.store.ObjectStore} so that it survives a crash at any point.
+ *
+ * Object stores don't allow to overwrite a key, so replacing a value requires removing it first. A crash between both
+ * operations would lose the checkpoint and make the source start over. To avoid that, the checkpoint is kept in two slots
+ * which are written alternately, each tagged with a sequence number. Only the slot holding the older checkpoint is ever
+ * removed, and loading returns the newest one, so there's always at least one complete checkpoint in the store.
+ *
+ * Checkpoints stored directly under the key by previous versions are still loaded.
+ *
+ * @author mariano.gonzalez@mulesoft.com
+ *
+ */
+public class CheckpointStore<T extends Serializable> {
+
+	private final ObjectStore<Serializable> store;
+	private final String key;
+	private final String[] slots;
+	private long sequence = -1;
+
+	/**
+	 * @param store the object store to keep the checkpoint in
+	 * @param key the key of the checkpoint
+	 */
+	public CheckpointStore(ObjectStore<Serializable> store, String key) {
+		this.store = store;
+		this.key = key;
+		this.slots = new String[] {key + ".a", key + ".b"};
+	}
+
+	/**
+	 * @return the latest saved checkpoint or null if none was ever saved
+	 * @throws ObjectStoreException if the store could not be read
+	 */
+	@SuppressWarnings("unchecked")
+	public T load() throws ObjectStoreException {
+		Entry latest = null;
+
+		for (String slot : this.slots) {
+			if (this.store.contains(slot)) {
+				Entry entry = (Entry) this.store.retrieve(slot);
+
+				if (latest == null || entry.sequence > latest.sequence) {
+					latest = entry;
+				}
+			}
+		}
+
+		if (latest != null) {
+			this.sequence = latest.sequence;
+			return (T) latest.value;
+		}
+
+		if (this.store.contains(this.key)) {
+			this.sequence = 0;
+			return (T) this.store.retrieve(this.key);
+		}
+
+		return null;
+	}
+
+	/**
+	 * Saves a new checkpoint, replacing the oldest of the two kept in the store
+	 *
+	 * @param checkpoint the checkpoint
+	 * @throws ObjectStoreException if the checkpoint could not be saved
+	 */
+	public synchronized void save(T checkpoint) throws ObjectStoreException {
+		if (this.sequence < 0) {
+			this.load();
+		}
+
+		long next = this.sequence + 1;
+		String slot = this.slots[(int) (next % 2)];
+
+		if (this.store.contains(slot)) {
+			this.store.remove(slot);
+		}
+
+		this.store.store(slot, new Entry(next, checkpoint));
+		this.sequence = next;
+	}
+
+	public String getKey() {
+		return key;
+	}
+
+	private static class Entry implements Serializable {
+
+		private static final long serialVersionUID = 4731395047524818093L;
+
+		private final long sequence;
+		private final Serializable value;
+
+		private Entry(long sequence, Serializable value) {
+			this.sequence = sequence;
+			this.value = value;
+		}
+	}
+}
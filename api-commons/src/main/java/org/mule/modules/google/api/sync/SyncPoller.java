@@ -0,0 +1,159 @@
+/**
+ * Mule Google Api Commons
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.modules.google.api.sync;
+
+import java.io.Serializable;
+
+import org.apache.log4j.Logger;
+import org.mule.api.MuleContext;
+import org.mule.api.callback.SourceCallback;
+import org.mule.api.config.MuleProperties;
+import org.mule.api.store.ObjectStore;
+import org.mule.api.store.ObjectStoreException;
+import org.mule.modules.google.oauth.invalidation.OAuthTokenExpiredException;
+
+/**
+ * Polling loop shared by the sources that deliver the changes of a listing incrementally, resuming from a checkpoint
+ * kept in an object store.
+ *
+ * Each poll starts from the last saved checkpoint and is expected to deliver the changes it finds, saving a new checkpoint
+ * once the flow has processed them, so that the source resumes where it stopped after a restart or a failure. Checkpoints are
+ * kept through a {@link org.mule.modules.google.api.sync.CheckpointStore}, in the given object store or in Mule's default
+ * persistent one.
+ *
+ * Polls run every minPollInterval milliseconds while they keep finding changes. Each poll that finds none, or fails,
+ * doubles the interval up to maxPollInterval. A failed poll is retried from the last saved checkpoint. If the flow keeps
+ * rejecting the changes delivered from the same checkpoint, they're logged and skipped after maxRedeliveries attempts.
+ * An expired access token stops the loop, since no later poll could succeed.
+ *
+ * @author mariano.gonzalez@mulesoft.com
+ *
+ * @param <C> the type of the checkpoint
+ */
+public abstract class SyncPoller<C extends Serializable> {
+
+	private static final Logger logger = Logger.getLogger(SyncPoller.class);
+
+	private final String description;
+	private final CheckpointStore<C> store;
+	private C checkpoint;
+	private int maxRedeliveries;
+	private C rejectedAt;
+	private int rejections = 0;
+
+	/**
+	 * @param description what is being synced, used for logging
+	 * @param objectStore the object store to keep the checkpoint in. If null, Mule's default persistent object store is used
+	 * @param muleContext the mule context
+	 * @param key the key of the checkpoint in the object store
+	 */
+	public SyncPoller(String description, ObjectStore<Serializable> objectStore, MuleContext muleContext, String key) {
+		if (objectStore == null) {
+			objectStore = muleContext.getRegistry().lookupObject(MuleProperties.OBJECT_STORE_DEFAULT_PERSISTENT_NAME);
+		}
+
+		this.description = description;
+		this.store = new CheckpointStore<C>(objectStore, key);
+	}
+
+	/**
+	 * @return the checkpoint to start from when none was ever saved
+	 * @throws Exception if the checkpoint could not be created
+	 */
+	protected abstract C createCheckpoint() throws Exception;
+
+	/**
+	 * Delivers the changes made after the given checkpoint. Progress is recorded by saving new checkpoint instances
+	 * through {@link #save(Serializable)}. The given one must not be modified, since it's where the next poll
+	 * starts from if this one fails
+	 *
+	 * @param checkpoint the last saved checkpoint
+	 * @return whether any change was found
+	 * @throws Exception if the poll failed
+	 */
+	protected abstract boolean poll(C checkpoint) throws Exception;
+
+	/**
+	 * Polls until the thread is interrupted
+	 *
+	 * @param minPollInterval the number of milliseconds to wait between polls while there are changes
+	 * @param maxPollInterval the maximum number of milliseconds to wait between polls when there are no changes
+	 * @param maxRedeliveries the maximum number of times the changes rejected by the flow are delivered again
+	 * @throws Exception if the checkpoint could not be read or the access token expired
+	 */
+	public void run(long minPollInterval, long maxPollInterval, int maxRedeliveries) throws Exception {
+		this.maxRedeliveries = maxRedeliveries;
+		this.checkpoint = this.store.load();
+
+		long interval = minPollInterval;
+
+		while (!Thread.currentThread().isInterrupted()) {
+			boolean found = false;
+
+			try {
+				if (this.checkpoint == null) {
+					this.save(this.createCheckpoint());
+				}
+
+				found = this.poll(this.checkpoint);
+			} catch (OAuthTokenExpiredException e) {
+				throw e;
+			} catch (Exception e) {
+				logger.warn("Could not sync " + this.description + ". Will retry on next poll", e);
+			}
+
+			interval = found ? minPollInterval : Math.min(maxPollInterval, interval * 2);
+
+			try {
+				Thread.sleep(interval);
+			} catch (InterruptedException e) {
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Hands the given changes to the flow. If the flow fails, the exception is propagated so that the changes are
+	 * delivered again on the next poll, unless they were already rejected maxRedeliveries times from the current checkpoint.
+	 * In that case the failure is logged and the caller should move on as if the changes had been processed
+	 *
+	 * @param callback the source callback
+	 * @param changes the changes
+	 * @throws Exception if the flow failed to process the changes
+	 */
+	protected void deliver(SourceCallback callback, Object changes) throws Exception {
+		try {
+			callback.process(changes);
+		} catch (Exception e) {
+			if (this.rejectedAt != this.checkpoint) {
+				this.rejectedAt = this.checkpoint;
+				this.rejections = 0;
+			}
+
+			if (this.rejections++ < this.maxRedeliveries) {
+				throw e;
+			}
+
+			logger.error(String.format("Skipping changes of %s, the flow failed to process them %d times", this.description, this.rejections), e);
+		}
+	}
+
+	/**
+	 * Saves a new checkpoint, which the following polls start from
+	 *
+	 * @param checkpoint the checkpoint
+	 * @throws ObjectStoreException if the checkpoint could not be saved
+	 */
+	protected void save(C checkpoint) throws ObjectStoreException {
+		this.store.save(checkpoint);
+		this.checkpoint = checkpoint;
+	}
+}
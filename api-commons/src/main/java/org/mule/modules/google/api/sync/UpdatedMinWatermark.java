@@ -0,0 +1,79 @@
+/**
+ * Mule Google Api Commons
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.modules.google.api.sync;
+
+import java.io.Serializable;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Position of an incremental sync over a listing that can be filtered by last modification time. It holds the latest
+ * update time seen, which is used as the updatedMin of the next poll, and the ids of the items updated at exactly that time.
+ * 
+ * Since updatedMin is inclusive, the items at the watermark are returned again by the next poll. Remembering their ids
+ * allows to tell them apart from other items updated at the same millisecond that weren't seen yet.
+ * 
+ * @author mariano.gonzalez@mulesoft.com
+ *
+ */
+public class UpdatedMinWatermark implements Serializable {
+
+	private static final long serialVersionUID = -1442071865487935312L;
+	
+	private long updatedMin;
+	private Set<String> boundaryIds = new HashSet<String>();
+	
+	/**
+	 * @param updatedMin the update time from which items are considered new
+	 */
+	public UpdatedMinWatermark(long updatedMin) {
+		this.updatedMin = updatedMin;
+	}
+	
+	/**
+	 * Creates a copy of the given watermark
+	 * @param other the watermark to copy
+	 */
+	public UpdatedMinWatermark(UpdatedMinWatermark other) {
+		this.updatedMin = other.updatedMin;
+		this.boundaryIds.addAll(other.boundaryIds);
+	}
+	
+	/**
+	 * @param itemId the item's id
+	 * @param updated the item's update time in milliseconds
+	 * @return whether the item's update was not seen yet
+	 */
+	public boolean isNew(String itemId, long updated) {
+		return updated > this.updatedMin || (updated == this.updatedMin && !this.boundaryIds.contains(itemId));
+	}
+	
+	/**
+	 * Moves the watermark forward to the given item's update
+	 * 
+	 * @param itemId the item's id
+	 * @param updated the item's update time in milliseconds
+	 */
+	public void advance(String itemId, long updated) {
+		if (updated > this.updatedMin) {
+			this.updatedMin = updated;
+			this.boundaryIds.clear();
+			this.boundaryIds.add(itemId);
+		} else if (updated == this.updatedMin) {
+			this.boundaryIds.add(itemId);
+		}
+	}
+	
+	public long getUpdatedMin() {
+		return updatedMin;
+	}
+	
+}
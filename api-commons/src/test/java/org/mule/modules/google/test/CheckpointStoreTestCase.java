@@ -0,0 +1,97 @@
+/**
+ * Mule Google Api Commons
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.modules.google.test;
+
+import java.io.Serializable;
+
+import junit.framework.TestCase;
+
+import org.mule.api.store.ObjectStoreException;
+import org.mule.modules.google.api.sync.CheckpointStore;
+import org.mule.util.store.SimpleMemoryObjectStore;
+
+/**
+ *
+ * @author mariano.gonzalez@mulesoft.com
+ *
+ */
+public class CheckpointStoreTestCase extends TestCase {
+
+	private static final String KEY = "checkpoint";
+
+	private CrashingObjectStore objectStore;
+
+	@Override
+	protected void setUp() throws Exception {
+		this.objectStore = new CrashingObjectStore();
+	}
+
+	public void testLoadsLatest() throws Exception {
+		CheckpointStore<Long> store = new CheckpointStore<Long>(this.objectStore, KEY);
+		assertNull(store.load());
+
+		for (long i = 1; i <= 5; i++) {
+			store.save(i);
+		}
+
+		assertEquals(Long.valueOf(5), new CheckpointStore<Long>(this.objectStore, KEY).load());
+	}
+
+	public void testSurvivesCrashWhileSaving() throws Exception {
+		CheckpointStore<Long> store = new CheckpointStore<Long>(this.objectStore, KEY);
+		store.save(1L);
+		store.save(2L);
+
+		this.objectStore.crash = true;
+
+		try {
+			store.save(3L);
+			fail("the store should have crashed");
+		} catch (ObjectStoreException e) {
+			// expected
+		}
+
+		this.objectStore.crash = false;
+
+		CheckpointStore<Long> restarted = new CheckpointStore<Long>(this.objectStore, KEY);
+		assertEquals(Long.valueOf(2), restarted.load());
+
+		restarted.save(3L);
+		assertEquals(Long.valueOf(3), new CheckpointStore<Long>(this.objectStore, KEY).load());
+	}
+
+	public void testLoadsLegacyCheckpoint() throws Exception {
+		this.objectStore.store(KEY, 7L);
+
+		CheckpointStore<Long> store = new CheckpointStore<Long>(this.objectStore, KEY);
+		assertEquals(Long.valueOf(7), store.load());
+
+		store.save(8L);
+		assertEquals(Long.valueOf(8), new CheckpointStore<Long>(this.objectStore, KEY).load());
+	}
+
+	/**
+	 * Object store that fails to store any value while crash is set, after the previous one was already removed
+	 */
+	private static class CrashingObjectStore extends SimpleMemoryObjectStore<Serializable> {
+
+		private boolean crash = false;
+
+		@Override
+		public void store(Serializable key, Serializable value) throws ObjectStoreException {
+			if (this.crash) {
+				throw new ObjectStoreException();
+			}
+
+			super.store(key, value);
+		}
+	}
+}
@@ -0,0 +1,87 @@
+/**
+ * Mule Google Api Commons
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.modules.google.test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.mule.modules.google.api.client.batch.BatchResponse;
+import org.mule.modules.google.api.client.batch.ChunkedBatch;
+
+import com.google.api.client.googleapis.batch.BatchRequest;
+import com.google.api.client.googleapis.json.GoogleJsonError.ErrorInfo;
+
+/**
+ *
+ * @author mariano.gonzalez@mulesoft.com
+ *
+ */
+public class ChunkedBatchTestCase extends TestCase {
+
+	public void testFailedChunkReportsItsItems() throws Exception {
+		BatchResponse<Integer> response = new FailingBatch(1).execute(Arrays.asList(0, 1, 2, 3, 4));
+
+		assertEquals(Arrays.asList(0, 1, 4), response.getSuccessful());
+		assertEquals(2, response.getErrors().size());
+
+		for (int i = 0; i < 2; i++) {
+			ErrorInfo info = response.getErrors().get(i);
+			assertEquals(ChunkedBatch.BATCH_FAILED_REASON, info.getReason());
+			assertEquals("boom", info.getMessage());
+			assertEquals(2 + i, info.get(BatchResponse.ERROR_INDEX));
+		}
+	}
+
+	/**
+	 * Batch of two items per chunk that fails to submit one of them. Instead of
+	 * using a real request, queued items are kept per thread and reported on submit
+	 */
+	private class FailingBatch extends ChunkedBatch<Integer, Integer> {
+
+		private final int failingChunk;
+		private final ThreadLocal<List<Integer>> queued = new ThreadLocal<List<Integer>>();
+		private final ThreadLocal<BatchResponse<Integer>> current = new ThreadLocal<BatchResponse<Integer>>();
+
+		private FailingBatch(int failingChunk) {
+			super(2, 2);
+			this.failingChunk = failingChunk;
+		}
+
+		@Override
+		protected BatchRequest newBatch() {
+			this.queued.set(new ArrayList<Integer>());
+			return null;
+		}
+
+		@Override
+		protected void queue(BatchRequest batch, Integer item, int index, BatchResponse<Integer> response) throws IOException {
+			this.queued.get().add(item);
+			this.current.set(response);
+		}
+
+		@Override
+		protected void submit(BatchRequest batch) throws IOException {
+			List<Integer> items = this.queued.get();
+
+			for (Integer item : items) {
+				this.current.get().addSuccessful(item);
+			}
+
+			if (items.get(0) / 2 == this.failingChunk) {
+				throw new IOException("boom");
+			}
+		}
+	}
+}
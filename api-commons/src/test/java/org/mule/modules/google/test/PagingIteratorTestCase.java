@@ -0,0 +1,159 @@
+/**
+ * Mule Google Api Commons
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.modules.google.test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.TestCase;
+
+import org.mule.modules.google.api.pagination.PagingIterator;
+
+/**
+ *
+ * @author mariano.gonzalez@mulesoft.com
+ *
+ */
+public class PagingIteratorTestCase extends TestCase {
+
+	public void testIteratesAllPages() throws Exception {
+		for (int pagesInFlight = 0; pagesInFlight < 3; pagesInFlight++) {
+			List<Integer> items = new ArrayList<Integer>();
+			PagingIterator<Integer, Integer> iterator = new NumberPages(pagesInFlight, 3, -1).open();
+
+			while (iterator.hasNext()) {
+				items.add(iterator.next());
+			}
+
+			assertEquals(Arrays.asList(10, 11, 20, 21, 30, 31), items);
+			assertFalse(iterator.hasNext());
+		}
+	}
+
+	public void testFailureIsTerminal() throws Exception {
+		for (int pagesInFlight = 0; pagesInFlight < 3; pagesInFlight++) {
+			PagingIterator<Integer, Integer> iterator = new NumberPages(pagesInFlight, 5, 2).open();
+
+			assertEquals(Integer.valueOf(10), iterator.next());
+			assertEquals(Integer.valueOf(11), iterator.next());
+
+			RuntimeException failure = null;
+			try {
+				iterator.hasNext();
+				fail("the second page should have failed");
+			} catch (RuntimeException e) {
+				failure = e;
+			}
+
+			try {
+				iterator.hasNext();
+				fail("a failed iterator should not recover");
+			} catch (RuntimeException e) {
+				assertSame(failure, e);
+			}
+		}
+	}
+
+	public void testOpenFailsOnFirstPage() {
+		try {
+			new NumberPages(1, 5, 1).open();
+			fail("open should have failed");
+		} catch (IOException e) {
+			assertEquals("page 1", e.getMessage());
+		}
+	}
+
+	public void testOpenPropagatesRuntimeExceptions() throws Exception {
+		NumberPages pages = new NumberPages(1, 5, 1);
+		pages.failure = new IllegalStateException("expired");
+
+		try {
+			pages.open();
+			fail("open should have failed");
+		} catch (IllegalStateException e) {
+			assertSame(pages.failure, e);
+		}
+	}
+
+	public void testAbandonedIteratorStopsFetching() throws Exception {
+		NumberPages pages = new NumberPages(2, Integer.MAX_VALUE, -1);
+		PagingIterator<Integer, Integer> iterator = pages.open();
+
+		// consume the first page and take the second one
+		for (int i = 0; i < 3; i++) {
+			iterator.next();
+		}
+
+		Thread.sleep(500);
+
+		// first page, second page and a window of two pages ahead
+		assertEquals(4, pages.fetched.get());
+	}
+
+	public void testClose() throws Exception {
+		NumberPages pages = new NumberPages(2, Integer.MAX_VALUE, -1);
+		PagingIterator<Integer, Integer> iterator = pages.open();
+
+		iterator.close();
+
+		assertEquals(Integer.valueOf(10), iterator.next());
+		assertEquals(Integer.valueOf(11), iterator.next());
+		assertFalse(iterator.hasNext());
+		assertEquals(1, pages.fetched.get());
+	}
+
+	/**
+	 * Listing of pageCount pages, where page n holds the items n * 10 and n * 10 + 1
+	 */
+	private static class NumberPages extends PagingIterator<Integer, Integer> {
+
+		private final int pageCount;
+		private final int failingPage;
+		private final AtomicInteger fetched = new AtomicInteger();
+		private RuntimeException failure;
+
+		private NumberPages(int maxPagesInFlight, int pageCount, int failingPage) {
+			super(maxPagesInFlight);
+			this.pageCount = pageCount;
+			this.failingPage = failingPage;
+		}
+
+		@Override
+		protected Integer fetchPage(Integer previous) throws Exception {
+			int page = previous == null ? 1 : previous + 1;
+
+			if (page > this.pageCount) {
+				return null;
+			}
+
+			this.fetched.incrementAndGet();
+
+			if (page == this.failingPage) {
+				if (this.failure != null) {
+					throw this.failure;
+				}
+
+				throw new IOException("page " + page);
+			}
+
+			return page;
+		}
+
+		@Override
+		protected Collection<Integer> getItems(Integer page) {
+			return Arrays.asList(page * 10, page * 10 + 1);
+		}
+	}
+}
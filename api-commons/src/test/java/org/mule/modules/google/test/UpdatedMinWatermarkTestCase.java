@@ -0,0 +1,77 @@
+/**
+ * Mule Google Api Commons
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.modules.google.test;
+
+import junit.framework.TestCase;
+
+import org.mule.modules.google.api.sync.UpdatedMinWatermark;
+
+/**
+ *
+ * @author mariano.gonzalez@mulesoft.com
+ *
+ */
+public class UpdatedMinWatermarkTestCase extends TestCase {
+
+	public void testOlderAndNewerItems() {
+		UpdatedMinWatermark watermark = new UpdatedMinWatermark(1000);
+
+		assertFalse(watermark.isNew("a", 999));
+		assertTrue(watermark.isNew("a", 1001));
+	}
+
+	public void testEqualMillisecondBoundary() {
+		UpdatedMinWatermark watermark = new UpdatedMinWatermark(1000);
+		assertTrue("nothing seen at the starting millisecond yet", watermark.isNew("a", 1000));
+
+		watermark.advance("a", 2000);
+		watermark.advance("b", 2000);
+
+		// updatedMin is inclusive, so the next poll returns a and b again along with c
+		assertEquals(2000, watermark.getUpdatedMin());
+		assertFalse(watermark.isNew("a", 2000));
+		assertFalse(watermark.isNew("b", 2000));
+		assertTrue(watermark.isNew("c", 2000));
+
+		// a is updated again later on
+		assertTrue(watermark.isNew("a", 2001));
+		watermark.advance("a", 2001);
+
+		assertEquals(2001, watermark.getUpdatedMin());
+		assertFalse(watermark.isNew("a", 2001));
+		assertTrue(watermark.isNew("b", 2001));
+		assertFalse("items before the watermark are never new", watermark.isNew("c", 2000));
+	}
+
+	public void testAdvanceIgnoresOlderItems() {
+		UpdatedMinWatermark watermark = new UpdatedMinWatermark(1000);
+		watermark.advance("a", 1000);
+		watermark.advance("b", 500);
+
+		assertEquals(1000, watermark.getUpdatedMin());
+		assertFalse(watermark.isNew("a", 1000));
+		assertTrue(watermark.isNew("b", 1000));
+	}
+
+	public void testCopyIsIndependent() {
+		UpdatedMinWatermark watermark = new UpdatedMinWatermark(1000);
+		watermark.advance("a", 1000);
+
+		UpdatedMinWatermark copy = new UpdatedMinWatermark(watermark);
+		copy.advance("b", 1000);
+		copy.advance("c", 3000);
+
+		assertEquals(1000, watermark.getUpdatedMin());
+		assertTrue(watermark.isNew("b", 1000));
+		assertEquals(3000, copy.getUpdatedMin());
+		assertFalse(copy.isNew("a", 1000));
+	}
+}
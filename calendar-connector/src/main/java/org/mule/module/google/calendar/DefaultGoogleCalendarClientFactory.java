@@ -10,21 +10,33 @@
 
 package org.mule.module.google.calendar;
 
+import org.mule.modules.google.api.client.http.HttpTransportProvider;
 import org.mule.modules.google.oauth.invalidation.InvalidationAwareCredential;
 
 import com.google.api.client.auth.oauth2.BearerToken;
 import com.google.api.client.auth.oauth2.Credential;
-import com.google.api.client.http.javanet.NetHttpTransport;
-import com.google.api.client.json.jackson.JacksonFactory;
 import com.google.api.services.calendar.Calendar;
 
 /**
+ * Default client factory. All the clients it creates share the transport and json factory
+ * of a {@link org.mule.modules.google.api.client.http.HttpTransportProvider}, which defaults to the one
+ * returned by {@link org.mule.modules.google.api.client.http.HttpTransportProvider#getDefault()}
  * 
  * @author mariano.gonzalez@mulesoft.com
  *
  */
 public class DefaultGoogleCalendarClientFactory implements GoogleCalendarClientFactory {
 
+	private final HttpTransportProvider transportProvider;
+	
+	public DefaultGoogleCalendarClientFactory() {
+		this(HttpTransportProvider.getDefault());
+	}
+	
+	public DefaultGoogleCalendarClientFactory(HttpTransportProvider transportProvider) {
+		this.transportProvider = transportProvider;
+	}
+
 	/**
 	 * @see org.mule.module.google.calendar.GoogleCalendarClientFactory#newClient(java.lang.String, java.lang.String)
 	 */
@@ -33,7 +45,8 @@ public class DefaultGoogleCalendarClientFactory implements GoogleCalendarClientF
 		Credential credential = new InvalidationAwareCredential(BearerToken.authorizationHeaderAccessMethod());
 		credential.setAccessToken(accessToken);
 		
-		return new com.google.api.services.calendar.Calendar.Builder(new NetHttpTransport(), new JacksonFactory(), credential)
+		return new com.google.api.services.calendar.Calendar.Builder(this.transportProvider.getTransport(), this.transportProvider.getJsonFactory(),
+						this.transportProvider.getRequestInitializer(credential))
 						.setApplicationName(applicationName)
 						.build();
 	}
@@ -14,16 +14,22 @@
 package org.mule.module.google.calendar;
 
 import java.io.IOException;
+import java.io.Serializable;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 
 import javax.inject.Inject;
 
+import org.apache.commons.lang.StringUtils;
+import org.mule.api.MuleContext;
 import org.mule.api.MuleMessage;
 import org.mule.api.annotations.Configurable;
 import org.mule.api.annotations.Connector;
 import org.mule.api.annotations.Processor;
+import org.mule.api.annotations.Source;
 import org.mule.api.annotations.lifecycle.Start;
+import org.mule.api.annotations.lifecycle.Stop;
 import org.mule.api.annotations.oauth.OAuth2;
 import org.mule.api.annotations.oauth.OAuthAccessToken;
 import org.mule.api.annotations.oauth.OAuthAccessTokenIdentifier;
@@ -36,6 +42,11 @@ import org.mule.api.annotations.oauth.OAuthProtected;
 import org.mule.api.annotations.oauth.OAuthScope;
 import org.mule.api.annotations.param.Default;
 import org.mule.api.annotations.param.Optional;
+import org.mule.api.callback.SourceCallback;
+import org.mule.api.context.MuleContextAware;
+import org.mule.api.store.ObjectStore;
+import org.mule.module.google.calendar.fanout.CalendarFanOut;
+import org.mule.module.google.calendar.fanout.EventQuery;
 import org.mule.module.google.calendar.model.AclRule;
 import org.mule.module.google.calendar.model.Calendar;
 import org.mule.module.google.calendar.model.CalendarList;
@@ -49,10 +60,14 @@ import org.mule.modules.google.AccessType;
 import org.mule.modules.google.ForcePrompt;
 import org.mule.modules.google.IdentifierPolicy;
 import org.mule.modules.google.api.client.batch.BatchResponse;
-import org.mule.modules.google.api.client.batch.VoidBatchCallback;
+import org.mule.modules.google.api.client.batch.ChunkedBatch;
+import org.mule.modules.google.api.client.batch.IdBatchCallback;
+import org.mule.modules.google.api.client.http.HttpTransportProvider;
 import org.mule.modules.google.api.datetime.DateTimeConstants;
 import org.mule.modules.google.api.datetime.DateTimeUtils;
 import org.mule.modules.google.api.pagination.PaginationUtils;
+import org.mule.modules.google.api.sync.SyncPoller;
+import org.mule.modules.google.api.sync.UpdatedMinWatermark;
 import org.mule.modules.google.oauth.invalidation.OAuthTokenExpiredException;
 
 import com.google.api.client.googleapis.batch.BatchRequest;
@@ -81,9 +96,10 @@ import com.google.api.services.calendar.model.FreeBusyRequest;
 											" Use force to request authorization every time or auto to only do it the first time. Default is auto", optional=true)
 		}
 )
-public class GoogleCalendarConnector extends AbstractGoogleOAuthConnector {
+public class GoogleCalendarConnector extends AbstractGoogleOAuthConnector implements MuleContextAware {
 	
 	public static final String NEXT_PAGE_TOKEN = "GoogleCalendar_NEXT_PAGE_TOKEN";
+	public static final String EVENTS_WATERMARK = "GoogleCalendar_EVENTS_WATERMARK";
 	
 	/**
      * The OAuth2 consumer key 
@@ -138,9 +154,44 @@ public class GoogleCalendarConnector extends AbstractGoogleOAuthConnector {
     @Optional
     private GoogleCalendarClientFactory clientFactory;
     
+    /**
+     * Provider of the pooled http transport used by the clients. Set it to a bean to tune
+     * pool limits and timeouts. If not provided, the provider shared by all the connectors is used
+     */
+    @Configurable
+    @Optional
+    private HttpTransportProvider transportProvider;
+    
+    /**
+     * The maximum number of operations to be sent on each batch request.
+     * Bigger batches are split into several requests. It cannot be higher than 100
+     */
+    @Configurable
+    @Optional
+    @Default("100")
+    private int batchSize = ChunkedBatch.MAX_BATCH_SIZE;
+    
+    /**
+     * The maximum number of batch requests to be submitted concurrently
+     */
+    @Configurable
+    @Optional
+    @Default("4")
+    private int batchThreads = 4;
+    
+    /**
+     * Object store in which the sync-events source keeps its watermark.
+     * If not provided, Mule's default persistent object store is used
+     */
+    @Configurable
+    @Optional
+    private ObjectStore<Serializable> objectStore;
+    
     @OAuthAccessToken
     private String accessToken;
     
+    private MuleContext muleContext;
+    
 	/**
 	 * The google api client
 	 */
@@ -153,8 +204,24 @@ public class GoogleCalendarConnector extends AbstractGoogleOAuthConnector {
 	 */
 	@Start
 	public void init() {
+		if (this.transportProvider == null) {
+			this.transportProvider = HttpTransportProvider.getDefault();
+		}
+		
+		this.transportProvider.retain();
+		
 		if (this.clientFactory == null) {
-			this.clientFactory = new DefaultGoogleCalendarClientFactory();
+			this.clientFactory = new DefaultGoogleCalendarClientFactory(this.transportProvider);
+		}
+	}
+	
+	/**
+	 * Releases the transport provider, so that its connections are closed once no connector uses it
+	 */
+	@Stop
+	public void stop() {
+		if (this.transportProvider != null) {
+			this.transportProvider.release();
 		}
 	}
 	
@@ -411,6 +478,167 @@ public class GoogleCalendarConnector extends AbstractGoogleOAuthConnector {
     	return Event.valueOf(result.getItems(), Event.class);
     }
     
+    /**
+     * Searchs events matching the criteria parameters on many calendars at once. If a criteria is not specified, then it is not applied.
+     * 
+     * Calendars are queried concurrently using at most the given number of threads, and all the result pages of each calendar are fetched.
+     * Requests rejected because of rate limits are retried with an exponential backoff. The events of all the calendars are merged and sorted
+     * by start time, with all day events starting at midnight UTC.
+     * 
+     * {@sample.xml ../../../doc/GoogleCalendarConnector.xml.sample google-calendars:get-events-from-calendars}
+     * 
+     * @param calendarIds the ids of the calendars that contain the events
+     * @param icalUID Specifies iCalendar UID (iCalUID) of events to be included in the response
+     * @param maxAttendees The maximum number of attendees to include in the response. If there are more than the
+     *                     specified number of attendees, only the participant is returned.
+     * @param maxResults Maximum number of events fetched per request
+     * @param query Free text search terms to find events that match these terms in any field, except for
+     *               extended properties
+     * @param showDeleted Whether to include deleted events (with 'eventStatus' equals 'cancelled') in the result.
+     * @param showHiddenInvitations Whether to include hidden invitations in the result
+     * @param singleEvents whether to expand recurring events into instances and only return single one-off events and
+     * 			instances of recurring events, but not the underlying recurring events themselves.
+     * @param timeMin Lower bound timestamp (inclusive) for an event's end time to filter by 
+     * @param timeMax Upper bound timestamp (exclusive) for an event's start time to filter by
+     * @param timezone Timezone in which timeMin, timeMax and lastUpdated is to be considered on
+     * @param lastUpdated Lower bound timestamp for an event's last modification time to filter by
+     * @param datetimeFormat The timestamp format for timeMin, timeMax and lastUpdated. It defaults to RFC 3369 (yyyy-MM-dd'T'HH:mm:ssZ)
+     * @param threads the maximum number of calendars to query at the same time
+     * @return a list of {@link org.mule.module.google.calendar.model.Event}
+     * @throws IOException if there's a communication error
+     */
+    @Processor
+    @OAuthProtected
+	@OAuthInvalidateAccessTokenOn(exception=OAuthTokenExpiredException.class)
+    public List<Event> getEventsFromCalendars(
+    		List<String> calendarIds,
+    		@Optional String icalUID,
+    		@Optional Integer maxAttendees,
+    		@Optional Integer maxResults,
+    		@Optional String query,
+    		@Optional @Default("false") boolean showDeleted,
+    		@Optional @Default("false") boolean showHiddenInvitations,
+    		@Optional @Default("true") boolean singleEvents,
+    		@Optional String timeMin,
+    		@Optional String timeMax,
+    		@Optional @Default(DateTimeConstants.RFC3339) String datetimeFormat,
+    		@Optional @Default("UTC") String timezone,
+    		@Optional String lastUpdated,
+    		@Optional @Default("4") int threads) throws IOException {
+    	
+    	EventQuery eventQuery = new EventQuery()
+    		.setICalUID(icalUID)
+	    	.setMaxAttendees(maxAttendees)
+	    	.setMaxResults(maxResults)
+	    	.setQ(query)
+	    	.setShowDeleted(showDeleted)
+	    	.setShowHiddenInvitations(showHiddenInvitations)
+	    	.setSingleEvents(singleEvents)
+	    	.setTimeMax(DateTimeUtils.parseDateTime(timeMax, datetimeFormat, timezone))
+	    	.setTimeMin(DateTimeUtils.parseDateTime(timeMin, datetimeFormat, timezone))
+	    	.setTimeZone(timezone)
+	    	.setUpdatedMin(DateTimeUtils.parseDateTime(lastUpdated, datetimeFormat, timezone));
+    	
+    	CalendarFanOut fanOut = new CalendarFanOut(this.client, threads, CalendarFanOut.DEFAULT_MAX_RETRIES);
+    	return Event.valueOf(fanOut.listEvents(calendarIds, eventQuery), Event.class);
+    }
+    
+    /**
+     * Polls a calendar for events created, updated or deleted since the last poll and delivers them to the flow,
+     * one list of {@link org.mule.module.google.calendar.model.Event} per page of maxResults events. Deleted events
+     * are delivered with status cancelled.
+     * 
+     * Each poll lists the events ordered by update time using the latest update time already seen as updatedMin, and drains
+     * all the pages. The watermark is kept per calendar in the object store under watermarkKey and it's moved forward after
+     * each page the flow processes. Events already delivered are not delivered again unless they're updated, and events without
+     * an update time are skipped since they can't be placed after the watermark.
+     * 
+     * {@sample.xml ../../../doc/GoogleCalendarConnector.xml.sample google-calendars:sync-events}
+     * 
+     * @param callback the source callback
+     * @param calendarId the id of the calendar to sync
+     * @param watermarkKey the key of the watermark in the object store. Defaults to GoogleCalendar_EVENTS_WATERMARK followed by the access token id and the calendar id
+     * @param startFrom the update time to start from when there's no watermark yet. If not provided, only events updated after the source starts are delivered
+     * @param datetimeFormat The timestamp format for startFrom. It defaults to RFC 3369 (yyyy-MM-dd'T'HH:mm:ssZ)
+     * @param timezone Timezone in which startFrom is to be considered on
+     * @param maxResults Maximum number of events to deliver on each message
+     * @param singleEvents whether to expand recurring events into instances
+     * @param minPollInterval the number of milliseconds to wait between polls while there are changes
+     * @param maxPollInterval the maximum number of milliseconds to wait between polls when the calendar is idle
+     * @param maxRedeliveries the maximum number of times a page the flow failed to process is delivered again before skipping it
+     * @throws Exception if the watermark could not be read or the access token expired
+     */
+    @Source
+    @OAuthProtected
+    public void syncEvents(
+    		final SourceCallback callback,
+    		final String calendarId,
+    		@Optional String watermarkKey,
+    		@Optional final String startFrom,
+    		@Optional @Default(DateTimeConstants.RFC3339) final String datetimeFormat,
+    		@Optional @Default("UTC") final String timezone,
+    		@Optional @Default("250") final int maxResults,
+    		@Optional @Default("false") final boolean singleEvents,
+    		@Optional @Default("5000") long minPollInterval,
+    		@Optional @Default("300000") long maxPollInterval,
+    		@Optional @Default("3") int maxRedeliveries) throws Exception {
+    	
+    	String key = StringUtils.isBlank(watermarkKey) ? EVENTS_WATERMARK + "." + this.getAccessTokenId() + "." + calendarId : watermarkKey;
+    	
+    	new SyncPoller<UpdatedMinWatermark>("events of calendar " + calendarId, this.objectStore, this.muleContext, key) {
+    		
+    		@Override
+    		protected UpdatedMinWatermark createCheckpoint() {
+    			return new UpdatedMinWatermark(startFrom != null ? DateTimeUtils.parseDateTime(startFrom, datetimeFormat, timezone).getValue() : System.currentTimeMillis());
+    		}
+    		
+    		@Override
+    		protected boolean poll(UpdatedMinWatermark watermark) throws Exception {
+    			boolean found = false;
+    			UpdatedMinWatermark next = watermark;
+    			String pageToken = null;
+    			
+    			do {
+    				com.google.api.services.calendar.model.Events page = client.events().list(calendarId)
+    						.setUpdatedMin(new com.google.api.client.util.DateTime(watermark.getUpdatedMin()))
+    						.setOrderBy("updated")
+    						.setShowDeleted(true)
+    						.setSingleEvents(singleEvents)
+    						.setMaxResults(maxResults)
+    						.setPageToken(pageToken)
+    						.execute();
+    				
+    				List<com.google.api.services.calendar.model.Event> changed = new ArrayList<com.google.api.services.calendar.model.Event>();
+    				
+    				if (page.getItems() != null) {
+    					for (com.google.api.services.calendar.model.Event event : page.getItems()) {
+    						// events without an update time can't be placed in the watermark, so they'd be delivered forever
+    						if (event.getUpdated() != null && watermark.isNew(event.getId(), event.getUpdated().getValue())) {
+    							changed.add(event);
+    						}
+    					}
+    				}
+    				
+    				if (!changed.isEmpty()) {
+    					this.deliver(callback, Event.valueOf(changed, Event.class));
+    					found = true;
+    					
+    					next = new UpdatedMinWatermark(next);
+    					for (com.google.api.services.calendar.model.Event event : changed) {
+    						next.advance(event.getId(), event.getUpdated().getValue());
+    					}
+    					
+    					this.save(next);
+    				}
+    				
+    				pageToken = page.getNextPageToken();
+    			} while (!StringUtils.isBlank(pageToken));
+    			
+    			return found;
+    		}
+    	}.run(minPollInterval, maxPollInterval, maxRedeliveries);
+    }
+    
     /**
      * Imports the given event into a calendar
      * 
@@ -480,7 +708,9 @@ public class GoogleCalendarConnector extends AbstractGoogleOAuthConnector {
     
     
     /**
-     * Inserts many events as a batch
+     * Inserts many events as a batch.
+     * The operations are sent in batches of at most batchSize operations, submitting up to batchThreads of them concurrently.
+     * Each error in the response keeps the index of the item that caused it under the &quot;index&quot; key
      * 
      * {@sample.xml ../../../doc/GoogleCalendarConnector.xml.sample google-calendars:batch-insert-event}
      * 
@@ -493,26 +723,24 @@ public class GoogleCalendarConnector extends AbstractGoogleOAuthConnector {
     @OAuthProtected
 	@OAuthInvalidateAccessTokenOn(exception=OAuthTokenExpiredException.class)
     public BatchResponse<Event> batchInsertEvent(
-    			String calendarId,
+    			final String calendarId,
     			@Optional @Default("#[payload]") Collection<Event> calendarEvents) throws IOException {
     	
-    	EventBatchCallback callback = new EventBatchCallback();
-    	com.google.api.services.calendar.Calendar client = this.client; 
-    	
-    	BatchRequest batch = client.batch();
-    	Events eventsClient = client.events();
-    	
-    	for (Event event : calendarEvents) {
-    		eventsClient.insert(calendarId, event.wrapped()).queue(batch, callback);
-    	}
+    	final Events eventsClient = this.client.events();
     	
-    	batch.execute();
-    	
-    	return callback.getResponse();
+    	return new CalendarBatch<Event, Event>() {
+    		
+    		@Override
+    		protected void queue(BatchRequest batch, Event event, int index, BatchResponse<Event> response) throws IOException {
+    			eventsClient.insert(calendarId, event.wrapped()).queue(batch, new EventBatchCallback(response, index));
+    		}
+    	}.execute(calendarEvents);
     }
     	
     /**
-     * Updates many events in a batch
+     * Updates many events in a batch.
+     * The operations are sent in batches of at most batchSize operations, submitting up to batchThreads of them concurrently.
+     * Each error in the response keeps the index of the item that caused it under the &quot;index&quot; key
      * 
      * {@sample.xml ../../../doc/GoogleCalendarConnector.xml.sample google-calendars:batch-update-event}
      * 
@@ -524,52 +752,51 @@ public class GoogleCalendarConnector extends AbstractGoogleOAuthConnector {
     @Processor
     @OAuthProtected
 	@OAuthInvalidateAccessTokenOn(exception=OAuthTokenExpiredException.class)
-    public BatchResponse<Event> batchUpdateEvent(String calendarId, @Optional @Default("#[payload]") Collection<Event> calendarEvents) throws IOException {
+    public BatchResponse<Event> batchUpdateEvent(final String calendarId, @Optional @Default("#[payload]") Collection<Event> calendarEvents) throws IOException {
     	
-    	EventBatchCallback callback = new EventBatchCallback();
-    	com.google.api.services.calendar.Calendar client = this.client; 
+    	final Events eventsClient = this.client.events();
     	
-    	BatchRequest batch = client.batch();
-    	Events eventsClient = client.events();
-    	
-    	for (Event event : calendarEvents) {
-    		eventsClient.update(calendarId, event.getId(), event.wrapped()).queue(batch, callback);
-    	}
-    	
-    	batch.execute();
-    	
-    	return callback.getResponse();
+    	return new CalendarBatch<Event, Event>() {
+    		
+    		@Override
+    		protected void queue(BatchRequest batch, Event event, int index, BatchResponse<Event> response) throws IOException {
+    			eventsClient.update(calendarId, event.getId(), event.wrapped()).queue(batch, new EventBatchCallback(response, index));
+    		}
+    	}.execute(calendarEvents);
     }
     
     /**
-     * Deletes many events in a batch
+     * Deletes many events in a batch.
+     * The operations are sent in batches of at most batchSize operations, submitting up to batchThreads of them concurrently.
+     * Each error in the response keeps the index of the item that caused it under the &quot;index&quot; key
      * 
      * {@sample.xml ../../../doc/GoogleCalendarConnector.xml.sample google-calendars:batch-delete-event}
      * 
      * @param calendarId the id of the calendar containing the events to be deleted
      * @param calendarEvents a collection with instances of {@link org.mule.module.google.calendar.model.Event} that are to be deleted
+     * @return an instance of {@link org.mule.modules.google.api.client.batch.BatchResponse<String>} with the ids of the deleted events
      * @throws IOException if there's a communication error
      */
     @Processor
     @OAuthProtected
 	@OAuthInvalidateAccessTokenOn(exception=OAuthTokenExpiredException.class)
-    public void batchDeleteEvent(String calendarId, @Optional @Default("#[payload]") Collection<Event> calendarEvents) throws IOException {
+    public BatchResponse<String> batchDeleteEvent(final String calendarId, @Optional @Default("#[payload]") Collection<Event> calendarEvents) throws IOException {
     	
-    	VoidBatchCallback callback = new VoidBatchCallback();
-    	com.google.api.services.calendar.Calendar client = this.client; 
+    	final Events eventsClient = this.client.events();
     	
-    	BatchRequest batch = client.batch();
-    	Events eventsClient = client.events();
-    	
-    	for (Event event : calendarEvents) {
-    		eventsClient.delete(calendarId, event.getId()).queue(batch, callback);
-    	}
-    	
-    	batch.execute();
+    	return new CalendarBatch<Event, String>() {
+    		
+    		@Override
+    		protected void queue(BatchRequest batch, Event event, int index, BatchResponse<String> response) throws IOException {
+    			eventsClient.delete(calendarId, event.getId()).queue(batch, new IdBatchCallback<Void>(event.getId(), response, index));
+    		}
+    	}.execute(calendarEvents);
     }
     
     /**
-     * Inserts many calendars in a batch
+     * Inserts many calendars in a batch.
+     * The operations are sent in batches of at most batchSize operations, submitting up to batchThreads of them concurrently.
+     * Each error in the response keeps the index of the item that caused it under the &quot;index&quot; key
      * 
      * {@sample.xml ../../../doc/GoogleCalendarConnector.xml.sample google-calendars:batch-insert-calendar}
      * 
@@ -582,23 +809,21 @@ public class GoogleCalendarConnector extends AbstractGoogleOAuthConnector {
 	@OAuthInvalidateAccessTokenOn(exception=OAuthTokenExpiredException.class)
     public BatchResponse<Calendar> batchInsertCalendar(@Optional @Default("#[payload]") Collection<Calendar> calendars) throws IOException {
     	
-    	CalendarBatchCallback callback = new CalendarBatchCallback();
-    	com.google.api.services.calendar.Calendar client = this.client; 
-    	
-    	BatchRequest batch = client.batch();
-    	Calendars calendarsClient = client.calendars();
-    	
-    	for (Calendar calendar : calendars) {
-    		calendarsClient.insert(calendar.wrapped()).queue(batch, callback);
-    	}
-    	
-    	batch.execute();
+    	final Calendars calendarsClient = this.client.calendars();
     	
-    	return callback.getResponse();
+    	return new CalendarBatch<Calendar, Calendar>() {
+    		
+    		@Override
+    		protected void queue(BatchRequest batch, Calendar calendar, int index, BatchResponse<Calendar> response) throws IOException {
+    			calendarsClient.insert(calendar.wrapped()).queue(batch, new CalendarBatchCallback(response, index));
+    		}
+    	}.execute(calendars);
     }
     
     /**
-     * Updates many calendars in a batch
+     * Updates many calendars in a batch.
+     * The operations are sent in batches of at most batchSize operations, submitting up to batchThreads of them concurrently.
+     * Each error in the response keeps the index of the item that caused it under the &quot;index&quot; key
      * 
      * {@sample.xml ../../../doc/GoogleCalendarConnector.xml.sample google-calendars:batch-update-calendar}
      * 
@@ -611,46 +836,82 @@ public class GoogleCalendarConnector extends AbstractGoogleOAuthConnector {
 	@OAuthInvalidateAccessTokenOn(exception=OAuthTokenExpiredException.class)
     public BatchResponse<Calendar> batchUpdateCalendar(@Optional @Default("#[payload]") Collection<Calendar> calendars) throws IOException {
     	
-    	CalendarBatchCallback callback = new CalendarBatchCallback();
-    	com.google.api.services.calendar.Calendar client = this.client; 
-    	
-    	BatchRequest batch = client.batch();
-    	Calendars calendarsClient = client.calendars();
+    	final Calendars calendarsClient = this.client.calendars();
     	
-    	for (Calendar calendar : calendars) {
-    		calendarsClient.update(calendar.getId(), calendar.wrapped()).queue(batch, callback);
-    	}
-    	
-    	batch.execute();
-    	
-    	return callback.getResponse();
+    	return new CalendarBatch<Calendar, Calendar>() {
+    		
+    		@Override
+    		protected void queue(BatchRequest batch, Calendar calendar, int index, BatchResponse<Calendar> response) throws IOException {
+    			calendarsClient.update(calendar.getId(), calendar.wrapped()).queue(batch, new CalendarBatchCallback(response, index));
+    		}
+    	}.execute(calendars);
     }
     
     /**
-     * Deletes many events in a batch
+     * Deletes many calendars in a batch.
+     * The operations are sent in batches of at most batchSize operations, submitting up to batchThreads of them concurrently.
+     * Each error in the response keeps the index of the item that caused it under the &quot;index&quot; key
      * 
      * {@sample.xml ../../../doc/GoogleCalendarConnector.xml.sample google-calendars:batch-delete-calendar}
      * 
      * @param calendars a collection with instances of @{link org.mule.module.google.calendar.model.Calendar} that are to be deleted
+     * @return an instance of {@link org.mule.modules.google.api.client.batch.BatchResponse<String>} with the ids of the deleted calendars
      * @throws IOException if there's a communication error
      */
     @Processor
     @OAuthProtected
 	@OAuthInvalidateAccessTokenOn(exception=OAuthTokenExpiredException.class)
-    public void batchDeleteCalendar(@Optional @Default("#[payload]") Collection<Calendar> calendars) throws IOException {
+    public BatchResponse<String> batchDeleteCalendar(@Optional @Default("#[payload]") Collection<Calendar> calendars) throws IOException {
     	
-    	VoidBatchCallback callback = new VoidBatchCallback();
-    	com.google.api.services.calendar.Calendar client = this.client; 
+    	final Calendars calendarsClient = this.client.calendars();
+    	
+    	return new CalendarBatch<Calendar, String>() {
+    		
+    		@Override
+    		protected void queue(BatchRequest batch, Calendar calendar, int index, BatchResponse<String> response) throws IOException {
+    			calendarsClient.delete(calendar.getId()).queue(batch, new IdBatchCallback<Void>(calendar.getId(), response, index));
+    		}
+    	}.execute(calendars);
+    }
+    
+    /**
+     * @param client the client to create the batch with
+     * @return a new empty batch request
+     */
+    BatchRequest newBatch(com.google.api.services.calendar.Calendar client) {
+    	return client.batch();
+    }
+    
+    /**
+     * Sends the given batch
+     * @param batch the batch
+     * @throws IOException if the batch could not be sent
+     */
+    void submitBatch(BatchRequest batch) throws IOException {
+    	batch.execute();
+    }
+    
+    /**
+     * {@link org.mule.modules.google.api.client.batch.ChunkedBatch} bound to the current client
+     * and to the connector's batch settings
+     */
+    private abstract class CalendarBatch<I, W> extends ChunkedBatch<I, W> {
     	
-    	BatchRequest batch = client.batch();
-    	Calendars calendarsClient = client.calendars();
+    	private final com.google.api.services.calendar.Calendar client = GoogleCalendarConnector.this.client;
     	
-    	for (Calendar calendar : calendars) {
-    		calendarsClient.delete(calendar.getId()).queue(batch, callback);
+    	private CalendarBatch() {
+    		super(batchSize, batchThreads);
     	}
     	
-    	batch.execute();
+    	@Override
+    	protected BatchRequest newBatch() {
+    		return GoogleCalendarConnector.this.newBatch(this.client);
+    	}
     	
+    	@Override
+    	protected void submit(BatchRequest batch) throws IOException {
+    		submitBatch(batch);
+    	}
     }
     		
     /**
@@ -755,7 +1016,11 @@ public class GoogleCalendarConnector extends AbstractGoogleOAuthConnector {
     }
     
     /**
-     * Returns the free time the authenticated user has between two times
+     * Returns the free time the authenticated user has between two times. If calendarIds is provided, then the free/busy
+     * information of those calendars is returned instead.
+     * 
+     * Since the free/busy endpoint takes a limited number of calendars per query, the calendars are split into queries of at most
+     * 50 calendars which are executed concurrently using at most the given number of threads. Their results are merged into a single response.
      * 
      * {@sample.xml ../../../doc/GoogleCalendarConnector.xml.sample google-calendars:get-free-time}
      * 
@@ -764,6 +1029,8 @@ public class GoogleCalendarConnector extends AbstractGoogleOAuthConnector {
      * @param maxCalendarExpansion Maximal number of calendars for which FreeBusy information is to be provided
      * @param timezone Time zone used in the response
      * @param datetimeFormat the format to be used to parse timeMin and timeMax
+     * @param calendarIds the ids of the calendars to query
+     * @param threads the maximum number of queries to execute at the same time
      * @return an instance of {@link org.mule.module.google.calendar.model.FreeBusy}
      * @throws IOException if there's a communication error
      */
@@ -775,7 +1042,9 @@ public class GoogleCalendarConnector extends AbstractGoogleOAuthConnector {
 			String timeMax,
 			@Optional @Default("UTC") String timezone,
 			@Optional @Default(DateTimeConstants.RFC3339) String datetimeFormat,
-			@Optional Integer maxCalendarExpansion) throws IOException {
+			@Optional Integer maxCalendarExpansion,
+			@Optional List<String> calendarIds,
+			@Optional @Default("4") int threads) throws IOException {
     	
     	FreeBusyRequest query = new FreeBusyRequest();
 
@@ -783,6 +1052,11 @@ public class GoogleCalendarConnector extends AbstractGoogleOAuthConnector {
 		query.setTimeMax(DateTimeUtils.parseDateTime(timeMax, datetimeFormat, timezone));
     	query.setTimeZone(timezone);
     	query.setCalendarExpansionMax(maxCalendarExpansion);
+    	
+    	if (calendarIds != null && !calendarIds.isEmpty()) {
+    		CalendarFanOut fanOut = new CalendarFanOut(this.client, threads, CalendarFanOut.DEFAULT_MAX_RETRIES);
+    		return new FreeBusy(fanOut.queryFreeBusy(calendarIds, query));
+    	}
 
     	return new FreeBusy(this.client.freebusy().query(query).execute());
     }
@@ -955,10 +1229,47 @@ public class GoogleCalendarConnector extends AbstractGoogleOAuthConnector {
 		return clientFactory;
 	}
 
+	public HttpTransportProvider getTransportProvider() {
+		return transportProvider;
+	}
+
+	public void setTransportProvider(HttpTransportProvider transportProvider) {
+		this.transportProvider = transportProvider;
+	}
+
 	public void setClientFactory(GoogleCalendarClientFactory clientFactory) {
 		this.clientFactory = clientFactory;
 	}
 
+	public ObjectStore<Serializable> getObjectStore() {
+		return objectStore;
+	}
+
+	public void setObjectStore(ObjectStore<Serializable> objectStore) {
+		this.objectStore = objectStore;
+	}
+
+	@Override
+	public void setMuleContext(MuleContext muleContext) {
+		this.muleContext = muleContext;
+	}
+
+	public int getBatchSize() {
+		return batchSize;
+	}
+
+	public void setBatchSize(int batchSize) {
+		this.batchSize = batchSize;
+	}
+
+	public int getBatchThreads() {
+		return batchThreads;
+	}
+
+	public void setBatchThreads(int batchThreads) {
+		this.batchThreads = batchThreads;
+	}
+
 	public IdentifierPolicy getIdentifierPolicy() {
 		return identifierPolicy;
 	}
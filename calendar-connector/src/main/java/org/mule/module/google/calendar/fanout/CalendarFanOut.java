@@ -0,0 +1,311 @@
+/**
+ * Mule Google Calendars Cloud Connector
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.module.google.calendar.fanout;
+
+import java.io.IOException;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.concurrent.Callable;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.log4j.Logger;
+import org.mule.modules.google.api.concurrent.ExecutionUtils;
+
+import com.google.api.client.googleapis.json.GoogleJsonError;
+import com.google.api.client.googleapis.json.GoogleJsonError.ErrorInfo;
+import com.google.api.client.googleapis.json.GoogleJsonResponseException;
+import com.google.api.client.http.HttpResponseException;
+import com.google.api.services.calendar.Calendar;
+import com.google.api.services.calendar.model.Event;
+import com.google.api.services.calendar.model.EventDateTime;
+import com.google.api.services.calendar.model.Events;
+import com.google.api.services.calendar.model.FreeBusyCalendar;
+import com.google.api.services.calendar.model.FreeBusyGroup;
+import com.google.api.services.calendar.model.FreeBusyRequest;
+import com.google.api.services.calendar.model.FreeBusyRequestItem;
+import com.google.api.services.calendar.model.FreeBusyResponse;
+import com.google.common.collect.Lists;
+
+/**
+ * Runs the same query against many calendars at once. Each calendar, or chunk of calendars for free/busy
+ * queries, is requested on its own using at most maxConcurrency concurrent requests.
+ *
+ * Requests rejected because of rate limits or failed with a server error are retried up to maxRetries
+ * times with an exponential backoff, so that a burst over many calendars slows down instead of failing.
+ *
+ * @author mariano.gonzalez@mulesoft.com
+ *
+ */
+public class CalendarFanOut {
+
+	private static final Logger logger = Logger.getLogger(CalendarFanOut.class);
+
+	/**
+	 * Maximum number of calendars accepted by the free/busy endpoint on a single query
+	 */
+	public static final int MAX_FREE_BUSY_ITEMS = 50;
+	public static final int DEFAULT_MAX_RETRIES = 5;
+
+	private static final int TOO_MANY_REQUESTS = 429;
+	private static final int FORBIDDEN = 403;
+	private static final long MAX_BACKOFF = 32000;
+	private static final List<String> RATE_LIMIT_REASONS = Arrays.asList("rateLimitExceeded", "userRateLimitExceeded");
+
+	private final Calendar client;
+	private final int maxConcurrency;
+	private final int maxRetries;
+
+	/**
+	 * @param client the calendar client
+	 * @param maxConcurrency the maximum number of requests to be executed at the same time
+	 * @param maxRetries the maximum number of times a rate limited request is retried
+	 */
+	public CalendarFanOut(Calendar client, int maxConcurrency, int maxRetries) {
+		this.client = client;
+		this.maxConcurrency = maxConcurrency;
+		this.maxRetries = maxRetries;
+	}
+
+	/**
+	 * Lists the events of every calendar, fetching all the pages of each one
+	 *
+	 * @param calendarIds the ids of the calendars
+	 * @param query the filters to apply
+	 * @return the events of all the calendars sorted by start time. Events without a start time go last
+	 * @throws IOException if a calendar could not be listed
+	 */
+	public List<Event> listEvents(Collection<String> calendarIds, final EventQuery query) throws IOException {
+		List<Callable<List<Event>>> tasks = new ArrayList<Callable<List<Event>>>();
+
+		for (final String calendarId : calendarIds) {
+			tasks.add(new Callable<List<Event>>() {
+
+				@Override
+				public List<Event> call() throws Exception {
+					return listEvents(calendarId, query);
+				}
+			});
+		}
+
+		List<Event> events = new ArrayList<Event>();
+
+		for (List<Event> calendarEvents : this.invokeAll(tasks)) {
+			events.addAll(calendarEvents);
+		}
+
+		Collections.sort(events, new StartTimeComparator());
+
+		return events;
+	}
+
+	/**
+	 * Queries the free/busy information of the given calendars, splitting them into queries
+	 * of at most {@link #MAX_FREE_BUSY_ITEMS} calendars
+	 *
+	 * @param calendarIds the ids of the calendars
+	 * @param template a query with the time range and options. Its items are ignored
+	 * @return a response with the calendars and groups of all the queries
+	 * @throws IOException if a query failed
+	 */
+	public FreeBusyResponse queryFreeBusy(Collection<String> calendarIds, final FreeBusyRequest template) throws IOException {
+		List<Callable<FreeBusyResponse>> tasks = new ArrayList<Callable<FreeBusyResponse>>();
+
+		for (List<String> chunk : Lists.partition(new ArrayList<String>(calendarIds), MAX_FREE_BUSY_ITEMS)) {
+			final FreeBusyRequest query = new FreeBusyRequest()
+						.setTimeMin(template.getTimeMin())
+						.setTimeMax(template.getTimeMax())
+						.setTimeZone(template.getTimeZone())
+						.setCalendarExpansionMax(template.getCalendarExpansionMax())
+						.setGroupExpansionMax(template.getGroupExpansionMax());
+
+			List<FreeBusyRequestItem> items = new ArrayList<FreeBusyRequestItem>(chunk.size());
+
+			for (String calendarId : chunk) {
+				items.add(new FreeBusyRequestItem().setId(calendarId));
+			}
+
+			query.setItems(items);
+
+			tasks.add(new Callable<FreeBusyResponse>() {
+
+				@Override
+				public FreeBusyResponse call() throws Exception {
+					return withRetries(new Callable<FreeBusyResponse>() {
+
+						@Override
+						public FreeBusyResponse call() throws Exception {
+							return client.freebusy().query(query).execute();
+						}
+					});
+				}
+			});
+		}
+
+		FreeBusyResponse merged = new FreeBusyResponse();
+		merged.setTimeMin(template.getTimeMin());
+		merged.setTimeMax(template.getTimeMax());
+
+		Map<String, FreeBusyCalendar> calendars = new LinkedHashMap<String, FreeBusyCalendar>();
+		Map<String, FreeBusyGroup> groups = new HashMap<String, FreeBusyGroup>();
+
+		for (FreeBusyResponse response : this.invokeAll(tasks)) {
+			if (response.getCalendars() != null) {
+				calendars.putAll(response.getCalendars());
+			}
+
+			if (response.getGroups() != null) {
+				groups.putAll(response.getGroups());
+			}
+		}
+
+		merged.setCalendars(calendars);
+		merged.setGroups(groups);
+
+		return merged;
+	}
+
+	private List<Event> listEvents(final String calendarId, EventQuery query) throws Exception {
+		List<Event> events = new ArrayList<Event>();
+		String pageToken = null;
+
+		do {
+			final Calendar.Events.List request = query.applyTo(this.client.events().list(calendarId)).setPageToken(pageToken);
+
+			Events page = this.withRetries(new Callable<Events>() {
+
+				@Override
+				public Events call() throws Exception {
+					return request.execute();
+				}
+			});
+
+			if (page.getItems() != null) {
+				events.addAll(page.getItems());
+			}
+
+			pageToken = page.getNextPageToken();
+		} while (!StringUtils.isBlank(pageToken));
+
+		return events;
+	}
+
+	private <T> T withRetries(Callable<T> request) throws Exception {
+		int failures = 0;
+
+		while (true) {
+			try {
+				return request.call();
+			} catch (HttpResponseException e) {
+				if (!this.isRetryable(e) || failures >= this.maxRetries) {
+					throw e;
+				}
+
+				long backoff = Math.min(MAX_BACKOFF, 1000L << failures);
+
+				if (logger.isDebugEnabled()) {
+					logger.debug(String.format("Request failed with status %d, retrying in %d ms", e.getStatusCode(), backoff), e);
+				}
+
+				Thread.sleep(backoff);
+				failures++;
+			}
+		}
+	}
+
+	private boolean isRetryable(HttpResponseException e) {
+		int status = e.getStatusCode();
+
+		if (status == TOO_MANY_REQUESTS || status >= 500) {
+			return true;
+		}
+
+		if (status != FORBIDDEN || !(e instanceof GoogleJsonResponseException)) {
+			return false;
+		}
+
+		GoogleJsonError details = ((GoogleJsonResponseException) e).getDetails();
+
+		if (details != null && details.getErrors() != null) {
+			for (ErrorInfo error : details.getErrors()) {
+				if (RATE_LIMIT_REASONS.contains(error.getReason())) {
+					return true;
+				}
+			}
+		}
+
+		return false;
+	}
+
+	private <T> List<T> invokeAll(List<Callable<T>> tasks) throws IOException {
+		try {
+			return ExecutionUtils.invokeAll(tasks, this.maxConcurrency);
+		} catch (IOException e) {
+			throw e;
+		} catch (RuntimeException e) {
+			throw e;
+		} catch (Exception e) {
+			throw new IOException("Could not query calendars", e);
+		}
+	}
+
+	private static class StartTimeComparator implements Comparator<Event> {
+
+		@Override
+		public int compare(Event e1, Event e2) {
+			Long start1 = getStart(e1);
+			Long start2 = getStart(e2);
+
+			if (start1 == null) {
+				return start2 == null ? 0 : 1;
+			} else if (start2 == null) {
+				return -1;
+			}
+
+			return start1.compareTo(start2);
+		}
+
+		private Long getStart(Event event) {
+			EventDateTime start = event.getStart();
+
+			if (start == null) {
+				return null;
+			}
+
+			if (start.getDateTime() != null) {
+				return start.getDateTime().getValue();
+			}
+
+			if (!StringUtils.isBlank(start.getDate())) {
+				// all day events start at midnight of the calendar's time zone, which is not known here
+				SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd");
+				format.setTimeZone(TimeZone.getTimeZone("UTC"));
+
+				try {
+					return format.parse(start.getDate()).getTime();
+				} catch (ParseException e) {
+					return null;
+				}
+			}
+
+			return null;
+		}
+	}
+}
@@ -0,0 +1,155 @@
+/**
+ * Mule Google Calendars Cloud Connector
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.module.google.calendar.fanout;
+
+import com.google.api.client.util.DateTime;
+import com.google.api.services.calendar.Calendar;
+
+/**
+ * Filters of an events listing to be run against many calendars.
+ * Filters left unset are not applied
+ *
+ * @author mariano.gonzalez@mulesoft.com
+ *
+ */
+public class EventQuery {
+
+	private String iCalUID;
+	private Integer maxAttendees;
+	private Integer maxResults;
+	private String q;
+	private Boolean showDeleted;
+	private Boolean showHiddenInvitations;
+	private Boolean singleEvents;
+	private DateTime timeMin;
+	private DateTime timeMax;
+	private String timeZone;
+	private DateTime updatedMin;
+
+	/**
+	 * Sets these filters on the given request
+	 *
+	 * @param request a list request
+	 * @return the same request
+	 */
+	public Calendar.Events.List applyTo(Calendar.Events.List request) {
+		return request.setICalUID(this.iCalUID)
+					.setMaxAttendees(this.maxAttendees)
+					.setMaxResults(this.maxResults)
+					.setQ(this.q)
+					.setShowDeleted(this.showDeleted)
+					.setShowHiddenInvitations(this.showHiddenInvitations)
+					.setSingleEvents(this.singleEvents)
+					.setTimeMin(this.timeMin)
+					.setTimeMax(this.timeMax)
+					.setTimeZone(this.timeZone)
+					.setUpdatedMin(this.updatedMin);
+	}
+
+	public String getICalUID() {
+		return iCalUID;
+	}
+
+	public EventQuery setICalUID(String iCalUID) {
+		this.iCalUID = iCalUID;
+		return this;
+	}
+
+	public Integer getMaxAttendees() {
+		return maxAttendees;
+	}
+
+	public EventQuery setMaxAttendees(Integer maxAttendees) {
+		this.maxAttendees = maxAttendees;
+		return this;
+	}
+
+	public Integer getMaxResults() {
+		return maxResults;
+	}
+
+	public EventQuery setMaxResults(Integer maxResults) {
+		this.maxResults = maxResults;
+		return this;
+	}
+
+	public String getQ() {
+		return q;
+	}
+
+	public EventQuery setQ(String q) {
+		this.q = q;
+		return this;
+	}
+
+	public Boolean getShowDeleted() {
+		return showDeleted;
+	}
+
+	public EventQuery setShowDeleted(Boolean showDeleted) {
+		this.showDeleted = showDeleted;
+		return this;
+	}
+
+	public Boolean getShowHiddenInvitations() {
+		return showHiddenInvitations;
+	}
+
+	public EventQuery setShowHiddenInvitations(Boolean showHiddenInvitations) {
+		this.showHiddenInvitations = showHiddenInvitations;
+		return this;
+	}
+
+	public Boolean getSingleEvents() {
+		return singleEvents;
+	}
+
+	public EventQuery setSingleEvents(Boolean singleEvents) {
+		this.singleEvents = singleEvents;
+		return this;
+	}
+
+	public DateTime getTimeMin() {
+		return timeMin;
+	}
+
+	public EventQuery setTimeMin(DateTime timeMin) {
+		this.timeMin = timeMin;
+		return this;
+	}
+
+	public DateTime getTimeMax() {
+		return timeMax;
+	}
+
+	public EventQuery setTimeMax(DateTime timeMax) {
+		this.timeMax = timeMax;
+		return this;
+	}
+
+	public String getTimeZone() {
+		return timeZone;
+	}
+
+	public EventQuery setTimeZone(String timeZone) {
+		this.timeZone = timeZone;
+		return this;
+	}
+
+	public DateTime getUpdatedMin() {
+		return updatedMin;
+	}
+
+	public EventQuery setUpdatedMin(DateTime updatedMin) {
+		this.updatedMin = updatedMin;
+		return this;
+	}
+}
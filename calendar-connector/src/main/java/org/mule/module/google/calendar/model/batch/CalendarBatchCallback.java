@@ -12,6 +12,7 @@ package org.mule.module.google.calendar.model.batch;
 
 
 import org.mule.modules.google.api.client.batch.BatchCallback;
+import org.mule.modules.google.api.client.batch.BatchResponse;
 
 import com.google.api.services.calendar.model.Calendar;
 
@@ -22,6 +23,14 @@ import com.google.api.services.calendar.model.Calendar;
  */
 public class CalendarBatchCallback extends BatchCallback<org.mule.module.google.calendar.model.Calendar, Calendar> {
 	
+	public CalendarBatchCallback() {
+		super();
+	}
+	
+	public CalendarBatchCallback(BatchResponse<org.mule.module.google.calendar.model.Calendar> response, int index) {
+		super(response, index);
+	}
+	
 	@Override
 	protected org.mule.module.google.calendar.model.Calendar typeToWrapper(Calendar object) {
 		return new org.mule.module.google.calendar.model.Calendar(object);
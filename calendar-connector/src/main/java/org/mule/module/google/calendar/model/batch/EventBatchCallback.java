@@ -12,6 +12,7 @@ package org.mule.module.google.calendar.model.batch;
 
 import org.mule.module.google.calendar.model.Event;
 import org.mule.modules.google.api.client.batch.BatchCallback;
+import org.mule.modules.google.api.client.batch.BatchResponse;
 
 
 /**
@@ -21,6 +22,14 @@ import org.mule.modules.google.api.client.batch.BatchCallback;
  */
 public class EventBatchCallback extends BatchCallback<Event, com.google.api.services.calendar.model.Event> {
 	
+	public EventBatchCallback() {
+		super();
+	}
+	
+	public EventBatchCallback(BatchResponse<Event> response, int index) {
+		super(response, index);
+	}
+	
 	/**
 	 * @see org.mule.modules.google.api.client.batch.BatchCallback#typeToWrapper(java.lang.Object)
 	 */
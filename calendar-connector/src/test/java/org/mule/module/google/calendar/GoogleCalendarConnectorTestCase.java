@@ -10,14 +10,26 @@
 
 package org.mule.module.google.calendar;
 
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.mule.module.google.calendar.model.Event;
+import org.mule.modules.google.api.client.batch.BatchResponse;
 
+import com.google.api.client.googleapis.batch.BatchRequest;
+import com.google.api.client.googleapis.batch.json.JsonBatchCallback;
+import com.google.api.client.googleapis.json.GoogleJsonError;
+import com.google.api.client.googleapis.json.GoogleJsonError.ErrorInfo;
 import com.google.api.services.calendar.Calendar.CalendarList;
 import com.google.api.services.calendar.Calendar.Calendars;
 import com.google.api.services.calendar.Calendar.Calendars.Insert;
+import com.google.api.services.calendar.Calendar.Events;
+import com.google.api.services.calendar.Calendar.Events.Delete;
 import com.google.api.services.calendar.model.Calendar;
 import com.google.api.services.calendar.model.CalendarListEntry;
 
@@ -32,6 +44,7 @@ public class GoogleCalendarConnectorTestCase extends BaseGoogleConnectorTest<Goo
 	private com.google.api.services.calendar.Calendar client;
 	private Calendars calendars;
 	private CalendarList calendarList;
+	private Events events;
 	private Calendar testCalendar;
 	
 	@Override
@@ -45,11 +58,24 @@ public class GoogleCalendarConnectorTestCase extends BaseGoogleConnectorTest<Goo
 		client = Mockito.mock(com.google.api.services.calendar.Calendar.class);
 		calendars = Mockito.mock(Calendars.class);
 		calendarList = Mockito.mock(CalendarList.class);
+		events = Mockito.mock(Events.class);
 		
 		Mockito.when(client.calendars()).thenReturn(calendars);
 		Mockito.when(client.calendarList()).thenReturn(calendarList);
+		Mockito.when(client.events()).thenReturn(events);
 		
-		this.connector = new GoogleCalendarConnector();
+		this.connector = new GoogleCalendarConnector() {
+			
+			@Override
+			BatchRequest newBatch(com.google.api.services.calendar.Calendar client) {
+				return null;
+			}
+			
+			@Override
+			void submitBatch(BatchRequest batch) throws IOException {
+				// callbacks are invoked as the operations are queued
+			}
+		};
 		this.connector.setClientFactory(new GoogleCalendarClientFactory() {
 			
 			@Override
@@ -108,4 +134,49 @@ public class GoogleCalendarConnectorTestCase extends BaseGoogleConnectorTest<Goo
     	}
 	}
 	
+	@SuppressWarnings("unchecked")
+	public void testBatchDeleteEvent() throws Exception {
+		final String calendarId = "calendarId";
+		List<Event> toDelete = new ArrayList<Event>();
+		
+		for (int i = 0; i < 5; i++) {
+			final boolean failing = i == 3;
+			Event event = new Event();
+			event.setId("event" + i);
+			toDelete.add(event);
+			
+			Delete delete = Mockito.mock(Delete.class);
+			Mockito.when(events.delete(calendarId, event.getId())).thenReturn(delete);
+			Mockito.doAnswer(new Answer<Void>() {
+				
+				@Override
+				public Void answer(InvocationOnMock invocation) throws Throwable {
+					JsonBatchCallback<Void> callback = (JsonBatchCallback<Void>) invocation.getArguments()[1];
+					
+					if (failing) {
+						ErrorInfo info = new ErrorInfo();
+						info.setReason("notFound");
+						GoogleJsonError error = new GoogleJsonError();
+						error.setErrors(Arrays.asList(info));
+						callback.onFailure(error, null);
+					} else {
+						callback.onSuccess(null, null);
+					}
+					
+					return null;
+				}
+			}).when(delete).queue(Mockito.any(BatchRequest.class), Mockito.any(JsonBatchCallback.class));
+		}
+		
+		this.connector.setBatchSize(2);
+		this.connector.setBatchThreads(3);
+		
+		BatchResponse<String> response = this.connector.batchDeleteEvent(calendarId, toDelete);
+		
+		assertEquals("successful ids should keep the order of the items", Arrays.asList("event0", "event1", "event2", "event4"), response.getSuccessful());
+		assertEquals(1, response.getErrors().size());
+		assertEquals("notFound", response.getErrors().get(0).getReason());
+		assertEquals("errors should keep the index of the item across chunks", 3, response.getErrors().get(0).get(BatchResponse.ERROR_INDEX));
+	}
+	
 }
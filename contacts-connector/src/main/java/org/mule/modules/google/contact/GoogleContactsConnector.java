@@ -12,11 +12,13 @@ package org.mule.modules.google.contact;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.io.Serializable;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -24,11 +26,14 @@ import java.util.Map;
 import javax.inject.Inject;
 
 import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang.StringUtils;
+import org.mule.api.MuleContext;
 import org.mule.api.MuleMessage;
 import org.mule.api.NestedProcessor;
 import org.mule.api.annotations.Configurable;
 import org.mule.api.annotations.Connector;
 import org.mule.api.annotations.Processor;
+import org.mule.api.annotations.Source;
 import org.mule.api.annotations.oauth.OAuth2;
 import org.mule.api.annotations.oauth.OAuthAccessToken;
 import org.mule.api.annotations.oauth.OAuthAccessTokenIdentifier;
@@ -41,11 +46,17 @@ import org.mule.api.annotations.oauth.OAuthProtected;
 import org.mule.api.annotations.oauth.OAuthScope;
 import org.mule.api.annotations.param.Default;
 import org.mule.api.annotations.param.Optional;
+import org.mule.api.callback.SourceCallback;
+import org.mule.api.context.MuleContextAware;
+import org.mule.api.store.ObjectStore;
 import org.mule.modules.google.AbstractGoogleOAuthConnector;
 import org.mule.modules.google.AccessType;
 import org.mule.modules.google.ForcePrompt;
 import org.mule.modules.google.IdentifierPolicy;
 import org.mule.modules.google.api.domain.BatchResult;
+import org.mule.modules.google.api.pagination.PagingIterator;
+import org.mule.modules.google.api.sync.SyncPoller;
+import org.mule.modules.google.api.sync.UpdatedMinWatermark;
 import org.mule.modules.google.api.util.DateTimeUtils;
 import org.mule.modules.google.contact.wrappers.GoogleContactBaseEntity;
 import org.mule.modules.google.contact.wrappers.GoogleContactEntry;
@@ -55,6 +66,8 @@ import org.mule.modules.google.oauth.invalidation.OAuthTokenExpiredException;
 
 import com.google.api.client.auth.oauth2.BearerToken;
 import com.google.api.client.auth.oauth2.Credential;
+import com.google.common.base.Function;
+import com.google.common.collect.Lists;
 import com.google.gdata.client.Service.GDataRequest;
 import com.google.gdata.client.batch.BatchInterruptedException;
 import com.google.gdata.client.contacts.ContactQuery;
@@ -63,6 +76,7 @@ import com.google.gdata.client.contacts.ContactQuery.SortOrder;
 import com.google.gdata.client.contacts.ContactsService;
 import com.google.gdata.data.BaseEntry;
 import com.google.gdata.data.BaseFeed;
+import com.google.gdata.data.DateTime;
 import com.google.gdata.data.Link;
 import com.google.gdata.data.batch.BatchOperationType;
 import com.google.gdata.data.batch.BatchUtils;
@@ -95,7 +109,9 @@ import com.google.gdata.util.ServiceException;
 				}
 )
 
-public class GoogleContactsConnector extends AbstractGoogleOAuthConnector {
+public class GoogleContactsConnector extends AbstractGoogleOAuthConnector implements MuleContextAware {
+
+	public static final String CONTACTS_WATERMARK = "GoogleContacts_CONTACTS_WATERMARK";
 
 	private static final String CONTACT_FEED_URL = "https://www.google.com/m8/feeds/contacts/default/full";
 	private static final String GROUP_FEED_URL = "https://www.google.com/m8/feeds/groups/default/full";
@@ -105,6 +121,14 @@ public class GoogleContactsConnector extends AbstractGoogleOAuthConnector {
 	private static final String BATCH_REQUEST = "BATCH_REQUEST";
 	private static final int MAX_BATCH_OPERATIONS = 100;
 	
+	private static final Function<ContactEntry, GoogleContactEntry> WRAP_CONTACT = new Function<ContactEntry, GoogleContactEntry>() {
+		
+		@Override
+		public GoogleContactEntry apply(ContactEntry entry) {
+			return new GoogleContactEntry(entry);
+		}
+	};
+	
     /**
      * Application name registered on Google API console
      */
@@ -149,8 +173,18 @@ public class GoogleContactsConnector extends AbstractGoogleOAuthConnector {
     @Default("EMAIL")
     private IdentifierPolicy identifierPolicy = IdentifierPolicy.EMAIL;
     
+    /**
+     * Object store in which the sync-contacts source keeps its watermark.
+     * If not provided, Mule's default persistent object store is used
+     */
+    @Configurable
+    @Optional
+    private ObjectStore<Serializable> objectStore;
+    
 	@OAuthAccessToken
 	private String accessToken;
+	
+	private MuleContext muleContext;
     
     /**
      * The actual instance of the {@link com.google.gdata.client.contacts.ContactsService}
@@ -232,6 +266,195 @@ public class GoogleContactsConnector extends AbstractGoogleOAuthConnector {
 									@Optional @Default("NONE") OrderBy orderBy,
 									@Optional String groupId) throws IOException, ServiceException {
 		
+		ContactQuery query = this.newContactQuery(updatedMin, updatedMax, datetimeFormat, fullTextQuery, maxResults, sortOrder, showDeleted, orderBy, groupId);
+		query.setStartIndex(firstResult);
+		
+		List<GoogleContactEntry> entriesResult = new LinkedList<GoogleContactEntry>();
+		
+		for (ContactEntry entry : getService().getFeed(query, ContactFeed.class).getEntries()) {
+			entriesResult.add(new GoogleContactEntry(entry));
+		}
+		
+		return entriesResult;
+	}
+	
+	/**
+	 * Retrieves all the contacts matching the given criterias. Unlike get-contacts, this processor doesn't return
+	 * one feed but a lazy iterator over all the matching contacts. Pages of maxResults contacts are requested
+	 * by moving the start index as the iterator is consumed, and up to pagesInFlight pages are fetched in the background
+	 * ahead of the consumer. Entries are only wrapped as they're read, so memory usage is bounded by the size of the pages in flight.
+	 * If a criteria is not provided then it's not used in the filtering
+	 * 
+	 * {@sample.xml ../../../doc/GoogleContactsConnector.xml.sample google-contacts:get-all-contacts}
+	 * 
+	 * @param updatedMin Sets the minimum updated timestamp used for the query.  Only entries with
+	 * 					an updated timestamp equal to or later than the specified timestamp will be returned.
+	 * @param updatedMax Sets the maximum updated timestamp used for the query.  Only entries with
+     * 					 an updated timestamp earlier than the specified timestamp will be returned.
+	 * @param datetimeFormat the pattern to be used for parsing updatedMin and updatedMax
+	 * @param fullTextQuery Sets the full text query string that will be used for the query.
+	 * @param maxResults  the maximum number of contacts on each page
+	 * @param firstResult the start index of the first page.  This is a 1-based index.
+	 * @param sortOrder valid values are NONE, ASCENDING and DESCENDING
+	 * @param showDeleted wether to show deleted entries or not
+	 * @param orderBy the field to be used when sorting. Valid values are NONE, LAST_MODIFIED and EDITED 
+	 * @param groupId only show contacts from a given group
+	 * @param pagesInFlight the maximum number of pages to fetch ahead of the consumer. Use zero to disable prefetching
+	 * @return an iterator of {@link org.mule.modules.google.contact.wrappers.GoogleContactEntry}
+	 * @throws IOException if the first page could not be fetched
+	 */
+	@Processor
+	@OAuthProtected
+	@OAuthInvalidateAccessTokenOn(exception=OAuthTokenExpiredException.class)
+	public Iterator<GoogleContactEntry> getAllContacts(
+									@Optional String updatedMin,
+									@Optional String updatedMax,
+									@Optional @Default(DateTimeUtils.RFC3339) String datetimeFormat,
+									@Optional String fullTextQuery,
+									@Optional @Default("1000") int maxResults,
+									@Optional @Default("1") final int firstResult,
+									@Optional @Default("NONE") SortOrder sortOrder,
+									@Optional @Default("false") Boolean showDeleted,
+									@Optional @Default("NONE") OrderBy orderBy,
+									@Optional String groupId,
+									@Optional @Default("1") int pagesInFlight) throws IOException {
+		
+		final ContactQuery query = this.newContactQuery(updatedMin, updatedMax, datetimeFormat, fullTextQuery, maxResults, sortOrder, showDeleted, orderBy, groupId);
+		
+		return new PagingIterator<ContactFeed, GoogleContactEntry>(pagesInFlight) {
+			
+			@Override
+			protected ContactFeed fetchPage(ContactFeed previous) throws Exception {
+				if (previous == null) {
+					query.setStartIndex(firstResult);
+				} else if (previous.getNextLink() == null || previous.getEntries().isEmpty()) {
+					return null;
+				} else {
+					query.setStartIndex(previous.getStartIndex() + previous.getEntries().size());
+				}
+				
+				return getService().getFeed(query, ContactFeed.class);
+			}
+			
+			@Override
+			protected Collection<GoogleContactEntry> getItems(ContactFeed page) {
+				return Lists.transform(page.getEntries(), WRAP_CONTACT);
+			}
+		}.open();
+	}
+	
+	/**
+	 * Polls the contacts created, updated or deleted since the last poll and delivers them to the flow as lists of
+	 * {@link org.mule.modules.google.contact.wrappers.GoogleContactEntry}, one per page of maxResults contacts. Deleted
+	 * contacts are delivered with the deleted flag set.
+	 * 
+	 * Each poll queries the contacts feed with the latest update time already seen as updatedMin, ordered by last modification.
+	 * Every page is requested again from the moved watermark rather than by offset, so contacts edited during a poll are not skipped.
+	 * The watermark is kept in the object store under watermarkKey and it's moved forward after each page the flow processes.
+	 * Contacts already delivered are not delivered again unless they're updated.
+	 * 
+	 * {@sample.xml ../../../doc/GoogleContactsConnector.xml.sample google-contacts:sync-contacts}
+	 * 
+	 * @param callback the source callback
+	 * @param watermarkKey the key of the watermark in the object store. Defaults to GoogleContacts_CONTACTS_WATERMARK followed by the access token id
+	 * @param startFrom the update time to start from when there's no watermark yet. If not provided, only contacts updated after the source starts are delivered
+	 * @param datetimeFormat the pattern to be used for parsing startFrom
+	 * @param groupId only sync contacts from a given group
+	 * @param maxResults the maximum number of contacts to deliver on each message
+	 * @param minPollInterval the number of milliseconds to wait between polls while there are changes
+	 * @param maxPollInterval the maximum number of milliseconds to wait between polls when there are no changes
+	 * @param maxRedeliveries the maximum number of times a page the flow failed to process is delivered again before skipping it
+	 * @throws Exception if the watermark could not be read or the access token expired
+	 */
+	@Source
+	@OAuthProtected
+	public void syncContacts(
+			final SourceCallback callback,
+			@Optional String watermarkKey,
+			@Optional final String startFrom,
+			@Optional @Default(DateTimeUtils.RFC3339) final String datetimeFormat,
+			@Optional final String groupId,
+			@Optional @Default("500") final int maxResults,
+			@Optional @Default("5000") long minPollInterval,
+			@Optional @Default("300000") long maxPollInterval,
+			@Optional @Default("3") int maxRedeliveries) throws Exception {
+		
+		String key = StringUtils.isBlank(watermarkKey) ? CONTACTS_WATERMARK + "." + this.getAccessTokenId() : watermarkKey;
+		
+		new SyncPoller<UpdatedMinWatermark>("contacts", this.objectStore, this.muleContext, key) {
+			
+			@Override
+			protected UpdatedMinWatermark createCheckpoint() {
+				return new UpdatedMinWatermark(startFrom != null ? DateTimeUtils.parseDateTime(startFrom, datetimeFormat, null).getValue() : System.currentTimeMillis());
+			}
+			
+			@Override
+			protected boolean poll(UpdatedMinWatermark watermark) throws Exception {
+				ContactQuery query = new ContactQuery(contactFeedURL);
+				query.setOrderBy(OrderBy.LAST_MODIFIED);
+				query.setSortOrder(SortOrder.ASCENDING);
+				query.setShowDeleted(true);
+				query.setGroup(groupId);
+				query.setMaxResults(maxResults);
+				
+				// pages are read by re-querying from the watermark instead of moving an offset, so that contacts
+				// updated while draining move to the end of the listing instead of shifting others out of a page
+				boolean found = false;
+				int startIndex = 1;
+				
+				while (true) {
+					query.setUpdatedMin(new DateTime(watermark.getUpdatedMin()));
+					query.setStartIndex(startIndex);
+					ContactFeed page = getService().getFeed(query, ContactFeed.class);
+					
+					List<GoogleContactEntry> changed = new ArrayList<GoogleContactEntry>();
+					
+					for (ContactEntry entry : page.getEntries()) {
+						// entries without an update time can't be placed in the watermark, so they'd be delivered forever
+						if (entry.getUpdated() != null && watermark.isNew(entry.getId(), entry.getUpdated().getValue())) {
+							changed.add(new GoogleContactEntry(entry));
+						}
+					}
+					
+					boolean hasMore = page.getNextLink() != null && !page.getEntries().isEmpty();
+					
+					if (!changed.isEmpty()) {
+						this.deliver(callback, changed);
+						found = true;
+						
+						watermark = new UpdatedMinWatermark(watermark);
+						for (ContactEntry entry : page.getEntries()) {
+							if (entry.getUpdated() != null) {
+								watermark.advance(entry.getId(), entry.getUpdated().getValue());
+							}
+						}
+						
+						this.save(watermark);
+						startIndex = 1;
+					} else if (hasMore) {
+						// a full page of contacts already seen, all of them updated at the watermark's millisecond
+						startIndex += page.getEntries().size();
+					}
+					
+					if (!hasMore) {
+						return found;
+					}
+				}
+			}
+		}.run(minPollInterval, maxPollInterval, maxRedeliveries);
+	}
+	
+	private ContactQuery newContactQuery(
+			String updatedMin,
+			String updatedMax,
+			String datetimeFormat,
+			String fullTextQuery,
+			int maxResults,
+			SortOrder sortOrder,
+			Boolean showDeleted,
+			OrderBy orderBy,
+			String groupId) {
+		
 		ContactQuery query = new ContactQuery(this.contactFeedURL);
 		
 		if (updatedMax != null) {
@@ -244,20 +467,13 @@ public class GoogleContactsConnector extends AbstractGoogleOAuthConnector {
 		
 		query.setFullTextQuery(fullTextQuery);
 		query.setMaxResults(maxResults);
-		query.setStartIndex(firstResult);
 		
 		query.setShowDeleted(showDeleted);
 		query.setOrderBy(orderBy);
 		query.setGroup(groupId);
 		query.setSortOrder(sortOrder);
 		
-		List<GoogleContactEntry> entriesResult = new LinkedList<GoogleContactEntry>();
-		
-		for (ContactEntry entry : getService().getFeed(query, ContactFeed.class).getEntries()) {
-			entriesResult.add(new GoogleContactEntry(entry));
-		}
-		
-		return entriesResult;
+		return query;
 	}
 	
 	/**
@@ -867,6 +1083,19 @@ public class GoogleContactsConnector extends AbstractGoogleOAuthConnector {
 		}
 	}
 
+	public ObjectStore<Serializable> getObjectStore() {
+		return objectStore;
+	}
+
+	public void setObjectStore(ObjectStore<Serializable> objectStore) {
+		this.objectStore = objectStore;
+	}
+
+	@Override
+	public void setMuleContext(MuleContext muleContext) {
+		this.muleContext = muleContext;
+	}
+
 	public void setService(ContactsService contactsService) {
 		this.contactsService = contactsService;
 	}
@@ -101,6 +101,11 @@ public class GoogleContactEntry extends GoogleContactBaseEntity<ContactEntry> {
 		return wrapped.getContactPhotoLink() != null ? wrapped.getContactPhotoLink().getHref() : null;
 	}
 	
+	// Only getter. Deleted entries are only returned when showDeleted is set
+	public Boolean getDeleted() {
+		return wrapped.hasDeleted();
+	}
+	
 	public void setEmailAddresses(List<Email> emails) {
 		wrapped.setEmailAddresses(emails);
 	}
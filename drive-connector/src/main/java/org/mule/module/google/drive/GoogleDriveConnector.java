@@ -10,20 +10,31 @@
 
 package org.mule.module.google.drive;
 
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
 import java.util.List;
 
 import javax.inject.Inject;
 
 import org.apache.commons.collections.CollectionUtils;
+import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang.StringUtils;
+import org.mule.api.MuleContext;
 import org.mule.api.MuleMessage;
 import org.mule.api.annotations.Configurable;
 import org.mule.api.annotations.Connector;
 import org.mule.api.annotations.Processor;
+import org.mule.api.annotations.Source;
 import org.mule.api.annotations.lifecycle.Start;
+import org.mule.api.annotations.lifecycle.Stop;
 import org.mule.api.annotations.oauth.OAuth2;
 import org.mule.api.annotations.oauth.OAuthAccessToken;
 import org.mule.api.annotations.oauth.OAuthAccessTokenIdentifier;
@@ -36,6 +47,10 @@ import org.mule.api.annotations.oauth.OAuthProtected;
 import org.mule.api.annotations.oauth.OAuthScope;
 import org.mule.api.annotations.param.Default;
 import org.mule.api.annotations.param.Optional;
+import org.mule.api.callback.SourceCallback;
+import org.mule.api.context.MuleContextAware;
+import org.mule.api.store.ObjectStore;
+import org.mule.module.google.drive.download.RangedDownload;
 import org.mule.module.google.drive.model.About;
 import org.mule.module.google.drive.model.App;
 import org.mule.module.google.drive.model.Change;
@@ -44,16 +59,31 @@ import org.mule.module.google.drive.model.CommentReply;
 import org.mule.module.google.drive.model.File;
 import org.mule.module.google.drive.model.Permission;
 import org.mule.module.google.drive.model.Revision;
+import org.mule.module.google.drive.model.batch.FileBatchCallback;
+import org.mule.module.google.drive.model.batch.PermissionBatchCallback;
 import org.mule.module.google.drive.model.stream.StreamContent;
+import org.mule.module.google.drive.sync.ChecksumIndex;
+import org.mule.module.google.drive.sync.ChecksumSpool;
+import org.mule.module.google.drive.tree.FolderTreeWalker;
+import org.mule.module.google.drive.upload.ResumableUpload;
 import org.mule.modules.google.AbstractGoogleOAuthConnector;
 import org.mule.modules.google.AccessType;
 import org.mule.modules.google.ForcePrompt;
 import org.mule.modules.google.IdentifierPolicy;
+import org.mule.modules.google.api.client.batch.BatchResponse;
+import org.mule.modules.google.api.client.batch.ChunkedBatch;
+import org.mule.modules.google.api.client.batch.IdBatchCallback;
+import org.mule.modules.google.api.client.http.HttpTransportProvider;
+import org.mule.modules.google.api.pagination.PageTokenIterator;
 import org.mule.modules.google.api.pagination.PaginationUtils;
+import org.mule.modules.google.api.sync.SyncPoller;
 import org.mule.modules.google.oauth.invalidation.OAuthTokenExpiredException;
 
+import com.google.api.client.googleapis.batch.BatchRequest;
 import com.google.api.client.http.AbstractInputStreamContent;
+import com.google.api.client.http.FileContent;
 import com.google.api.client.http.GenericUrl;
+import com.google.api.client.http.HttpResponseException;
 import com.google.api.services.drive.Drive;
 import com.google.api.services.drive.Drive.Files.Copy;
 import com.google.api.services.drive.Drive.Files.Insert;
@@ -87,9 +117,13 @@ import com.google.api.services.drive.model.FileList;
 											" Use force to request authorization every time or auto to only do it the first time. Default is auto", optional=true)
 		}
 )
-public class GoogleDriveConnector extends AbstractGoogleOAuthConnector {
+public class GoogleDriveConnector extends AbstractGoogleOAuthConnector implements MuleContextAware {
 	
 	public static final String NEXT_PAGE_TOKEN = "GoogleDrive_NEXT_PAGE_TOKEN";
+	public static final String LAST_CHANGE_ID = "GoogleDrive_LAST_CHANGE_ID";
+	public static final String UPLOAD_SKIPPED = "GoogleDrive_UPLOAD_SKIPPED";
+	
+	private static final int NOT_FOUND = 404;
 	
 	/**
      * The OAuth2 consumer key 
@@ -149,9 +183,54 @@ public class GoogleDriveConnector extends AbstractGoogleOAuthConnector {
     @Optional
     private GoogleDriveClientFactory clientFactory;
     
+    /**
+     * Provider of the pooled http transport used by the clients. Set it to a bean to tune
+     * pool limits and timeouts. If not provided, the provider shared by all the connectors is used
+     */
+    @Configurable
+    @Optional
+    private HttpTransportProvider transportProvider;
+    
+    /**
+     * The maximum number of operations to be sent on each batch request.
+     * Bigger batches are split into several requests. It cannot be higher than 100
+     */
+    @Configurable
+    @Optional
+    @Default("100")
+    private int batchSize = ChunkedBatch.MAX_BATCH_SIZE;
+    
+    /**
+     * The maximum number of batch requests to be submitted concurrently
+     */
+    @Configurable
+    @Optional
+    @Default("4")
+    private int batchThreads = 4;
+    
+    /**
+     * Object store in which the listen-changes source keeps the id of the last processed change.
+     * If not provided, Mule's default persistent object store is used
+     */
+    @Configurable
+    @Optional
+    private ObjectStore<Serializable> objectStore;
+    
+    /**
+     * Maximum number of file checksums remembered by the sync-upload processor
+     */
+    @Configurable
+    @Optional
+    @Default("10000")
+    private int checksumIndexMaxSize = 10000;
+    
     @OAuthAccessToken
     private String accessToken;
     
+    private ChecksumIndex checksumIndex;
+    
+    private MuleContext muleContext;
+    
     /**
 	 * The google api client
 	 */
@@ -164,8 +243,24 @@ public class GoogleDriveConnector extends AbstractGoogleOAuthConnector {
 	 */
 	@Start
 	public void init() {
+		if (this.transportProvider == null) {
+			this.transportProvider = HttpTransportProvider.getDefault();
+		}
+		
+		this.transportProvider.retain();
+		
 		if (this.clientFactory == null) {
-			this.clientFactory = new DefaultGoogleDriveClientFactory();
+			this.clientFactory = new DefaultGoogleDriveClientFactory(this.transportProvider);
+		}
+	}
+	
+	/**
+	 * Releases the transport provider, so that its connections are closed once no connector uses it
+	 */
+	@Stop
+	public void stop() {
+		if (this.transportProvider != null) {
+			this.transportProvider.release();
 		}
 	}
 	
@@ -186,14 +281,15 @@ public class GoogleDriveConnector extends AbstractGoogleOAuthConnector {
 	 * 
 	 * @param fileId the id of the file you want
 	 * @param updateViewedDate Whether to update the view date after successfully retrieving the file
+	 * @param fields the file fields to retrieve, for example id and title. If not provided, the whole file is returned
 	 * @return an instance of {@link org.mule.module.google.drive.model.File}
 	 * @throws IOException in case of connection issues
 	 */
 	@Processor
     @OAuthProtected
 	@OAuthInvalidateAccessTokenOn(exception=OAuthTokenExpiredException.class)
-	public File getFileMetadata(String fileId, @Optional @Default("false") boolean updateViewedDate) throws IOException {
-		return new File(this.client.files().get(fileId).setUpdateViewedDate(updateViewedDate).execute());
+	public File getFileMetadata(String fileId, @Optional @Default("false") boolean updateViewedDate, @Optional List<String> fields) throws IOException {
+		return new File(this.client.files().get(fileId).setUpdateViewedDate(updateViewedDate).setFields(this.toFields(fields)).execute());
 	}
 	
 	/**
@@ -202,6 +298,11 @@ public class GoogleDriveConnector extends AbstractGoogleOAuthConnector {
 	 * {@sample.xml ../../../doc/GoogleDriveConnector.xml.sample google-drive:download-file}
 	 * 
 	 * @param file an instance of {@link org.mule.module.google.drive.model.File}. The downloadUrl attribute cannot be blank
+	 * @param parallelism the number of byte ranges to download at the same time. When lower than 2 or when the file's fileSize is unknown,
+	 * 			the content is downloaded on a single request
+	 * @param rangeSize the size in bytes of each range when downloading in parallel
+	 * @param targetPath if provided, the content is written into a file at this path and the returned stream reads that file.
+	 * 			Otherwise, ranges are reassembled in order into the returned stream while the following ones are downloaded
 	 * @return an instance of {@link java.io.InputStream}
 	 * @throws IOException in case of connection issues 
 	 * @throws IllegalArgumentException if file is null or its downloadUrl property is blank
@@ -209,13 +310,14 @@ public class GoogleDriveConnector extends AbstractGoogleOAuthConnector {
 	@Processor
     @OAuthProtected
 	@OAuthInvalidateAccessTokenOn(exception=OAuthTokenExpiredException.class)
-	public InputStream downloadFile(@Optional @Default("#[payload]") File file) throws IOException {
+	public InputStream downloadFile(@Optional @Default("#[payload]") File file,
+									@Optional @Default("1") int parallelism, @Optional @Default("8388608") long rangeSize, @Optional String targetPath) throws IOException {
 	    
 		if (file == null) {
 	    	throw new IllegalArgumentException("file cannot be null");
 	    }
 		
-		return this.download(file.getDownloadUrl());
+		return this.download(file.getDownloadUrl(), file.getFileSize(), parallelism, rangeSize, targetPath);
 	}
 	
 	/**
@@ -233,6 +335,10 @@ public class GoogleDriveConnector extends AbstractGoogleOAuthConnector {
 	 * @param timedTextLanguage The language of the timed text.
 	 * @param timedTextTrackName The timed text track name.
 	 * @param indexContent Whether to use the content as indexable text
+	 * @param resumable Whether to use the resumable upload protocol. If true, the content is sent in chunks of chunkSize bytes
+	 * 			and the upload resumes from the last byte received by google if a chunk fails because of a connection issue or server error.
+	 * 			Unless contentStream is a file stream, the content is spooled into a temporary file first so that chunks can be resent
+	 * @param chunkSize The size in bytes of the chunks sent on a resumable upload. It's rounded up to a multiple of 256KB
 	 * @return an instance of {@link org.mule.module.google.drive.model.File} representing the newly created file
 	 * @throws IOException in case of connection issues
 	 */
@@ -249,7 +355,29 @@ public class GoogleDriveConnector extends AbstractGoogleOAuthConnector {
 			@Optional @Default("false") boolean pinned,
 			@Optional String timedTextLanguage,
 			@Optional String timedTextTrackName,
-			@Optional @Default("false") boolean indexContent) throws IOException {
+			@Optional @Default("false") boolean indexContent,
+			@Optional @Default("false") boolean resumable,
+			@Optional @Default("10485760") int chunkSize) throws IOException {
+		
+		if (resumable) {
+			GenericUrl url = new GenericUrl(ResumableUpload.UPLOAD_URL);
+			url.put("ocr", ocr);
+			url.put("ocrLanguage", ocrLanguage);
+			url.put("convert", convert);
+			url.put("useContentAsIndexableText", indexContent);
+			url.put("pinned", pinned);
+			
+			if (timedTextLanguage != null) {
+				url.put("timedTextLanguage", timedTextLanguage);
+			}
+			
+			if (timedTextTrackName != null) {
+				url.put("timedTextTrackName", timedTextTrackName);
+			}
+			
+			ResumableUpload upload = new ResumableUpload(this.client.getRequestFactory(), this.client.getJsonFactory(), chunkSize, ResumableUpload.DEFAULT_MAX_RETRIES);
+			return new File(upload.upload(url, file.wrapped(), mimeType, contentStream));
+		}
 		
 		AbstractInputStreamContent mediaContent = new StreamContent(mimeType, contentStream);
 	    Insert command = this.client.files().insert(file.wrapped(), mediaContent)
@@ -270,6 +398,130 @@ public class GoogleDriveConnector extends AbstractGoogleOAuthConnector {
 		return new File(command.execute());
 	}
 	
+	/**
+	 * Uploads a file only if its content differs from the one already in Drive. The content is spooled into a temporary
+	 * file while its md5 checksum is computed, and it's compared with the md5Checksum of the existing file, if any.
+	 * 
+	 * The existing file is the one with the given file's id or, if it has no id, the one with its title in its first parent folder
+	 * (or the root folder if it has no parents). If there's no existing file, a new one is inserted. If checksums differ, the existing file's
+	 * content is updated. Otherwise nothing is uploaded. Trashed files are never updated, a new file is inserted instead.
+	 * 
+	 * Checksums are remembered, keyed by id and by path, so that syncing the same files again doesn't require to look them up.
+	 * Before updating a file found this way, it's checked to still exist outside the trash.
+	 * The message property &quot;GoogleDrive_UPLOAD_SKIPPED&quot; tells whether the upload was skipped.
+	 * 
+	 * {@sample.xml ../../../doc/GoogleDriveConnector.xml.sample google-drive:sync-upload}
+	 * 
+	 * @param message the current mule message
+	 * @param file an instance of {@link org.mule.module.google.drive.model.File} holding the file's metadata
+	 * @param mimeType the mimeType for the file being uploaded
+	 * @param contentStream an input stream holding the file's content
+	 * @param newRevision Whether updating the content of an existing file should create a new revision
+	 * @return an instance of {@link org.mule.module.google.drive.model.File} representing the uploaded file. If the upload
+	 * 			was skipped, it's the given file with the existing file's id and md5Checksum
+	 * @throws IOException in case of connection issues
+	 * @throws IllegalArgumentException if file is null or has neither an id nor a title
+	 */
+	@Processor
+    @OAuthProtected
+	@OAuthInvalidateAccessTokenOn(exception=OAuthTokenExpiredException.class)
+	@Inject
+	public File syncUpload(
+			MuleMessage message,
+			@Optional @Default("#[payload]") File file,
+			String mimeType,
+			InputStream contentStream,
+			@Optional @Default("true") boolean newRevision) throws IOException {
+		
+		if (file == null || (StringUtils.isBlank(file.getId()) && StringUtils.isBlank(file.getTitle()))) {
+			throw new IllegalArgumentException("file needs either an id or a title");
+		}
+		
+		ChecksumIndex index = this.getChecksumIndex();
+		ChecksumSpool spool = ChecksumSpool.of(contentStream);
+		
+		try {
+			String pathKey = null;
+			ChecksumIndex.Entry existing;
+			boolean verified = false;
+			
+			if (!StringUtils.isBlank(file.getId())) {
+				existing = index.get(ChecksumIndex.idKey(file.getId()));
+				
+				if (existing == null) {
+					existing = this.getUntrashedChecksum(file.getId());
+					verified = true;
+				}
+			} else {
+				String parentId = CollectionUtils.isEmpty(file.wrapped().getParents()) ? "root" : file.wrapped().getParents().get(0).getId();
+				pathKey = ChecksumIndex.pathKey(parentId, file.getTitle());
+				existing = index.get(pathKey);
+				
+				if (existing == null) {
+					List<com.google.api.services.drive.model.File> matches = this.client.files().list()
+								.setQ(String.format("title = '%s' and '%s' in parents and trashed = false", this.escapeQueryValue(file.getTitle()), parentId))
+								.setMaxResults(1)
+								.setFields("items(id,md5Checksum)")
+								.execute()
+								.getItems();
+					
+					if (!CollectionUtils.isEmpty(matches)) {
+						existing = new ChecksumIndex.Entry(matches.get(0).getId(), matches.get(0).getMd5Checksum());
+					}
+					
+					verified = true;
+				}
+			}
+			
+			if (existing != null && spool.getMd5Checksum().equals(existing.getMd5Checksum())) {
+				this.indexChecksum(index, pathKey, existing);
+				message.setInvocationProperty(UPLOAD_SKIPPED, true);
+				
+				file.setId(existing.getFileId());
+				file.setMd5Checksum(existing.getMd5Checksum());
+				return file;
+			}
+			
+			if (existing != null && !verified) {
+				// the cached entry might point to a file which was trashed or deleted since
+				String fileId = existing.getFileId();
+				existing = this.getUntrashedChecksum(fileId);
+				
+				if (existing == null) {
+					index.evict(fileId);
+				}
+			}
+			
+			FileContent content = new FileContent(mimeType, spool.getFile());
+			com.google.api.services.drive.model.File uploaded = null;
+			
+			if (existing != null) {
+				try {
+					uploaded = this.client.files().update(existing.getFileId(), file.wrapped(), content).setNewRevision(newRevision).execute();
+				} catch (HttpResponseException e) {
+					if (e.getStatusCode() != NOT_FOUND) {
+						throw e;
+					}
+					
+					index.evict(existing.getFileId());
+				}
+			}
+			
+			if (uploaded == null) {
+				// the file to update is gone, so it gets a new id
+				file.wrapped().setId(null);
+				uploaded = this.client.files().insert(file.wrapped(), content).execute();
+			}
+			
+			this.indexChecksum(index, pathKey, new ChecksumIndex.Entry(uploaded.getId(), uploaded.getMd5Checksum()));
+			message.setInvocationProperty(UPLOAD_SKIPPED, false);
+			
+			return new File(uploaded);
+		} finally {
+			spool.delete();
+		}
+	}
+	
 	/**
 	 * Makes a partial update to the File's metadata. You provide an instance of
 	 * {@link org.mule.module.google.drive.model.File} with a valid id and new
@@ -414,6 +666,7 @@ public class GoogleDriveConnector extends AbstractGoogleOAuthConnector {
 	@OAuthInvalidateAccessTokenOn(exception=OAuthTokenExpiredException.class)
 	public void deleteFile(String fileId) throws IOException {
 		this.client.files().delete(fileId).execute();
+		this.getChecksumIndex().evict(fileId);
 	}
 	
 	/**
@@ -428,6 +681,7 @@ public class GoogleDriveConnector extends AbstractGoogleOAuthConnector {
 	 * @param maxResults The maximum number of replies to include in the response, used for paging. 
 	 * @param query Query string for searching files.
 	 * @param pageToken The continuation token, used to page through large result sets
+	 * @param fields the fields of each file to retrieve, for example id and title. If not provided, whole files are returned
 	 * @return a list with instances of {@link org.mule.module.google.drive.model.File}
 	 * @throws IOException in case of connection issues
 	 */
@@ -439,18 +693,71 @@ public class GoogleDriveConnector extends AbstractGoogleOAuthConnector {
 			MuleMessage message,
 			@Optional @Default("100") int maxResults,
 			@Optional String query,
-    		@Optional @Default("#[flowVars['GoogleDrive_NEXT_PAGE_TOKEN']]") String pageToken) throws IOException {
+    		@Optional @Default("#[flowVars['GoogleDrive_NEXT_PAGE_TOKEN']]") String pageToken,
+    		@Optional List<String> fields) throws IOException {
 		
 		FileList response = this.client.files().list()
 							.setMaxResults(maxResults)
 							.setPageToken(pageToken)
 							.setQ(query)
+							.setFields(this.toItemFields(fields, "nextPageToken"))
 							.execute();
 		
 		PaginationUtils.savePageToken(NEXT_PAGE_TOKEN, response.getNextPageToken(), message);
 		return File.valueOf(response.getItems(), File.class);
 	}
 	
+	/**
+	 * Lists all the user's files matching the given query. Unlike list-files, this processor doesn't return
+	 * just one page but a lazy iterator over the whole listing. Pages of maxResults files are only requested
+	 * as the iterator is consumed, and up to pagesInFlight pages are fetched in the background ahead of the consumer
+	 * so that the next page is usually available by the time it's needed. Use it with a foreach scope to process
+	 * the listing without looping over the page token
+	 * 
+	 * {@sample.xml ../../../doc/GoogleDriveConnector.xml.sample google-drive:list-all-files}
+	 * 
+	 * @param maxResults The maximum number of files to include in each page
+	 * @param query Query string for searching files.
+	 * @param pagesInFlight The maximum number of pages to fetch ahead of the consumer. Use zero to disable prefetching
+	 * @param fields the fields of each file to retrieve, for example id and title. If not provided, whole files are returned
+	 * @return an iterator of {@link org.mule.module.google.drive.model.File}
+	 * @throws IOException in case of connection issues
+	 */
+	@Processor
+    @OAuthProtected
+	@OAuthInvalidateAccessTokenOn(exception=OAuthTokenExpiredException.class)
+	public Iterator<File> listAllFiles(
+			@Optional @Default("100") final int maxResults,
+			@Optional final String query,
+			@Optional @Default("1") int pagesInFlight,
+			@Optional List<String> fields) throws IOException {
+		
+		final String itemFields = this.toItemFields(fields, "nextPageToken");
+		
+		return new PageTokenIterator<FileList, File>(pagesInFlight, null) {
+			
+			@Override
+			protected FileList fetch(String pageToken) throws Exception {
+				return client.files().list()
+						.setMaxResults(maxResults)
+						.setPageToken(pageToken)
+						.setQ(query)
+						.setFields(itemFields)
+						.execute();
+			}
+			
+			@Override
+			protected String getNextPageToken(FileList page) {
+				return page.getNextPageToken();
+			}
+			
+			@Override
+			protected Collection<File> getItems(FileList page) {
+				return File.valueOf(page.getItems(), File.class);
+			}
+		}.open();
+	}
+	
 	/**
 	 * Creates a copy of the specified file.
 	 * 
@@ -529,7 +836,10 @@ public class GoogleDriveConnector extends AbstractGoogleOAuthConnector {
     @OAuthProtected
 	@OAuthInvalidateAccessTokenOn(exception=OAuthTokenExpiredException.class)
 	public File trashFile(String fileId) throws IOException {
-		return new File(this.client.files().trash(fileId).execute());
+		File file = new File(this.client.files().trash(fileId).execute());
+		this.getChecksumIndex().evict(fileId);
+		
+		return file;
 	}
 	
 	/**
@@ -574,6 +884,7 @@ public class GoogleDriveConnector extends AbstractGoogleOAuthConnector {
 	 * @param maxResults Maximum number of changes to return.
 	 * @param pageToken The continuation token, used to page through large result sets. 
 	 * @param startChangeId Change ID to start listing changes from.
+	 * @param fields the fields of each change to retrieve, for example id and title. If not provided, whole changes are returned
 	 * @return a list with instance of {@link org.mule.module.google.drive.model.Change}
 	 * @throws IOException in case of connection issues
 	 */
@@ -587,7 +898,8 @@ public class GoogleDriveConnector extends AbstractGoogleOAuthConnector {
 			@Optional @Default("true") boolean includeSubscribed,
 			@Optional @Default("100") int maxResults,
 			@Optional @Default("#[flowVars['GoogleDrive_NEXT_PAGE_TOKEN']]") String pageToken,
-			@Optional Long startChangeId
+			@Optional Long startChangeId,
+			@Optional List<String> fields
 			) throws IOException {
 		
 		ChangeList response = this.client.changes().list()
@@ -596,6 +908,7 @@ public class GoogleDriveConnector extends AbstractGoogleOAuthConnector {
 									.setMaxResults(maxResults)
 									.setPageToken(pageToken)
 									.setStartChangeId(startChangeId)
+									.setFields(this.toItemFields(fields, "nextPageToken", "largestChangeId"))
 									.execute();
 		
 		PaginationUtils.savePageToken(NEXT_PAGE_TOKEN, response.getNextPageToken(), message);
@@ -603,20 +916,162 @@ public class GoogleDriveConnector extends AbstractGoogleOAuthConnector {
 		return Change.valueOf(response.getItems(), Change.class);
 	}
 	
+	/**
+	 * Same as list-changes but instead of returning one page it returns a lazy iterator over all the changes.
+	 * Pages of maxResults changes are only requested as the iterator is consumed, and up to pagesInFlight pages are fetched
+	 * in the background ahead of the consumer
+	 * 
+	 * {@sample.xml ../../../doc/GoogleDriveConnector.xml.sample google-drive:list-all-changes}
+	 * 
+	 * @param includeDeleted Whether to include deleted items
+	 * @param includeSubscribed Whether to include shared files and public files the user has opened. When set to false, the list will include owned files plus any shared or public files the user has explictly added to a folder in Drive
+	 * @param maxResults Maximum number of changes to include in each page
+	 * @param startChangeId Change ID to start listing changes from.
+	 * @param pagesInFlight The maximum number of pages to fetch ahead of the consumer. Use zero to disable prefetching
+	 * @param fields the fields of each change to retrieve, for example id and title. If not provided, whole changes are returned
+	 * @return an iterator of {@link org.mule.module.google.drive.model.Change}
+	 * @throws IOException in case of connection issues
+	 */
+	@Processor
+    @OAuthProtected
+	@OAuthInvalidateAccessTokenOn(exception=OAuthTokenExpiredException.class)
+	public Iterator<Change> listAllChanges(
+			@Optional @Default("true") final boolean includeDeleted,
+			@Optional @Default("true") final boolean includeSubscribed,
+			@Optional @Default("100") final int maxResults,
+			@Optional final Long startChangeId,
+			@Optional @Default("1") int pagesInFlight,
+			@Optional List<String> fields) throws IOException {
+		
+		final String itemFields = this.toItemFields(fields, "nextPageToken", "largestChangeId");
+		
+		return new PageTokenIterator<ChangeList, Change>(pagesInFlight, null) {
+			
+			@Override
+			protected ChangeList fetch(String pageToken) throws Exception {
+				return client.changes().list()
+						.setIncludeDeleted(includeDeleted)
+						.setIncludeSubscribed(includeSubscribed)
+						.setMaxResults(maxResults)
+						.setPageToken(pageToken)
+						.setStartChangeId(startChangeId)
+						.setFields(itemFields)
+						.execute();
+			}
+			
+			@Override
+			protected String getNextPageToken(ChangeList page) {
+				return page.getNextPageToken();
+			}
+			
+			@Override
+			protected Collection<Change> getItems(ChangeList page) {
+				return Change.valueOf(page.getItems(), Change.class);
+			}
+		}.open();
+	}
+	
 	/**
 	 * Returns a particular change by its id
 	 * 
 	 * {@sample.xml ../../../doc/GoogleDriveConnector.xml.sample google-drive:get-change}
 	 * 
 	 * @param changeId the id of the change you want
+	 * @param fields the change fields to retrieve, for example id and title. If not provided, the whole change is returned
 	 * @return an instance of {@link org.mule.module.google.drive.model.Change}
 	 * @throws IOException in case of connection issues
 	 */
 	@Processor
     @OAuthProtected
 	@OAuthInvalidateAccessTokenOn(exception=OAuthTokenExpiredException.class)
-	public Change getChange(String changeId) throws IOException {
-		return new Change(this.client.changes().get(changeId).execute());
+	public Change getChange(String changeId, @Optional List<String> fields) throws IOException {
+		return new Change(this.client.changes().get(changeId).setFields(this.toFields(fields)).execute());
+	}
+	
+	/**
+	 * Polls the user's change feed and delivers the new changes to the flow, one list of
+	 * {@link org.mule.module.google.drive.model.Change} per page of maxResults changes.
+	 * 
+	 * The id of the last processed change is kept in the object store under checkpointKey, and it's moved forward after each
+	 * page the flow processes. Pages are delivered one at a time, so a slow flow slows down the polling instead of piling up changes.
+	 * 
+	 * {@sample.xml ../../../doc/GoogleDriveConnector.xml.sample google-drive:listen-changes}
+	 * 
+	 * @param callback the source callback
+	 * @param checkpointKey the key of the last processed change id in the object store. Defaults to GoogleDrive_LAST_CHANGE_ID followed by the access token id
+	 * @param startChangeId the change id to start from when there's no checkpoint yet. If not provided, only changes made after the source starts are delivered
+	 * @param includeDeleted Whether to include deleted items
+	 * @param includeSubscribed Whether to include shared files and public files the user has opened
+	 * @param maxResults Maximum number of changes to deliver on each message
+	 * @param minPollInterval the number of milliseconds to wait between polls while there are changes
+	 * @param maxPollInterval the maximum number of milliseconds to wait between polls when the feed is idle
+	 * @param maxRedeliveries the maximum number of times a page the flow failed to process is delivered again before skipping it
+	 * @throws Exception if the checkpoint could not be read or the access token expired
+	 */
+	@Source
+	@OAuthProtected
+	public void listenChanges(
+			final SourceCallback callback,
+			@Optional String checkpointKey,
+			@Optional final Long startChangeId,
+			@Optional @Default("true") final boolean includeDeleted,
+			@Optional @Default("true") final boolean includeSubscribed,
+			@Optional @Default("100") final int maxResults,
+			@Optional @Default("5000") long minPollInterval,
+			@Optional @Default("300000") long maxPollInterval,
+			@Optional @Default("3") int maxRedeliveries) throws Exception {
+		
+		String key = StringUtils.isBlank(checkpointKey) ? LAST_CHANGE_ID + "." + this.getAccessTokenId() : checkpointKey;
+		
+		new SyncPoller<Long>("drive changes", this.objectStore, this.muleContext, key) {
+			
+			@Override
+			protected Long createCheckpoint() throws Exception {
+				return startChangeId != null ? startChangeId - 1 : client.about().execute().getLargestChangeId();
+			}
+			
+			@Override
+			protected boolean poll(Long lastChangeId) throws Exception {
+				boolean found = false;
+				String pageToken = null;
+				
+				do {
+					ChangeList page = client.changes().list()
+											.setIncludeDeleted(includeDeleted)
+											.setIncludeSubscribed(includeSubscribed)
+											.setMaxResults(maxResults)
+											.setStartChangeId(lastChangeId + 1)
+											.setPageToken(pageToken)
+											.execute();
+					
+					long processed = lastChangeId;
+					List<Change> changes = Change.valueOf(page.getItems(), Change.class);
+					
+					if (!changes.isEmpty()) {
+						this.deliver(callback, changes);
+						found = true;
+						
+						for (Change change : changes) {
+							processed = Math.max(processed, change.getId());
+						}
+					}
+					
+					pageToken = page.getNextPageToken();
+					
+					// once the feed is drained, skip ahead to the latest change, which may not be visible with the current filters
+					if (StringUtils.isBlank(pageToken) && page.getLargestChangeId() != null) {
+						processed = Math.max(processed, page.getLargestChangeId());
+					}
+					
+					if (processed > lastChangeId) {
+						lastChangeId = processed;
+						this.save(lastChangeId);
+					}
+				} while (!StringUtils.isBlank(pageToken));
+				
+				return found;
+			}
+		}.run(minPollInterval, maxPollInterval, maxRedeliveries);
 	}
 	
 	/**
@@ -657,6 +1112,9 @@ public class GoogleDriveConnector extends AbstractGoogleOAuthConnector {
 	
 	/**
 	 * Returns a list with the ids of the files that are under the given folder
+	 * 
+	 * For supporting google's paging mechanism, the next page token is stored on the message property
+     * &quot;GoogleDrive_NEXT_PAGE_TOKEN&quot;. If there isn't a next page, then the property is removed
 	 * 
 	 * {@sample.xml ../../../doc/GoogleDriveConnector.xml.sample google-drive:list-files-in-folder}
 	 * 
@@ -664,6 +1122,7 @@ public class GoogleDriveConnector extends AbstractGoogleOAuthConnector {
 	 * @param folderId The ID of the folder. To list all files in the root folder, use the alias root as the value for folderId.
 	 * @param maxResults Maximum number of children to return.
 	 * @param query Query string for searching children
+	 * @param pageToken The continuation token, used to page through large result sets
 	 * @return a list of strings with the matching file ids
 	 * @throws IOException in case of connection issues
 	 */
@@ -675,19 +1134,21 @@ public class GoogleDriveConnector extends AbstractGoogleOAuthConnector {
 			MuleMessage message,
 			@Optional @Default("root") String folderId,
 			@Optional @Default("100") int maxResults,
-			@Optional String query) throws IOException {
+			@Optional String query,
+			@Optional @Default("#[flowVars['GoogleDrive_NEXT_PAGE_TOKEN']]") String pageToken) throws IOException {
 		
 		ChildList list = this.client.children().list(folderId)
 						.setMaxResults(maxResults)
 						.setQ(query)
+						.setPageToken(pageToken)
 						.execute();
 		
+		PaginationUtils.savePageToken(NEXT_PAGE_TOKEN, list.getNextPageToken(), message);
 		List<ChildReference> refs = list.getItems();
 		
 		if (CollectionUtils.isEmpty(refs)) {
 			return new ArrayList<String>();
 		} else {
-			PaginationUtils.savePageToken(NEXT_PAGE_TOKEN, list.getNextPageToken(), message);
 			List<String> result = new ArrayList<String>(refs.size());
 			for (ChildReference r : refs) {
 				result.add(r.getId());
@@ -697,20 +1158,60 @@ public class GoogleDriveConnector extends AbstractGoogleOAuthConnector {
 		}
 	}
 	
+	/**
+	 * Crawls the folder hierarchy under the given folder breadth first and returns a lazy iterator over all the files
+	 * and folders it contains, at any depth. Each folder is listed with a single paged query that already brings the metadata of
+	 * its children, and up to threads folders are listed at the same time. Files are returned as they are found, and the crawl pauses
+	 * while bufferSize files are waiting to be consumed. Files with many parents are returned only once and cycles are not followed.
+	 * Trashed files are skipped. The crawl starts once the iterator is first read, and it's abandoned if no file is consumed for
+	 * idleTimeout milliseconds, so that an iterator which is not read until the end doesn't keep its threads forever.
+	 * 
+	 * {@sample.xml ../../../doc/GoogleDriveConnector.xml.sample google-drive:walk-folder-tree}
+	 * 
+	 * @param folderId The ID of the folder to crawl. To crawl the whole drive, use the alias root as the value for folderId.
+	 * @param threads the maximum number of folders to list at the same time
+	 * @param maxDepth the maximum depth to descend into. Files in the given folder are at depth 1. Use zero for no limit
+	 * @param maxResults the maximum number of files to retrieve on each request
+	 * @param bufferSize the maximum number of files found but not yet consumed
+	 * @param idleTimeout the maximum number of milliseconds to wait for a file to be consumed before abandoning the crawl
+	 * @param fields the fields of each file to retrieve, for example title and md5Checksum. id and mimeType are always retrieved.
+	 * 			If not provided, whole files are returned
+	 * @return an iterator of {@link org.mule.module.google.drive.model.File}
+	 * @throws IOException in case of connection issues
+	 */
+	@Processor
+    @OAuthProtected
+	@OAuthInvalidateAccessTokenOn(exception=OAuthTokenExpiredException.class)
+	public Iterator<File> walkFolderTree(
+			@Optional @Default("root") String folderId,
+			@Optional @Default("4") int threads,
+			@Optional @Default("0") int maxDepth,
+			@Optional @Default("1000") int maxResults,
+			@Optional @Default("1000") int bufferSize,
+			@Optional @Default("300000") long idleTimeout,
+			@Optional List<String> fields) throws IOException {
+		
+		// resolves aliases such as root, so that cycles back to the given folder are detected
+		String rootId = this.client.files().get(folderId).setFields("id").execute().getId();
+		
+		return new FolderTreeWalker(this.client, rootId, threads, maxDepth, maxResults, bufferSize, idleTimeout, fields);
+	}
+	
 	/**
 	 * Lists a file's permissions
 	 * 
 	 * {@sample.xml ../../../doc/GoogleDriveConnector.xml.sample google-drive:list-permissions}
 	 * 
 	 * @param fileId the id of the file which permissions you want
+	 * @param fields the fields of each permission to retrieve, for example id and title. If not provided, whole permissions are returned
 	 * @return a list with instances of {@link org.mule.module.google.drive.model.Permission}
 	 * @throws IOException in case of connection issues
 	 */
 	@Processor
     @OAuthProtected
 	@OAuthInvalidateAccessTokenOn(exception=OAuthTokenExpiredException.class)
-	public List<Permission> listPermissions(String fileId) throws IOException {
-		return Permission.valueOf(this.client.permissions().list(fileId).execute().getItems(), Permission.class);
+	public List<Permission> listPermissions(String fileId, @Optional List<String> fields) throws IOException {
+		return Permission.valueOf(this.client.permissions().list(fileId).setFields(this.toItemFields(fields)).execute().getItems(), Permission.class);
 	}
 	
 	/**
@@ -736,14 +1237,15 @@ public class GoogleDriveConnector extends AbstractGoogleOAuthConnector {
 	 * 
 	 * @param fileId the id of the file owning the permission you want
 	 * @param permissionId the id of the permission you want
+	 * @param fields the permission fields to retrieve, for example id and title. If not provided, the whole permission is returned
 	 * @return an instance of {@link org.mule.module.google.drive.model.Permission}
 	 * @throws IOException in case of connection issues
 	 */
 	@Processor
     @OAuthProtected
 	@OAuthInvalidateAccessTokenOn(exception=OAuthTokenExpiredException.class)
-	public Permission getPermission(String fileId, String permissionId) throws IOException {
-		return new Permission(this.client.permissions().get(fileId, permissionId).execute());
+	public Permission getPermission(String fileId, String permissionId, @Optional List<String> fields) throws IOException {
+		return new Permission(this.client.permissions().get(fileId, permissionId).setFields(this.toFields(fields)).execute());
 	}
 	
 	/**
@@ -828,6 +1330,11 @@ public class GoogleDriveConnector extends AbstractGoogleOAuthConnector {
 	 * {@sample.xml ../../../doc/GoogleDriveConnector.xml.sample google-drive:download-revision}
 	 * 
 	 * @param revision an instance of {@link org.mule.module.google.drive.model.Revision}. The downloadUrl attribute cannot be blank
+	 * @param parallelism the number of byte ranges to download at the same time. When lower than 2 or when the revision's fileSize is unknown,
+	 * 			the content is downloaded on a single request
+	 * @param rangeSize the size in bytes of each range when downloading in parallel
+	 * @param targetPath if provided, the content is written into a file at this path and the returned stream reads that file.
+	 * 			Otherwise, ranges are reassembled in order into the returned stream while the following ones are downloaded
 	 * @return an instance of {@link java.io.InputStream}
 	 * @throws IOException in case of connection issues 
 	 * @throws IllegalArgumentException if revision is null or its downloadUrl property is blank
@@ -835,12 +1342,13 @@ public class GoogleDriveConnector extends AbstractGoogleOAuthConnector {
 	@Processor
     @OAuthProtected
 	@OAuthInvalidateAccessTokenOn(exception=OAuthTokenExpiredException.class)
-	public InputStream downloadRevision(@Optional @Default("#[payload]") Revision revision) throws IOException {
+	public InputStream downloadRevision(@Optional @Default("#[payload]") Revision revision,
+									@Optional @Default("1") int parallelism, @Optional @Default("8388608") long rangeSize, @Optional String targetPath) throws IOException {
 		if (revision == null) {
 			throw new IllegalArgumentException("Revision cannot be null");
 		}
 		
-		return this.download(revision.getDownloadUrl());
+		return this.download(revision.getDownloadUrl(), revision.getFileSize(), parallelism, rangeSize, targetPath);
 	}
 	
 	/**
@@ -850,14 +1358,15 @@ public class GoogleDriveConnector extends AbstractGoogleOAuthConnector {
 	 * 
 	 * @param fileId the id of the file from which a revision you want
 	 * @param revisionId the id of the revision you want
+	 * @param fields the revision fields to retrieve, for example id and title. If not provided, the whole revision is returned
 	 * @return an instance of {@link org.mule.module.google.drive.model.Revision}
 	 * @throws IOException in case of connection issues
 	 */
 	@Processor
     @OAuthProtected
 	@OAuthInvalidateAccessTokenOn(exception=OAuthTokenExpiredException.class)
-	public Revision getRevision(String fileId, String revisionId) throws IOException {
-		return new Revision(this.client.revisions().get(fileId, revisionId).execute());
+	public Revision getRevision(String fileId, String revisionId, @Optional List<String> fields) throws IOException {
+		return new Revision(this.client.revisions().get(fileId, revisionId).setFields(this.toFields(fields)).execute());
 	}
 	
 	/**
@@ -882,14 +1391,15 @@ public class GoogleDriveConnector extends AbstractGoogleOAuthConnector {
 	 * {@sample.xml ../../../doc/GoogleDriveConnector.xml.sample google-drive:list-revisions}
 	 * 
 	 * @param fileId the id of the file which revisions you want
+	 * @param fields the fields of each revision to retrieve, for example id and title. If not provided, whole revisions are returned
 	 * @return a list with instances of {@link org.mule.module.google.drive.model.Revision}
 	 * @throws IOException in case of connection issues
 	 */
 	@Processor
     @OAuthProtected
 	@OAuthInvalidateAccessTokenOn(exception=OAuthTokenExpiredException.class)
-	public List<Revision> listRevisions(String fileId) throws IOException {
-		return Revision.valueOf(this.client.revisions().list(fileId).execute().getItems(), Revision.class);
+	public List<Revision> listRevisions(String fileId, @Optional List<String> fields) throws IOException {
+		return Revision.valueOf(this.client.revisions().list(fileId).setFields(this.toItemFields(fields)).execute().getItems(), Revision.class);
 	}
 	
 	/**
@@ -976,14 +1486,15 @@ public class GoogleDriveConnector extends AbstractGoogleOAuthConnector {
 	 * @param fileId the id of the file owning the comment you want
 	 * @param commentId the id of the comment you want
 	 * @param includeDeleted If true, this will succeed when retrieving a deleted comment, and will include any deleted replies
+	 * @param fields the comment fields to retrieve, for example id and title. If not provided, the whole comment is returned
 	 * @return an instance of {@link org.mule.module.google.drive.model.Comment}
 	 * @throws IOException in case of connection issues
 	 */
 	@Processor
     @OAuthProtected
 	@OAuthInvalidateAccessTokenOn(exception=OAuthTokenExpiredException.class)
-	public Comment getComment(String fileId, String commentId, @Optional @Default("false") boolean includeDeleted) throws IOException {
-		return new Comment(this.client.comments().get(fileId, commentId).setIncludeDeleted(includeDeleted).execute());
+	public Comment getComment(String fileId, String commentId, @Optional @Default("false") boolean includeDeleted, @Optional List<String> fields) throws IOException {
+		return new Comment(this.client.comments().get(fileId, commentId).setIncludeDeleted(includeDeleted).setFields(this.toFields(fields)).execute());
 	}
 	
 	/**
@@ -997,6 +1508,7 @@ public class GoogleDriveConnector extends AbstractGoogleOAuthConnector {
 	 * @param maxResults The maximum number of discussions to include in the response, used for paging. Acceptable values are 0 to 100, inclusive.
 	 * @param pageToken The continuation token, used to page through large result sets
 	 * @param updatedMin Only discussions that were updated after this timestamp will be returned. Formatted as an RFC 3339 timestamp.
+	 * @param fields the fields of each comment to retrieve, for example id and title. If not provided, whole comments are returned
 	 * @return a list with instances of {@link org.mule.module.google.drive.model.Comment}
 	 * @throws IOException in case of connection issues
 	 */
@@ -1010,7 +1522,8 @@ public class GoogleDriveConnector extends AbstractGoogleOAuthConnector {
 			@Optional @Default("false") boolean includeDeleted,
 			@Optional @Default("100") int maxResults,
 			@Optional @Default("#[flowVars['GoogleDrive_NEXT_PAGE_TOKEN']]") String pageToken,
-			@Optional String updatedMin
+			@Optional String updatedMin,
+			@Optional List<String> fields
 			) throws IOException {
 		
 		CommentList response = this.client.comments().list(fileId)
@@ -1018,6 +1531,7 @@ public class GoogleDriveConnector extends AbstractGoogleOAuthConnector {
 										.setMaxResults(maxResults)
 										.setPageToken(pageToken)
 										.setUpdatedMin(updatedMin)
+										.setFields(this.toItemFields(fields, "nextPageToken"))
 										.execute();
 		
 
@@ -1025,6 +1539,60 @@ public class GoogleDriveConnector extends AbstractGoogleOAuthConnector {
 		return Comment.valueOf(response.getItems(), Comment.class);
 	}
 	
+	/**
+	 * Same as list-comments but instead of returning one page it returns a lazy iterator over all the file's comments.
+	 * Pages of maxResults comments are only requested as the iterator is consumed, and up to pagesInFlight pages are fetched
+	 * in the background ahead of the consumer
+	 * 
+	 * {@sample.xml ../../../doc/GoogleDriveConnector.xml.sample google-drive:list-all-comments}
+	 * 
+	 * @param fileId the id of the file which comments you want
+	 * @param includeDeleted If true, all comments and replies, including deleted comments and replies (with content stripped) will be returned.
+	 * @param maxResults The maximum number of discussions to include in each page. Acceptable values are 0 to 100, inclusive.
+	 * @param updatedMin Only discussions that were updated after this timestamp will be returned. Formatted as an RFC 3339 timestamp.
+	 * @param pagesInFlight The maximum number of pages to fetch ahead of the consumer. Use zero to disable prefetching
+	 * @param fields the fields of each comment to retrieve, for example id and title. If not provided, whole comments are returned
+	 * @return an iterator of {@link org.mule.module.google.drive.model.Comment}
+	 * @throws IOException in case of connection issues
+	 */
+	@Processor
+    @OAuthProtected
+	@OAuthInvalidateAccessTokenOn(exception=OAuthTokenExpiredException.class)
+	public Iterator<Comment> listAllComments(
+			final String fileId,
+			@Optional @Default("false") final boolean includeDeleted,
+			@Optional @Default("100") final int maxResults,
+			@Optional final String updatedMin,
+			@Optional @Default("1") int pagesInFlight,
+			@Optional List<String> fields) throws IOException {
+		
+		final String itemFields = this.toItemFields(fields, "nextPageToken");
+		
+		return new PageTokenIterator<CommentList, Comment>(pagesInFlight, null) {
+			
+			@Override
+			protected CommentList fetch(String pageToken) throws Exception {
+				return client.comments().list(fileId)
+						.setIncludeDeleted(includeDeleted)
+						.setMaxResults(maxResults)
+						.setPageToken(pageToken)
+						.setUpdatedMin(updatedMin)
+						.setFields(itemFields)
+						.execute();
+			}
+			
+			@Override
+			protected String getNextPageToken(CommentList page) {
+				return page.getNextPageToken();
+			}
+			
+			@Override
+			protected Collection<Comment> getItems(CommentList page) {
+				return Comment.valueOf(page.getItems(), Comment.class);
+			}
+		}.open();
+	}
+	
 	/**
 	 * Inserts a new comment for a given file
 	 * 
@@ -1113,14 +1681,15 @@ public class GoogleDriveConnector extends AbstractGoogleOAuthConnector {
 	 * @param commentId the id of the comment which reply you want
 	 * @param replyId the id of the reply you want
 	 * @param includeDeleted If true, this will succeed when retrieving a deleted comment, and will include any deleted replies
+	 * @param fields the reply fields to retrieve, for example id and title. If not provided, the whole reply is returned
 	 * @return an instance of {@link org.mule.module.google.drive.model.CommentReply}
 	 * @throws IOException in case of connection issues
 	 */
 	@Processor
     @OAuthProtected
 	@OAuthInvalidateAccessTokenOn(exception=OAuthTokenExpiredException.class)
-	public CommentReply getCommentReply(String fileId, String commentId, String replyId, @Optional @Default("false") boolean includeDeleted) throws IOException {
-		return new CommentReply(this.client.replies().get(fileId, commentId, replyId).setIncludeDeleted(includeDeleted).execute());
+	public CommentReply getCommentReply(String fileId, String commentId, String replyId, @Optional @Default("false") boolean includeDeleted, @Optional List<String> fields) throws IOException {
+		return new CommentReply(this.client.replies().get(fileId, commentId, replyId).setIncludeDeleted(includeDeleted).setFields(this.toFields(fields)).execute());
 	}
 	
 	/**
@@ -1134,6 +1703,7 @@ public class GoogleDriveConnector extends AbstractGoogleOAuthConnector {
 	 * @param includeDeleted If true, all comments and replies, including deleted comments and replies (with content stripped) will be returned.
 	 * @param maxResults The maximum number of replies to include in the response, used for paging. Acceptable values are 0 to 100.
 	 * @param pageToken The continuation token, used to page through large result sets
+	 * @param fields the fields of each reply to retrieve, for example id and title. If not provided, whole replies are returned
 	 * @return a list with instances of {@link org.mule.module.google.drive.model.org.mule.module.google.drive.model.CommentReply}
 	 * @throws IOException in case of connection issues
 	 */
@@ -1147,13 +1717,15 @@ public class GoogleDriveConnector extends AbstractGoogleOAuthConnector {
 			String commentId, 
 			@Optional @Default("false") boolean includeDeleted,
 			@Optional @Default("100") int maxResults,
-			@Optional @Default("#[flowVars['GoogleDrive_NEXT_PAGE_TOKEN']]") String pageToken
+			@Optional @Default("#[flowVars['GoogleDrive_NEXT_PAGE_TOKEN']]") String pageToken,
+			@Optional List<String> fields
 			) throws IOException {
 		
 		CommentReplyList response = this.client.replies().list(fileId, commentId)
 										.setIncludeDeleted(includeDeleted)
 										.setMaxResults(maxResults)
 										.setPageToken(pageToken)
+										.setFields(this.toItemFields(fields, "nextPageToken"))
 										.execute();
 		
 
@@ -1244,6 +1816,177 @@ public class GoogleDriveConnector extends AbstractGoogleOAuthConnector {
 		this.client.replies().delete(fileId, commentId, replyId).execute();
 	}
 	
+	/**
+	 * Inserts the same permission on many files as a batch. The operations are sent in batches of at most
+	 * batchSize operations, submitting up to batchThreads of them concurrently
+	 * 
+	 * {@sample.xml ../../../doc/GoogleDriveConnector.xml.sample google-drive:batch-insert-permission}
+	 * 
+	 * @param fileIds the ids of the files that the permission is created for
+	 * @param permission an instance of {@link org.mule.module.google.drive.model.Permission}
+	 * @param emailMessage A custom message to include in notification emails.
+	 * @param sendNotificationEmails Whether to send notification emails when sharing to users or groups.
+	 * @return an instance of {@link org.mule.modules.google.api.client.batch.BatchResponse<Permission>} with the newly created permissions
+	 * @throws IOException in case of connection issues
+	 */
+	@Processor
+    @OAuthProtected
+	@OAuthInvalidateAccessTokenOn(exception=OAuthTokenExpiredException.class)
+	public BatchResponse<Permission> batchInsertPermission(
+			@Optional @Default("#[payload]") Collection<String> fileIds,
+			final Permission permission,
+			@Optional final String emailMessage,
+			@Optional @Default("true") final boolean sendNotificationEmails
+			) throws IOException {
+		
+		return new DriveBatch<String, Permission>() {
+			
+			@Override
+			protected void queue(BatchRequest batch, String fileId, int index, BatchResponse<Permission> response) throws IOException {
+				client.permissions().insert(fileId, permission.wrapped())
+					.setEmailMessage(emailMessage)
+					.setSendNotificationEmails(sendNotificationEmails)
+					.queue(batch, new PermissionBatchCallback(response, index));
+			}
+		}.execute(fileIds);
+	}
+	
+	/**
+	 * Permanently deletes many files as a batch, skipping the trash. The operations are sent in batches of at most
+	 * batchSize operations, submitting up to batchThreads of them concurrently
+	 * 
+	 * {@sample.xml ../../../doc/GoogleDriveConnector.xml.sample google-drive:batch-delete-file}
+	 * 
+	 * @param fileIds the ids of the files to be deleted
+	 * @return an instance of {@link org.mule.modules.google.api.client.batch.BatchResponse<String>} with the ids of the deleted files
+	 * @throws IOException in case of connection issues
+	 */
+	@Processor
+    @OAuthProtected
+	@OAuthInvalidateAccessTokenOn(exception=OAuthTokenExpiredException.class)
+	public BatchResponse<String> batchDeleteFile(@Optional @Default("#[payload]") Collection<String> fileIds) throws IOException {
+		return new DriveBatch<String, String>() {
+			
+			@Override
+			protected void queue(BatchRequest batch, String fileId, int index, BatchResponse<String> response) throws IOException {
+				client.files().delete(fileId).queue(batch, new IdBatchCallback<Void>(fileId, response, index));
+				getChecksumIndex().evict(fileId);
+			}
+		}.execute(fileIds);
+	}
+	
+	/**
+	 * Moves many files to the trash as a batch. The operations are sent in batches of at most
+	 * batchSize operations, submitting up to batchThreads of them concurrently
+	 * 
+	 * {@sample.xml ../../../doc/GoogleDriveConnector.xml.sample google-drive:batch-trash-file}
+	 * 
+	 * @param fileIds the ids of the files to be trashed
+	 * @return an instance of {@link org.mule.modules.google.api.client.batch.BatchResponse<File>} with the trashed files
+	 * @throws IOException in case of connection issues
+	 */
+	@Processor
+    @OAuthProtected
+	@OAuthInvalidateAccessTokenOn(exception=OAuthTokenExpiredException.class)
+	public BatchResponse<File> batchTrashFile(@Optional @Default("#[payload]") Collection<String> fileIds) throws IOException {
+		return new DriveBatch<String, File>() {
+			
+			@Override
+			protected void queue(BatchRequest batch, String fileId, int index, BatchResponse<File> response) throws IOException {
+				client.files().trash(fileId).queue(batch, new FileBatchCallback(response, index));
+				getChecksumIndex().evict(fileId);
+			}
+		}.execute(fileIds);
+	}
+	
+	/**
+	 * Makes a partial update to the metadata of many files as a batch. Each instance of
+	 * {@link org.mule.module.google.drive.model.File} needs a valid id and the new values of the given fields.
+	 * The operations are sent in batches of at most batchSize operations, submitting up to batchThreads of them concurrently
+	 * 
+	 * {@sample.xml ../../../doc/GoogleDriveConnector.xml.sample google-drive:batch-patch-file}
+	 * 
+	 * @param files a collection with instances of {@link org.mule.module.google.drive.model.File} holding the new values
+	 * @param fields the names of the fields to be patched on every file
+	 * @param newRevision Whether a blob upload should create a new revision.
+	 * @param updateViewedDate Whether to update the view date after successfully updating the file.
+	 * @param setModifiedDate Whether to set the modified date with the supplied modified date.
+	 * @return an instance of {@link org.mule.modules.google.api.client.batch.BatchResponse<File>} with the patched files
+	 * @throws IOException in case of connection issues
+	 */
+	@Processor
+    @OAuthProtected
+	@OAuthInvalidateAccessTokenOn(exception=OAuthTokenExpiredException.class)
+	public BatchResponse<File> batchPatchFile(
+			@Optional @Default("#[payload]") Collection<File> files,
+			List<String> fields,
+			@Optional @Default("false") final boolean newRevision,
+			@Optional @Default("false") final boolean updateViewedDate,
+			@Optional @Default("false") final boolean setModifiedDate) throws IOException {
+		
+		final String patchFields = this.toString(fields);
+		
+		return new DriveBatch<File, File>() {
+			
+			@Override
+			protected void queue(BatchRequest batch, File file, int index, BatchResponse<File> response) throws IOException {
+				client.files().patch(file.getId(), file.wrapped())
+					.setNewRevision(newRevision)
+					.setUpdateViewedDate(updateViewedDate)
+					.setSetModifiedDate(setModifiedDate)
+					.setFields(patchFields)
+					.queue(batch, new FileBatchCallback(response, index));
+			}
+		}.execute(files);
+	}
+	
+	/**
+	 * Inserts many files into a folder as a batch. The operations are sent in batches of at most
+	 * batchSize operations, submitting up to batchThreads of them concurrently
+	 * 
+	 * {@sample.xml ../../../doc/GoogleDriveConnector.xml.sample google-drive:batch-insert-file-in-folder}
+	 * 
+	 * @param fileIds the ids of the files to be inserted
+	 * @param folderId the id of the folder. If not provided, then the root folder is used
+	 * @return an instance of {@link org.mule.modules.google.api.client.batch.BatchResponse<String>} with the ids of the inserted files
+	 * @throws IOException in case of connection issues
+	 */
+	@Processor
+    @OAuthProtected
+	@OAuthInvalidateAccessTokenOn(exception=OAuthTokenExpiredException.class)
+	public BatchResponse<String> batchInsertFileInFolder(
+			@Optional @Default("#[payload]") Collection<String> fileIds,
+			@Optional @Default("root") final String folderId) throws IOException {
+		
+		return new DriveBatch<String, String>() {
+			
+			@Override
+			protected void queue(BatchRequest batch, String fileId, int index, BatchResponse<String> response) throws IOException {
+				ChildReference child = new ChildReference();
+				child.setId(fileId);
+				client.children().insert(folderId, child).queue(batch, new IdBatchCallback<ChildReference>(fileId, response, index));
+			}
+		}.execute(fileIds);
+	}
+	
+	/**
+	 * {@link org.mule.modules.google.api.client.batch.ChunkedBatch} bound to the current client
+	 * and to the connector's batch settings
+	 */
+	private abstract class DriveBatch<I, W> extends ChunkedBatch<I, W> {
+		
+		protected final Drive client = GoogleDriveConnector.this.client;
+		
+		private DriveBatch() {
+			super(batchSize, batchThreads);
+		}
+		
+		@Override
+		protected BatchRequest newBatch() {
+			return this.client.batch();
+		}
+	}
+	
 	
 	private InputStream download(String downloadUrl) throws IOException {
 		if (StringUtils.isBlank(downloadUrl)) {
@@ -1253,6 +1996,112 @@ public class GoogleDriveConnector extends AbstractGoogleOAuthConnector {
 		return this.client.getRequestFactory().buildGetRequest(new GenericUrl(downloadUrl)).execute().getContent();
 	}
 	
+	private InputStream download(String downloadUrl, Long fileSize, int parallelism, long rangeSize, String targetPath) throws IOException {
+		boolean ranged = parallelism > 1 && fileSize != null && fileSize > rangeSize;
+		
+		if (StringUtils.isBlank(targetPath)) {
+			if (!ranged) {
+				return this.download(downloadUrl);
+			}
+			
+			return new RangedDownload(this.client.getRequestFactory(), parallelism, rangeSize, RangedDownload.DEFAULT_MAX_RETRIES).open(downloadUrl, fileSize);
+		}
+		
+		java.io.File target = new java.io.File(targetPath);
+		
+		if (ranged) {
+			RandomAccessFile out = new RandomAccessFile(target, "rw");
+			try {
+				out.setLength(fileSize);
+				new RangedDownload(this.client.getRequestFactory(), parallelism, rangeSize, RangedDownload.DEFAULT_MAX_RETRIES).download(downloadUrl, fileSize, out.getChannel());
+			} finally {
+				out.close();
+			}
+		} else {
+			InputStream in = this.download(downloadUrl);
+			OutputStream out = new FileOutputStream(target);
+			try {
+				IOUtils.copyLarge(in, out);
+			} finally {
+				IOUtils.closeQuietly(in);
+				out.close();
+			}
+		}
+		
+		return new FileInputStream(target);
+	}
+	
+	private synchronized ChecksumIndex getChecksumIndex() {
+		if (this.checksumIndex == null) {
+			this.checksumIndex = new ChecksumIndex(this.checksumIndexMaxSize);
+		}
+		
+		return this.checksumIndex;
+	}
+	
+	/**
+	 * @return the id and checksum of the given file, or null if it doesn't exist or it's trashed
+	 */
+	private ChecksumIndex.Entry getUntrashedChecksum(String fileId) throws IOException {
+		com.google.api.services.drive.model.File remote;
+		
+		try {
+			remote = this.client.files().get(fileId).setFields("id,md5Checksum,labels(trashed)").execute();
+		} catch (HttpResponseException e) {
+			if (e.getStatusCode() == NOT_FOUND) {
+				return null;
+			}
+			throw e;
+		}
+		
+		if (remote.getLabels() != null && Boolean.TRUE.equals(remote.getLabels().getTrashed())) {
+			return null;
+		}
+		
+		return new ChecksumIndex.Entry(remote.getId(), remote.getMd5Checksum());
+	}
+	
+	private void indexChecksum(ChecksumIndex index, String pathKey, ChecksumIndex.Entry entry) {
+		index.put(ChecksumIndex.idKey(entry.getFileId()), entry);
+		
+		if (pathKey != null) {
+			index.put(pathKey, entry);
+		}
+	}
+	
+	private String escapeQueryValue(String value) {
+		return value.replace("\\", "\\\\").replace("'", "\\'");
+	}
+	
+	/**
+	 * @return the given fields as a partial response selector, or null to retrieve the whole resource
+	 */
+	private String toFields(List<String> fields) {
+		return CollectionUtils.isEmpty(fields) ? null : this.toString(fields);
+	}
+	
+	/**
+	 * Builds the partial response selector of a listing, applying the given fields to
+	 * each item and keeping the listing's own properties, such as the page token
+	 * 
+	 * @param fields the fields of each item
+	 * @param listFields the properties of the listing to keep
+	 * @return the selector or null to retrieve whole items
+	 */
+	private String toItemFields(List<String> fields, String... listFields) {
+		if (CollectionUtils.isEmpty(fields)) {
+			return null;
+		}
+		
+		StringBuilder builder = new StringBuilder();
+		
+		for (String listField : listFields) {
+			builder.append(listField).append(',');
+		}
+		
+		return builder.append("items(").append(this.toString(fields)).append(')').toString();
+	}
+	
 	private String toString(List<String> list) {
 		StringBuilder builder = new StringBuilder();
 		
@@ -1311,10 +2160,55 @@ public class GoogleDriveConnector extends AbstractGoogleOAuthConnector {
 		return clientFactory;
 	}
 
+	public HttpTransportProvider getTransportProvider() {
+		return transportProvider;
+	}
+
+	public void setTransportProvider(HttpTransportProvider transportProvider) {
+		this.transportProvider = transportProvider;
+	}
+
 	public void setClientFactory(GoogleDriveClientFactory clientFactory) {
 		this.clientFactory = clientFactory;
 	}
 
+	public ObjectStore<Serializable> getObjectStore() {
+		return objectStore;
+	}
+
+	public void setObjectStore(ObjectStore<Serializable> objectStore) {
+		this.objectStore = objectStore;
+	}
+
+	@Override
+	public void setMuleContext(MuleContext muleContext) {
+		this.muleContext = muleContext;
+	}
+
+	public int getChecksumIndexMaxSize() {
+		return checksumIndexMaxSize;
+	}
+
+	public void setChecksumIndexMaxSize(int checksumIndexMaxSize) {
+		this.checksumIndexMaxSize = checksumIndexMaxSize;
+	}
+
+	public int getBatchSize() {
+		return batchSize;
+	}
+
+	public void setBatchSize(int batchSize) {
+		this.batchSize = batchSize;
+	}
+
+	public int getBatchThreads() {
+		return batchThreads;
+	}
+
+	public void setBatchThreads(int batchThreads) {
+		this.batchThreads = batchThreads;
+	}
+
 	public String getAccessToken() {
 		return accessToken;
 	}
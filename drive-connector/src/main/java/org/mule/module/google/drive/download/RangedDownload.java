@@ -0,0 +1,526 @@
+/**
+ * Mule Google Drive Cloud Connector
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.module.google.drive.download;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.log4j.Logger;
+
+import com.google.api.client.http.GenericUrl;
+import com.google.api.client.http.HttpRequest;
+import com.google.api.client.http.HttpRequestFactory;
+import com.google.api.client.http.HttpResponse;
+
+/**
+ * Downloads a file of known size by splitting it into byte ranges which are requested
+ * in parallel using HTTP range requests. Each range is retried on its own if it fails, resuming
+ * from the last byte received.
+ *
+ * The ranges can either be written straight into a file channel at their position, or be reassembled in order
+ * into an input stream. In the later case, at most one range per thread is held in memory at a time.
+ *
+ * If the server ignores the range header and answers with the whole content, the download falls back
+ * to a single streamed request.
+ *
+ * @author mariano.gonzalez@mulesoft.com
+ *
+ */
+public class RangedDownload {
+
+	private static final Logger logger = Logger.getLogger(RangedDownload.class);
+
+	public static final int DEFAULT_MAX_RETRIES = 3;
+
+	private static final int PARTIAL_CONTENT = 206;
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	private final HttpRequestFactory requestFactory;
+	private final int threads;
+	private final long rangeSize;
+	private final int maxRetries;
+
+	/**
+	 * @param requestFactory the factory of the authorized requests
+	 * @param threads the maximum number of ranges to be downloaded at the same time
+	 * @param rangeSize the size in bytes of each range
+	 * @param maxRetries the maximum number of times a range is retried
+	 */
+	public RangedDownload(HttpRequestFactory requestFactory, int threads, long rangeSize, int maxRetries) {
+		if (rangeSize < 1 || rangeSize > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("rangeSize must be a positive int");
+		}
+
+		this.requestFactory = requestFactory;
+		this.threads = Math.max(1, threads);
+		this.rangeSize = rangeSize;
+		this.maxRetries = maxRetries;
+	}
+
+	/**
+	 * Downloads the content into the given channel, writing each range at its position
+	 *
+	 * @param downloadUrl the url of the content
+	 * @param size the content's size in bytes
+	 * @param target the channel to write to
+	 * @throws IOException if a range fails more than maxRetries times
+	 */
+	public void download(final String downloadUrl, long size, final FileChannel target) throws IOException {
+		List<Callable<Void>> tasks = new ArrayList<Callable<Void>>();
+
+		for (long start = 0; start < size; start += this.rangeSize) {
+			final long from = start;
+			final long to = Math.min(size, start + this.rangeSize) - 1;
+
+			tasks.add(new Callable<Void>() {
+
+				@Override
+				public Void call() throws Exception {
+					fetchRange(downloadUrl, from, to, new RangeSink() {
+
+						@Override
+						public void write(byte[] buffer, int length, long position) throws IOException {
+							ByteBuffer bytes = ByteBuffer.wrap(buffer, 0, length);
+							while (bytes.hasRemaining()) {
+								position += target.write(bytes, position);
+							}
+						}
+					});
+					return null;
+				}
+			});
+		}
+
+		Throwable failure = this.invokeAll(tasks);
+
+		if (failure instanceof RangeNotSupportedException) {
+			if (logger.isDebugEnabled()) {
+				logger.debug(failure.getMessage() + ". Downloading it with a single request");
+			}
+
+			this.copy(downloadUrl, target);
+		} else if (failure instanceof IOException) {
+			throw (IOException) failure;
+		} else if (failure instanceof RuntimeException) {
+			throw (RuntimeException) failure;
+		} else if (failure instanceof Error) {
+			throw (Error) failure;
+		} else if (failure != null) {
+			throw new IOException("Could not download " + downloadUrl, failure);
+		}
+	}
+
+	/**
+	 * Runs the given tasks and waits for them. Once one fails the ones not yet started are cancelled, but
+	 * the running ones are not interrupted, since an interrupted write closes the target channel. They are
+	 * awaited instead, so that nothing writes to the channel once this method returns.
+	 *
+	 * @return the failure of the first failed task (in list order) or null if all of them succeeded
+	 */
+	private Throwable invokeAll(List<Callable<Void>> tasks) throws IOException {
+		ExecutorService executor = this.newExecutor();
+		List<Future<Void>> futures = new ArrayList<Future<Void>>(tasks.size());
+		Throwable failure = null;
+
+		try {
+			for (Callable<Void> task : tasks) {
+				futures.add(executor.submit(task));
+			}
+
+			for (Future<Void> future : futures) {
+				try {
+					future.get();
+				} catch (CancellationException e) {
+					// cancelled after a previous failure
+				} catch (ExecutionException e) {
+					if (failure == null) {
+						failure = e.getCause();
+
+						for (Future<Void> pending : futures) {
+							pending.cancel(false);
+						}
+					}
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while downloading ranges");
+		} finally {
+			for (Future<Void> pending : futures) {
+				pending.cancel(false);
+			}
+			executor.shutdown();
+			this.awaitTermination(executor);
+		}
+
+		return failure;
+	}
+
+	private void awaitTermination(ExecutorService executor) {
+		boolean interrupted = false;
+
+		while (!executor.isTerminated()) {
+			try {
+				executor.awaitTermination(1, TimeUnit.SECONDS);
+			} catch (InterruptedException e) {
+				interrupted = true;
+			}
+		}
+
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private ExecutorService newExecutor() {
+		return Executors.newFixedThreadPool(this.threads, new ThreadFactory() {
+
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread thread = new Thread(r, "google-drive-ranged-download");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+	}
+
+	/**
+	 * Returns an input stream that reads the content in order while the following ranges are downloaded
+	 * in the background
+	 *
+	 * @param downloadUrl the url of the content
+	 * @param size the content's size in bytes
+	 * @return an input stream which needs to be closed if not fully consumed
+	 */
+	public InputStream open(String downloadUrl, long size) {
+		return new RangeInputStream(downloadUrl, size);
+	}
+
+	private void copy(String downloadUrl, FileChannel target) throws IOException {
+		InputStream in = this.get(downloadUrl);
+		byte[] buffer = new byte[BUFFER_SIZE];
+		long position = 0;
+
+		try {
+			int read;
+			while ((read = in.read(buffer)) != -1) {
+				ByteBuffer bytes = ByteBuffer.wrap(buffer, 0, read);
+				while (bytes.hasRemaining()) {
+					position += target.write(bytes, position);
+				}
+			}
+		} finally {
+			in.close();
+		}
+	}
+
+	private InputStream get(String downloadUrl) throws IOException {
+		return this.requestFactory.buildGetRequest(new GenericUrl(downloadUrl)).execute().getContent();
+	}
+
+	private void fetchRange(String downloadUrl, long from, long to, RangeSink sink) throws IOException {
+		long position = from;
+		int failures = 0;
+		byte[] buffer = new byte[BUFFER_SIZE];
+
+		while (true) {
+			try {
+				HttpRequest request = this.requestFactory.buildGetRequest(new GenericUrl(downloadUrl));
+				request.getHeaders().set("Range", String.format("bytes=%d-%d", position, to));
+				request.setNumberOfRetries(0);
+
+				HttpResponse response = request.execute();
+				if (response.getStatusCode() != PARTIAL_CONTENT) {
+					response.ignore();
+					throw new RangeNotSupportedException(String.format("Server returned %d to a range request for %s", response.getStatusCode(), downloadUrl));
+				}
+
+				InputStream in = response.getContent();
+				try {
+					int read;
+					while (position <= to && (read = in.read(buffer, 0, (int) Math.min(buffer.length, to - position + 1))) != -1) {
+						sink.write(buffer, read, position);
+						position += read;
+					}
+				} finally {
+					in.close();
+				}
+
+				if (position > to) {
+					return;
+				}
+
+				throw new IOException(String.format("Range %d-%d of %s ended prematurely at %d", from, to, downloadUrl, position));
+			} catch (RangeNotSupportedException e) {
+				throw e;
+			} catch (IOException e) {
+				if (++failures > this.maxRetries) {
+					throw e;
+				}
+
+				if (logger.isDebugEnabled()) {
+					logger.debug(String.format("Retrying range %d-%d of %s from byte %d", from, to, downloadUrl, position), e);
+				}
+
+				try {
+					Thread.sleep(500L << failures);
+				} catch (InterruptedException ie) {
+					Thread.currentThread().interrupt();
+					throw e;
+				}
+			}
+		}
+	}
+
+	private interface RangeSink {
+
+		public void write(byte[] buffer, int length, long position) throws IOException;
+	}
+
+	/**
+	 * Thrown when the server answers a range request with anything but partial content
+	 */
+	private static class RangeNotSupportedException extends IOException {
+
+		private static final long serialVersionUID = -3164589716350276315L;
+
+		private RangeNotSupportedException(String message) {
+			super(message);
+		}
+	}
+
+	private class RangeInputStream extends InputStream {
+
+		private final String downloadUrl;
+		private final long size;
+		private final ExecutorService executor;
+		private final LinkedList<Future<byte[]>> pending = new LinkedList<Future<byte[]>>();
+		private long nextRange = 0;
+		private long position = 0;
+		private InputStream fallback;
+		private byte[] current = new byte[0];
+		private int index = 0;
+		private boolean closed = false;
+
+		private RangeInputStream(String downloadUrl, long size) {
+			this.downloadUrl = downloadUrl;
+			this.size = size;
+			this.executor = newExecutor();
+
+			this.schedule();
+		}
+
+		@Override
+		public int read() throws IOException {
+			if (!this.ensureAvailable()) {
+				return -1;
+			}
+
+			if (this.fallback != null) {
+				return this.fallback.read();
+			}
+
+			return this.current[this.index++] & 0xFF;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			if (len == 0) {
+				return 0;
+			}
+
+			if (!this.ensureAvailable()) {
+				return -1;
+			}
+
+			if (this.fallback != null) {
+				return this.fallback.read(b, off, len);
+			}
+
+			int count = Math.min(len, this.current.length - this.index);
+			System.arraycopy(this.current, this.index, b, off, count);
+			this.index += count;
+
+			return count;
+		}
+
+		@Override
+		public int available() throws IOException {
+			if (this.fallback != null) {
+				return this.fallback.available();
+			}
+
+			return this.current.length - this.index;
+		}
+
+		@Override
+		public void close() throws IOException {
+			if (!this.closed) {
+				this.closed = true;
+				this.cancel();
+
+				if (this.fallback != null) {
+					this.fallback.close();
+				}
+			}
+		}
+
+		private void cancel() {
+			for (Future<byte[]> future : this.pending) {
+				future.cancel(true);
+			}
+			this.pending.clear();
+			this.executor.shutdownNow();
+		}
+
+		private boolean ensureAvailable() throws IOException {
+			if (this.closed) {
+				throw new IOException("Stream closed");
+			}
+
+			if (this.fallback != null) {
+				return true;
+			}
+
+			while (this.index >= this.current.length) {
+				if (this.pending.isEmpty()) {
+					this.close();
+					return false;
+				}
+
+				try {
+					this.current = this.pending.removeFirst().get();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					this.close();
+					throw new IOException("Interrupted while downloading " + this.downloadUrl);
+				} catch (ExecutionException e) {
+					if (e.getCause() instanceof RangeNotSupportedException) {
+						return this.fallBack((RangeNotSupportedException) e.getCause());
+					}
+
+					this.close();
+					if (e.getCause() instanceof IOException) {
+						throw (IOException) e.getCause();
+					}
+					throw new IOException("Could not download " + this.downloadUrl, e.getCause());
+				}
+
+				this.index = 0;
+				this.position += this.current.length;
+				this.schedule();
+			}
+
+			return true;
+		}
+
+		/**
+		 * Stops the ranged download and continues reading from a single request,
+		 * skipping the bytes already read
+		 */
+		private boolean fallBack(RangeNotSupportedException e) throws IOException {
+			if (logger.isDebugEnabled()) {
+				logger.debug(e.getMessage() + ". Downloading it with a single request");
+			}
+
+			this.cancel();
+			this.current = new byte[0];
+			this.index = 0;
+
+			try {
+				this.fallback = get(this.downloadUrl);
+
+				long skipped = 0;
+				while (skipped < this.position) {
+					long count = this.fallback.skip(this.position - skipped);
+
+					if (count <= 0) {
+						if (this.fallback.read() == -1) {
+							throw new IOException(String.format("Content of %s ended at byte %d while resuming from byte %d", this.downloadUrl, skipped, this.position));
+						}
+						count = 1;
+					}
+
+					skipped += count;
+				}
+			} catch (IOException ex) {
+				this.close();
+				throw ex;
+			}
+
+			return true;
+		}
+
+		private void schedule() {
+			if (this.executor.isShutdown()) {
+				return;
+			}
+
+			while (this.pending.size() < threads && this.nextRange < this.size) {
+				final long from = this.nextRange;
+				final long to = Math.min(this.size, from + rangeSize) - 1;
+				this.nextRange = to + 1;
+
+				Future<byte[]> future;
+
+				try {
+					future = this.executor.submit(new Callable<byte[]>() {
+
+						@Override
+						public byte[] call() throws Exception {
+							final byte[] range = new byte[(int) (to - from + 1)];
+
+							try {
+								fetchRange(downloadUrl, from, to, new RangeSink() {
+
+									@Override
+									public void write(byte[] buffer, int length, long position) {
+										System.arraycopy(buffer, 0, range, (int) (position - from), length);
+									}
+								});
+							} catch (IOException e) {
+								// no later range will be read, let the threads go once the ones in flight finish
+								executor.shutdown();
+								throw e;
+							}
+
+							return range;
+						}
+					});
+				} catch (RejectedExecutionException e) {
+					// a range already failed, the stream fails when it gets to it
+					return;
+				}
+
+				this.pending.add(future);
+			}
+
+			if (this.nextRange >= this.size) {
+				// lets the threads go as soon as the last ranges are fetched, even if the stream is never closed
+				this.executor.shutdown();
+			}
+		}
+	}
+}
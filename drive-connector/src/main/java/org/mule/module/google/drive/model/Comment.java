@@ -73,11 +73,11 @@ public class Comment extends BaseWrapper<com.google.api.services.drive.model.Com
 	}
 
 	public DateTime getCreatedDate() {
-		return new DateTime(wrapped.getCreatedDate());
+		return wrapped.getCreatedDate() != null ? new DateTime(wrapped.getCreatedDate()) : null;
 	}
 
 	public void setCreatedDate(DateTime createdDate) {
-		wrapped.setCreatedDate(createdDate.getWrapped());
+		wrapped.setCreatedDate(createdDate != null ? createdDate.getWrapped() : null);
 	}
 
 	public Boolean getDeleted() {
@@ -113,11 +113,11 @@ public class Comment extends BaseWrapper<com.google.api.services.drive.model.Com
 	}
 
 	public DateTime getModifiedDate() {
-		return new DateTime(wrapped.getModifiedDate());
+		return wrapped.getModifiedDate() != null ? new DateTime(wrapped.getModifiedDate()) : null;
 	}
 
 	public void setModifiedDate(DateTime modifiedDate) {
-		wrapped.setModifiedDate(modifiedDate.getWrapped());
+		wrapped.setModifiedDate(modifiedDate != null ? modifiedDate.getWrapped() : null);
 	}
 
 	public List<CommentReply> getReplies() {
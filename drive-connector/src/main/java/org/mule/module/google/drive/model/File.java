@@ -58,11 +58,11 @@ public class File extends BaseWrapper<com.google.api.services.drive.model.File>
 	}
 
 	public DateTime getCreatedDate() {
-		return new DateTime(wrapped.getCreatedDate());
+		return wrapped.getCreatedDate() != null ? new DateTime(wrapped.getCreatedDate()) : null;
 	}
 
 	public void setCreatedDate(DateTime createdDate) {
-		wrapped.setCreatedDate(createdDate.getWrapped());
+		wrapped.setCreatedDate(createdDate != null ? createdDate.getWrapped() : null);
 	}
 
 	public String getDescription() {
@@ -194,11 +194,11 @@ public class File extends BaseWrapper<com.google.api.services.drive.model.File>
 	}
 
 	public DateTime getLastViewedByMeDate() {
-		return new DateTime(wrapped.getLastViewedByMeDate());
+		return wrapped.getLastViewedByMeDate() != null ? new DateTime(wrapped.getLastViewedByMeDate()) : null;
 	}
 
 	public void setLastViewedByMeDate(DateTime lastViewedByMeDate) {
-		wrapped.setLastViewedByMeDate(lastViewedByMeDate.getWrapped());
+		wrapped.setLastViewedByMeDate(lastViewedByMeDate != null ? lastViewedByMeDate.getWrapped() : null);
 	}
 
 	public String getMd5Checksum() {
@@ -218,19 +218,19 @@ public class File extends BaseWrapper<com.google.api.services.drive.model.File>
 	}
 
 	public DateTime getModifiedByMeDate() {
-		return new DateTime(wrapped.getModifiedByMeDate());
+		return wrapped.getModifiedByMeDate() != null ? new DateTime(wrapped.getModifiedByMeDate()) : null;
 	}
 
 	public void setModifiedByMeDate(DateTime modifiedByMeDate) {
-		wrapped.setModifiedByMeDate(modifiedByMeDate.getWrapped());
+		wrapped.setModifiedByMeDate(modifiedByMeDate != null ? modifiedByMeDate.getWrapped() : null);
 	}
 
 	public DateTime getModifiedDate() {
-		return new DateTime(wrapped.getModifiedDate());
+		return wrapped.getModifiedDate() != null ? new DateTime(wrapped.getModifiedDate()) : null;
 	}
 
 	public void setModifiedDate(DateTime modifiedDate) {
-		wrapped.setModifiedDate(modifiedDate.getWrapped());
+		wrapped.setModifiedDate(modifiedDate != null ? modifiedDate.getWrapped() : null);
 	}
 
 	public String getOriginalFilename() {
@@ -282,11 +282,11 @@ public class File extends BaseWrapper<com.google.api.services.drive.model.File>
 	}
 
 	public DateTime getSharedWithMeDate() {
-		return new DateTime(wrapped.getSharedWithMeDate());
+		return wrapped.getSharedWithMeDate() != null ? new DateTime(wrapped.getSharedWithMeDate()) : null;
 	}
 
 	public void setSharedWithMeDate(DateTime sharedWithMeDate) {
-		wrapped.setSharedWithMeDate(sharedWithMeDate.getWrapped());
+		wrapped.setSharedWithMeDate(sharedWithMeDate != null ? sharedWithMeDate.getWrapped() : null);
 	}
 
 	public Thumbnail getThumbnail() {
@@ -112,11 +112,11 @@ public class Revision extends BaseWrapper<com.google.api.services.drive.model.Re
 	}
 
 	public DateTime getModifiedDate() {
-		return new DateTime(wrapped.getModifiedDate());
+		return wrapped.getModifiedDate() != null ? new DateTime(wrapped.getModifiedDate()) : null;
 	}
 
 	public void setModifiedDate(DateTime modifiedDate) {
-		wrapped.setModifiedDate(modifiedDate.getWrapped());
+		wrapped.setModifiedDate(modifiedDate != null ? modifiedDate.getWrapped() : null);
 	}
 
 	public String getOriginalFilename() {
@@ -0,0 +1,41 @@
+/**
+ * Mule Google Drive Cloud Connector
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.module.google.drive.model.batch;
+
+import org.mule.module.google.drive.model.File;
+import org.mule.modules.google.api.client.batch.BatchCallback;
+import org.mule.modules.google.api.client.batch.BatchResponse;
+
+/**
+ * 
+ * @author mariano.gonzalez@mulesoft.com
+ *
+ */
+public class FileBatchCallback extends BatchCallback<File, com.google.api.services.drive.model.File> {
+	
+	public FileBatchCallback() {
+		super();
+	}
+	
+	public FileBatchCallback(BatchResponse<File> response) {
+		super(response);
+	}
+	
+	public FileBatchCallback(BatchResponse<File> response, int index) {
+		super(response, index);
+	}
+	
+	@Override
+	protected File typeToWrapper(com.google.api.services.drive.model.File object) {
+		return new File(object);
+	}
+
+}
@@ -0,0 +1,41 @@
+/**
+ * Mule Google Drive Cloud Connector
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.module.google.drive.model.batch;
+
+import org.mule.module.google.drive.model.Permission;
+import org.mule.modules.google.api.client.batch.BatchCallback;
+import org.mule.modules.google.api.client.batch.BatchResponse;
+
+/**
+ * 
+ * @author mariano.gonzalez@mulesoft.com
+ *
+ */
+public class PermissionBatchCallback extends BatchCallback<Permission, com.google.api.services.drive.model.Permission> {
+	
+	public PermissionBatchCallback() {
+		super();
+	}
+	
+	public PermissionBatchCallback(BatchResponse<Permission> response) {
+		super(response);
+	}
+	
+	public PermissionBatchCallback(BatchResponse<Permission> response, int index) {
+		super(response, index);
+	}
+	
+	@Override
+	protected Permission typeToWrapper(com.google.api.services.drive.model.Permission object) {
+		return new Permission(object);
+	}
+
+}
@@ -31,14 +31,21 @@ public class StreamContent extends AbstractInputStreamContent {
 		this.in = in;
 	}
 	
+	/**
+	 * The length of a stream is unknown until it's consumed. {@link java.io.InputStream#available()}
+	 * is only an estimate, so -1 is returned instead
+	 */
 	@Override
 	public long getLength() throws IOException {
-		return this.in.available();
+		return -1;
 	}
 
+	/**
+	 * The stream cannot be read twice, so requests cannot be retried
+	 */
 	@Override
 	public boolean retrySupported() {
-		return true;
+		return false;
 	}
 
 	@Override
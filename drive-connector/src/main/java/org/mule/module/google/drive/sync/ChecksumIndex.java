@@ -0,0 +1,103 @@
+/**
+ * Mule Google Drive Cloud Connector
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.module.google.drive.sync;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded cache of the md5 checksums of files already in Drive, so that repeated
+ * syncs don't need to ask for the metadata of files that didn't change.
+ * 
+ * Entries are looked up by the file's id or by its path, which is the id of the parent folder followed by the title.
+ * When full, the least recently used entries are evicted. Notice that changes made to a file by someone else are not
+ * seen by the cache, so entries need to be checked against Drive before the file they point to is updated.
+ * 
+ * @author mariano.gonzalez@mulesoft.com
+ *
+ */
+public class ChecksumIndex {
+
+	private final Map<String, Entry> entries;
+	
+	/**
+	 * @param maxSize the maximum number of entries to keep
+	 */
+	public ChecksumIndex(final int maxSize) {
+		this.entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+			
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+				return this.size() > maxSize;
+			}
+		};
+	}
+	
+	public static String idKey(String fileId) {
+		return "id:" + fileId;
+	}
+	
+	public static String pathKey(String parentId, String title) {
+		return "path:" + parentId + "/" + title;
+	}
+	
+	public synchronized Entry get(String key) {
+		return this.entries.get(key);
+	}
+	
+	public synchronized void put(String key, Entry entry) {
+		this.entries.put(key, entry);
+	}
+	
+	/**
+	 * Removes every entry of the given file, whether keyed by id or by path
+	 * 
+	 * @param fileId the id of the file
+	 */
+	public synchronized void evict(String fileId) {
+		Iterator<Entry> it = this.entries.values().iterator();
+		
+		while (it.hasNext()) {
+			if (it.next().getFileId().equals(fileId)) {
+				it.remove();
+			}
+		}
+	}
+	
+	public synchronized void clear() {
+		this.entries.clear();
+	}
+	
+	/**
+	 * The id and checksum of a file in Drive
+	 */
+	public static class Entry {
+		
+		private final String fileId;
+		private final String md5Checksum;
+		
+		public Entry(String fileId, String md5Checksum) {
+			this.fileId = fileId;
+			this.md5Checksum = md5Checksum;
+		}
+		
+		public String getFileId() {
+			return fileId;
+		}
+		
+		public String getMd5Checksum() {
+			return md5Checksum;
+		}
+	}
+}
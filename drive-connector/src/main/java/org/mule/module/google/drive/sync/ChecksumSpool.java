@@ -0,0 +1,106 @@
+/**
+ * Mule Google Drive Cloud Connector
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.module.google.drive.sync;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import org.apache.commons.io.IOUtils;
+
+/**
+ * Copies a stream into a temporary file computing its md5 checksum on the way,
+ * so that the content can be compared with the one in Drive before deciding to upload it
+ * 
+ * @author mariano.gonzalez@mulesoft.com
+ *
+ */
+public class ChecksumSpool {
+
+	private final File file;
+	private final String md5Checksum;
+	
+	private ChecksumSpool(File file, String md5Checksum) {
+		this.file = file;
+		this.md5Checksum = md5Checksum;
+	}
+	
+	/**
+	 * Spools the given stream, which is closed afterwards
+	 * 
+	 * @param content the content
+	 * @return the spooled content
+	 * @throws IOException if the content could not be spooled
+	 */
+	public static ChecksumSpool of(InputStream content) throws IOException {
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("MD5");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException("MD5 is not supported", e);
+		}
+		
+		File file = File.createTempFile("mule-drive-sync", ".tmp");
+		InputStream in = new DigestInputStream(content, digest);
+		OutputStream out = new FileOutputStream(file);
+		
+		try {
+			IOUtils.copyLarge(in, out);
+			out.close();
+		} catch (IOException e) {
+			IOUtils.closeQuietly(out);
+			file.delete();
+			throw e;
+		} finally {
+			IOUtils.closeQuietly(in);
+		}
+		
+		return new ChecksumSpool(file, toHex(digest.digest()));
+	}
+	
+	private static String toHex(byte[] bytes) {
+		StringBuilder builder = new StringBuilder(bytes.length * 2);
+		
+		for (byte b : bytes) {
+			builder.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+		}
+		
+		return builder.toString();
+	}
+	
+	/**
+	 * @return the temporary file holding the content
+	 */
+	public File getFile() {
+		return file;
+	}
+	
+	/**
+	 * @return the content's md5 checksum as a lower case hex string, same as Drive reports it
+	 */
+	public String getMd5Checksum() {
+		return md5Checksum;
+	}
+	
+	/**
+	 * Deletes the temporary file
+	 */
+	public void delete() {
+		if (!this.file.delete()) {
+			this.file.deleteOnExit();
+		}
+	}
+}
@@ -0,0 +1,284 @@
+/**
+ * Mule Google Drive Cloud Connector
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.module.google.drive.tree;
+
+import java.io.Closeable;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.lang.StringUtils;
+import org.mule.module.google.drive.model.File;
+
+import com.google.api.services.drive.Drive;
+import com.google.api.services.drive.model.FileList;
+
+/**
+ * Iterator that crawls a folder hierarchy breadth first and returns its files as they are found.
+ *
+ * Each folder is listed with a files query over its parents, so that a single paged request returns the
+ * metadata of all the folder's children. Folders are listed by a bounded pool of threads and the files they
+ * contain are handed to the consumer through a bounded buffer, so that the crawl pauses when the consumer falls behind.
+ *
+ * A file with many parents is returned only once and every folder is listed only once, so cycles are not followed.
+ *
+ * The crawl starts on the first invocation of {@link #hasNext()} and ends when the last folder is listed, when the
+ * iterator is closed or when the consumer doesn't take a file for idleTimeout milliseconds. In the latter case the crawl
+ * is abandoned and a consumer that comes back gets an exception instead of a truncated listing.
+ *
+ * @author mariano.gonzalez@mulesoft.com
+ *
+ */
+public class FolderTreeWalker implements Iterator<File>, Closeable {
+
+	public static final String FOLDER_MIME_TYPE = "application/vnd.google-apps.folder";
+
+	private static final Object END = new Object();
+
+	private final Drive client;
+	private final String rootId;
+	private final int threads;
+	private final int maxDepth;
+	private final int maxResults;
+	private final long idleTimeout;
+	private final String fields;
+	private final BlockingQueue<Object> buffer;
+	private final Set<String> visited = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+	private final AtomicInteger pendingFolders = new AtomicInteger();
+	private ExecutorService executor;
+	private Object next;
+	private RuntimeException failure;
+	private volatile boolean done = false;
+
+	/**
+	 * @param client the drive client
+	 * @param rootId the id of the folder to crawl
+	 * @param threads the maximum number of folders to list at the same time
+	 * @param maxDepth the maximum depth to descend into. Files of the root folder are at depth 1. Use zero or less for no limit
+	 * @param maxResults the maximum number of files per page
+	 * @param bufferSize the maximum number of files found but not yet consumed
+	 * @param idleTimeout the maximum number of milliseconds to wait for the consumer to make room in the buffer before abandoning the crawl
+	 * @param fields the file fields to retrieve, or null for all of them. id and mimeType are always retrieved
+	 */
+	public FolderTreeWalker(Drive client, String rootId, int threads, int maxDepth, int maxResults, int bufferSize, long idleTimeout, List<String> fields) {
+		this.client = client;
+		this.rootId = rootId;
+		this.threads = Math.max(1, threads);
+		this.maxDepth = maxDepth;
+		this.maxResults = maxResults;
+		this.idleTimeout = idleTimeout;
+		this.fields = this.toFields(fields);
+		this.buffer = new ArrayBlockingQueue<Object>(Math.max(1, bufferSize));
+	}
+
+	@Override
+	public boolean hasNext() {
+		if (this.failure != null) {
+			throw this.failure;
+		}
+
+		if (this.done) {
+			return false;
+		}
+
+		if (this.executor == null) {
+			this.start();
+		}
+
+		if (this.next == null) {
+			try {
+				this.next = this.buffer.take();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw this.fail(e);
+			}
+		}
+
+		if (this.next == END) {
+			this.close();
+			return false;
+		}
+
+		if (this.next instanceof Failure) {
+			throw this.fail(((Failure) this.next).cause);
+		}
+
+		return true;
+	}
+
+	@Override
+	public File next() {
+		if (!this.hasNext()) {
+			throw new NoSuchElementException();
+		}
+
+		File file = (File) this.next;
+		this.next = null;
+
+		return file;
+	}
+
+	@Override
+	public void remove() {
+		throw new UnsupportedOperationException();
+	}
+
+	/**
+	 * Stops crawling. Files already found but not consumed are discarded
+	 */
+	@Override
+	public void close() {
+		if (!this.done) {
+			this.done = true;
+
+			if (this.executor != null) {
+				this.executor.shutdownNow();
+			}
+
+			this.buffer.clear();
+		}
+	}
+
+	private void start() {
+		this.executor = Executors.newFixedThreadPool(this.threads, new ThreadFactory() {
+
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread thread = new Thread(r, "google-drive-tree-walker");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+
+		this.visited.add(this.rootId);
+		this.submit(this.rootId, 1);
+	}
+
+	private RuntimeException fail(Throwable cause) {
+		this.failure = new RuntimeException("Could not walk folder tree", cause);
+		this.next = null;
+		this.close();
+
+		return this.failure;
+	}
+
+	private void submit(final String folderId, final int depth) {
+		this.pendingFolders.incrementAndGet();
+
+		this.executor.execute(new Runnable() {
+
+			@Override
+			public void run() {
+				try {
+					list(folderId, depth);
+
+					if (pendingFolders.decrementAndGet() == 0) {
+						publish(END);
+					}
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				} catch (Exception e) {
+					try {
+						publish(new Failure(e));
+					} catch (InterruptedException ie) {
+						Thread.currentThread().interrupt();
+					}
+				}
+			}
+		});
+	}
+
+	/**
+	 * Hands an item to the consumer. If there's no room in the buffer for longer than idleTimeout,
+	 * the consumer is considered gone and the crawl is abandoned
+	 */
+	private void publish(Object item) throws InterruptedException {
+		if (this.done) {
+			throw new InterruptedException("Folder tree walker is closed");
+		}
+
+		if (!this.buffer.offer(item, this.idleTimeout, TimeUnit.MILLISECONDS)) {
+			this.executor.shutdownNow();
+
+			Failure abandoned = new Failure(new IllegalStateException(
+					String.format("Folder tree walk abandoned after %d ms without files being consumed", this.idleTimeout)));
+
+			// other crawling threads might still be handing their last file while being interrupted
+			do {
+				this.buffer.clear();
+			} while (!this.buffer.offer(abandoned));
+
+			throw new InterruptedException("Folder tree walk abandoned");
+		}
+	}
+
+	private void list(String folderId, int depth) throws Exception {
+		String pageToken = null;
+
+		do {
+			FileList page = this.client.files().list()
+								.setQ(String.format("'%s' in parents and trashed = false", folderId))
+								.setMaxResults(this.maxResults)
+								.setPageToken(pageToken)
+								.setFields(this.fields)
+								.execute();
+
+			if (page.getItems() != null) {
+				for (com.google.api.services.drive.model.File file : page.getItems()) {
+					if (!this.visited.add(file.getId())) {
+						continue;
+					}
+
+					if (FOLDER_MIME_TYPE.equals(file.getMimeType()) && (this.maxDepth <= 0 || depth < this.maxDepth)) {
+						this.submit(file.getId(), depth + 1);
+					}
+
+					this.publish(new File(file));
+				}
+			}
+
+			pageToken = page.getNextPageToken();
+		} while (!StringUtils.isBlank(pageToken) && !Thread.currentThread().isInterrupted());
+	}
+
+	private String toFields(List<String> fields) {
+		if (fields == null || fields.isEmpty()) {
+			return null;
+		}
+
+		StringBuilder builder = new StringBuilder("nextPageToken,items(id,mimeType");
+
+		for (String field : fields) {
+			builder.append(',').append(field);
+		}
+
+		return builder.append(')').toString();
+	}
+
+	private static class Failure {
+
+		private final Throwable cause;
+
+		private Failure(Throwable cause) {
+			this.cause = cause;
+		}
+	}
+}
@@ -0,0 +1,304 @@
+/**
+ * Mule Google Drive Cloud Connector
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.module.google.drive.upload;
+
+import java.io.Closeable;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang.StringUtils;
+import org.apache.log4j.Logger;
+
+import com.google.api.client.http.ByteArrayContent;
+import com.google.api.client.http.GenericUrl;
+import com.google.api.client.http.HttpRequest;
+import com.google.api.client.http.HttpRequestFactory;
+import com.google.api.client.http.HttpResponse;
+import com.google.api.client.http.HttpResponseException;
+import com.google.api.client.http.json.JsonHttpContent;
+import com.google.api.client.json.JsonFactory;
+import com.google.api.client.json.JsonObjectParser;
+import com.google.api.services.drive.model.File;
+
+/**
+ * Uploads a file using Drive's resumable upload protocol. A session is started with the file's metadata
+ * and then the content is sent in chunks of a fixed size, each one acknowledged by the server.
+ *
+ * If a chunk fails because of a connection problem, a server error or rate limiting, the server is asked for the last
+ * byte it received and the upload resumes from there, up to maxRetries consecutive times with an exponential
+ * backoff between attempts. A chunk that the server acknowledges without moving past the bytes it already had
+ * counts as a failed attempt too, so that a stuck session doesn't loop forever.
+ *
+ * Since chunks need to be re-read when resuming, the content is read through a {@link java.nio.channels.FileChannel}.
+ * File streams are read in place and any other stream is spooled into a temporary file first, which
+ * also gives the exact content length the protocol requires.
+ *
+ * @author mariano.gonzalez@mulesoft.com
+ *
+ */
+public class ResumableUpload {
+
+	private static final Logger logger = Logger.getLogger(ResumableUpload.class);
+
+	public static final String UPLOAD_URL = "https://www.googleapis.com/upload/drive/v2/files";
+
+	/**
+	 * Chunk sizes need to be multiple of this value
+	 */
+	public static final int MINIMUM_CHUNK_SIZE = 256 * 1024;
+	public static final int DEFAULT_MAX_RETRIES = 5;
+
+	private static final int RESUME_INCOMPLETE = 308;
+	private static final int TOO_MANY_REQUESTS = 429;
+	private static final long UNKNOWN_OFFSET = -1;
+	private static final long MAX_BACKOFF = 32000;
+
+	private final HttpRequestFactory requestFactory;
+	private final JsonFactory jsonFactory;
+	private final int chunkSize;
+	private final int maxRetries;
+
+	/**
+	 * @param requestFactory the factory of the authorized requests
+	 * @param jsonFactory the factory to serialize the metadata and parse the response with
+	 * @param chunkSize the number of bytes to send on each request. It's rounded up to the closest multiple of {@link #MINIMUM_CHUNK_SIZE}
+	 * @param maxRetries the maximum number of consecutive failed attempts before giving up
+	 */
+	public ResumableUpload(HttpRequestFactory requestFactory, JsonFactory jsonFactory, int chunkSize, int maxRetries) {
+		this.requestFactory = requestFactory;
+		this.jsonFactory = jsonFactory;
+		this.chunkSize = Math.max(1, (chunkSize + MINIMUM_CHUNK_SIZE - 1) / MINIMUM_CHUNK_SIZE) * MINIMUM_CHUNK_SIZE;
+		this.maxRetries = maxRetries;
+	}
+
+	/**
+	 * Uploads the given content
+	 *
+	 * @param url the upload url including any query parameters other than uploadType
+	 * @param metadata the file's metadata
+	 * @param mimeType the content's mime type
+	 * @param content the content. It's closed once the upload finishes
+	 * @return the created file
+	 * @throws IOException if the upload fails
+	 */
+	public File upload(GenericUrl url, File metadata, String mimeType, InputStream content) throws IOException {
+		Source source = Source.of(content);
+
+		try {
+			GenericUrl session = this.startSession(url, metadata, mimeType, source.length);
+			return this.send(session, source, mimeType);
+		} finally {
+			source.close();
+		}
+	}
+
+	private GenericUrl startSession(GenericUrl url, File metadata, String mimeType, long length) throws IOException {
+		GenericUrl sessionUrl = url.clone();
+		sessionUrl.put("uploadType", "resumable");
+
+		HttpRequest request = this.requestFactory.buildPostRequest(sessionUrl, new JsonHttpContent(this.jsonFactory, metadata));
+		request.getHeaders().set("X-Upload-Content-Type", mimeType);
+		request.getHeaders().set("X-Upload-Content-Length", length);
+
+		HttpResponse response = request.execute();
+		try {
+			String location = response.getHeaders().getLocation();
+			if (StringUtils.isBlank(location)) {
+				throw new IOException("Resumable upload session was not created: response has no location");
+			}
+
+			return new GenericUrl(location);
+		} finally {
+			response.ignore();
+		}
+	}
+
+	private File send(GenericUrl session, Source source, String mimeType) throws IOException {
+		long offset = 0;
+		long acknowledged = 0;
+		int failures = 0;
+
+		while (true) {
+			boolean query = offset == UNKNOWN_OFFSET;
+			HttpResponse response;
+			try {
+				response = query ? this.queryOffset(session, source) : this.sendChunk(session, source, offset, mimeType);
+			} catch (IOException e) {
+				failures = this.retryOrThrow(failures, e);
+				offset = UNKNOWN_OFFSET;
+				continue;
+			}
+
+			int status = response.getStatusCode();
+
+			if (status == RESUME_INCOMPLETE) {
+				offset = this.getNextOffset(response);
+				response.ignore();
+
+				if (offset > acknowledged) {
+					acknowledged = offset;
+					failures = 0;
+				} else if (!query) {
+					failures = this.retryOrThrow(failures, new IOException(String.format("Upload session made no progress past byte %d", acknowledged)));
+				}
+			} else if (response.isSuccessStatusCode()) {
+				return response.parseAs(File.class);
+			} else {
+				HttpResponseException e = new HttpResponseException(response);
+				if (status < 500 && status != TOO_MANY_REQUESTS) {
+					throw e;
+				}
+
+				failures = this.retryOrThrow(failures, e);
+				offset = UNKNOWN_OFFSET;
+			}
+		}
+	}
+
+	private HttpResponse sendChunk(GenericUrl session, Source source, long offset, String mimeType) throws IOException {
+		int size = (int) Math.min(this.chunkSize, source.length - offset);
+		byte[] chunk = source.read(offset, size);
+
+		String range = source.length == 0 ? "bytes */0" : String.format("bytes %d-%d/%d", offset, offset + size - 1, source.length);
+		return this.execute(session, new ByteArrayContent(mimeType, chunk), range);
+	}
+
+	private HttpResponse queryOffset(GenericUrl session, Source source) throws IOException {
+		return this.execute(session, new ByteArrayContent(null, new byte[0]), "bytes */" + source.length);
+	}
+
+	private HttpResponse execute(GenericUrl session, ByteArrayContent content, String range) throws IOException {
+		HttpRequest request = this.requestFactory.buildPutRequest(session, content);
+		request.getHeaders().set("Content-Range", range);
+		request.setParser(new JsonObjectParser(this.jsonFactory));
+		request.setThrowExceptionOnExecuteError(false);
+		request.setNumberOfRetries(0);
+
+		return request.execute();
+	}
+
+	/**
+	 * Parses the range header of a resume incomplete response, which has the form bytes=0-N
+	 */
+	private long getNextOffset(HttpResponse response) {
+		Object range = response.getHeaders().get("Range");
+		if (range instanceof Iterable<?>) {
+			range = ((Iterable<?>) range).iterator().next();
+		}
+
+		if (range == null || StringUtils.isBlank(range.toString())) {
+			return 0;
+		}
+
+		return Long.parseLong(StringUtils.substringAfter(range.toString(), "-").trim()) + 1;
+	}
+
+	private int retryOrThrow(int failures, IOException e) throws IOException {
+		if (failures >= this.maxRetries) {
+			throw e;
+		}
+
+		long backoff = Math.min(MAX_BACKOFF, 1000L << failures);
+
+		if (logger.isDebugEnabled()) {
+			logger.debug(String.format("Upload chunk failed, resuming in %d ms", backoff), e);
+		}
+
+		try {
+			Thread.sleep(backoff);
+		} catch (InterruptedException ie) {
+			Thread.currentThread().interrupt();
+			throw e;
+		}
+
+		return failures + 1;
+	}
+
+	/**
+	 * Repeatable view of the upload content
+	 */
+	private static class Source implements Closeable {
+
+		private final InputStream in;
+		private final FileChannel channel;
+		private final long start;
+		private final long length;
+		private final java.io.File spool;
+
+		private Source(InputStream in, FileChannel channel, long start, java.io.File spool) throws IOException {
+			this.in = in;
+			this.channel = channel;
+			this.start = start;
+			this.length = channel.size() - start;
+			this.spool = spool;
+		}
+
+		private static Source of(InputStream in) throws IOException {
+			if (in instanceof FileInputStream) {
+				FileChannel channel = ((FileInputStream) in).getChannel();
+				return new Source(in, channel, channel.position(), null);
+			}
+
+			java.io.File spool = java.io.File.createTempFile("mule-drive-upload", ".tmp");
+			OutputStream out = new FileOutputStream(spool);
+			try {
+				IOUtils.copyLarge(in, out);
+			} catch (IOException e) {
+				IOUtils.closeQuietly(out);
+				IOUtils.closeQuietly(in);
+				spool.delete();
+				throw e;
+			}
+
+			out.close();
+			return new Source(in, new RandomAccessFile(spool, "r").getChannel(), 0, spool);
+		}
+
+		private byte[] read(long offset, int size) throws IOException {
+			ByteBuffer buffer = ByteBuffer.allocate(size);
+			long position = this.start + offset;
+
+			while (buffer.hasRemaining()) {
+				int read = this.channel.read(buffer, position);
+				if (read < 0) {
+					throw new IOException("Upload content is shorter than expected");
+				}
+				position += read;
+			}
+
+			return buffer.array();
+		}
+
+		@Override
+		public void close() {
+			IOUtils.closeQuietly(this.in);
+
+			if (this.spool != null) {
+				try {
+					this.channel.close();
+				} catch (IOException e) {
+					logger.warn("Could not close upload spool file " + this.spool.getAbsolutePath(), e);
+				}
+
+				if (!this.spool.delete()) {
+					this.spool.deleteOnExit();
+				}
+			}
+		}
+	}
+}
@@ -15,6 +15,8 @@ import java.io.IOException;
 import org.mule.api.annotations.Configurable;
 import org.mule.api.annotations.Connector;
 import org.mule.api.annotations.Processor;
+import org.mule.api.annotations.lifecycle.Start;
+import org.mule.api.annotations.lifecycle.Stop;
 import org.mule.api.annotations.oauth.OAuth2;
 import org.mule.api.annotations.oauth.OAuthAccessToken;
 import org.mule.api.annotations.oauth.OAuthAccessTokenIdentifier;
@@ -31,6 +33,7 @@ import org.mule.modules.google.AbstractGoogleOAuthConnector;
 import org.mule.modules.google.AccessType;
 import org.mule.modules.google.ForcePrompt;
 import org.mule.modules.google.IdentifierPolicy;
+import org.mule.modules.google.api.client.http.HttpTransportProvider;
 import org.mule.modules.google.oauth.invalidation.InvalidationAwareCredential;
 import org.mule.modules.google.oauth.invalidation.OAuthTokenExpiredException;
 import org.mule.modules.google.prediction.model.Analyze;
@@ -40,8 +43,6 @@ import org.mule.modules.google.prediction.model.Training;
 
 import com.google.api.client.auth.oauth2.BearerToken;
 import com.google.api.client.auth.oauth2.Credential;
-import com.google.api.client.http.javanet.NetHttpTransport;
-import com.google.api.client.json.jackson.JacksonFactory;
 import com.google.api.services.prediction.Prediction;
 import com.google.api.services.prediction.PredictionScopes;
 import com.google.api.services.prediction.model.Input;
@@ -111,6 +112,14 @@ public class GooglePredictionConnector extends AbstractGoogleOAuthConnector {
     @Default("Mule-GooglePredictionConnector/1.0")
     private String applicationName;
 
+    /**
+     * Provider of the pooled http transport used by the client. Set it to a bean to tune
+     * pool limits and timeouts. If not provided, the provider shared by all the connectors is used
+     */
+    @Configurable
+    @Optional
+    private HttpTransportProvider transportProvider;
+
     @OAuthAccessToken
     private String accessToken;
 
@@ -119,6 +128,29 @@ public class GooglePredictionConnector extends AbstractGoogleOAuthConnector {
      */
     private Prediction client;
     
+    /**
+	 * Initializes the connector. if no transportProvider was provided, then the one
+	 * shared by all the connectors is used
+	 */
+	@Start
+	public void init() {
+		if (this.transportProvider == null) {
+			this.transportProvider = HttpTransportProvider.getDefault();
+		}
+		
+		this.transportProvider.retain();
+	}
+	
+	/**
+	 * Releases the transport provider, so that its connections are closed once no connector uses it
+	 */
+	@Stop
+	public void stop() {
+		if (this.transportProvider != null) {
+			this.transportProvider.release();
+		}
+	}
+	
     @OAuthAccessTokenIdentifier
 	public String getAccessTokenId() {
 		return this.identifierPolicy.getId(this);
@@ -129,11 +161,20 @@ public class GooglePredictionConnector extends AbstractGoogleOAuthConnector {
 		Credential credential = new InvalidationAwareCredential(BearerToken.authorizationHeaderAccessMethod());
 		credential.setAccessToken(this.getAccessToken());
 		
-		this.client = new Prediction.Builder(new NetHttpTransport(), new JacksonFactory(), credential)
+		this.client = new Prediction.Builder(this.transportProvider.getTransport(), this.transportProvider.getJsonFactory(),
+						this.transportProvider.getRequestInitializer(credential))
 					    	.setApplicationName(this.applicationName)
 					    	.build();
 	}
 
+    public HttpTransportProvider getTransportProvider() {
+        return transportProvider;
+    }
+
+    public void setTransportProvider(HttpTransportProvider transportProvider) {
+        this.transportProvider = transportProvider;
+    }
+
     public String getConsumerKey() {
         return consumerKey;
     }
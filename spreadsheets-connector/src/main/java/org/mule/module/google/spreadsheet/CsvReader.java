@@ -0,0 +1,166 @@
+/**
+ * Mule Google Spreadsheets Cloud Connector
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.module.google.spreadsheet;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.lang.StringUtils;
+
+/**
+ * Streaming reader of delimited text that reads one record at a time, so that
+ * the whole input never needs to be held in memory.
+ *
+ * Fields can be quoted as described in RFC 4180: a quoted field can contain
+ * column separators, line separators and escaped quotes (two consecutive double quotes).
+ * Separators are matched literally and can be longer than one character. When the line separator
+ * is a new line, a preceding carriage return is dropped as well so that CRLF input is supported.
+ *
+ * @author mariano.gonzalez@mulesoft.com
+ *
+ */
+public class CsvReader implements Closeable {
+
+	private static final char QUOTE = '"';
+
+	private final Reader reader;
+	private final String columnSeparator;
+	private final String lineSeparator;
+	private final boolean dropCarriageReturn;
+	private boolean eof = false;
+
+	public CsvReader(Reader reader, String columnSeparator, String lineSeparator) {
+		if (StringUtils.isEmpty(columnSeparator) || StringUtils.isEmpty(lineSeparator)) {
+			throw new IllegalArgumentException("column and line separators cannot be empty");
+		}
+
+		this.reader = reader instanceof BufferedReader ? reader : new BufferedReader(reader);
+		this.columnSeparator = columnSeparator;
+		this.lineSeparator = lineSeparator;
+		this.dropCarriageReturn = "\n".equals(lineSeparator);
+	}
+
+	/**
+	 * Reads the next record.
+	 *
+	 * @return the record's fields, an empty list if the line was blank or null if the end of the input was reached
+	 * @throws IOException if the input cannot be read
+	 */
+	public List<String> readRecord() throws IOException {
+		if (this.eof) {
+			return null;
+		}
+
+		List<String> record = new ArrayList<String>();
+		StringBuilder field = new StringBuilder();
+		boolean inQuotes = false;
+		boolean quoted = false;
+
+		// number of leading chars in field that came from a quoted section and thus can't be part of a separator
+		int literalLength = 0;
+
+		int c;
+		while ((c = this.reader.read()) != -1) {
+			char ch = (char) c;
+
+			if (inQuotes) {
+				if (ch == QUOTE) {
+					this.reader.mark(1);
+					int next = this.reader.read();
+
+					if (next == QUOTE) {
+						field.append(QUOTE);
+					} else {
+						inQuotes = false;
+						literalLength = field.length();
+						if (next != -1) {
+							this.reader.reset();
+						}
+					}
+				} else {
+					field.append(ch);
+				}
+				continue;
+			}
+
+			if (ch == QUOTE && field.length() == 0 && !quoted) {
+				inQuotes = true;
+				quoted = true;
+				continue;
+			}
+
+			field.append(ch);
+
+			if (this.endsWith(field, this.columnSeparator, literalLength)) {
+				field.setLength(field.length() - this.columnSeparator.length());
+				record.add(field.toString());
+				field.setLength(0);
+				quoted = false;
+				literalLength = 0;
+			} else if (this.endsWith(field, this.lineSeparator, literalLength)) {
+				field.setLength(field.length() - this.lineSeparator.length());
+				this.dropCarriageReturn(field, literalLength);
+
+				if (record.isEmpty() && field.length() == 0 && !quoted) {
+					return record;
+				}
+
+				record.add(field.toString());
+				return record;
+			}
+		}
+
+		this.eof = true;
+
+		if (inQuotes) {
+			throw new IOException("Unexpected end of input inside a quoted field");
+		}
+
+		this.dropCarriageReturn(field, literalLength);
+		if (record.isEmpty() && field.length() == 0 && !quoted) {
+			return null;
+		}
+
+		record.add(field.toString());
+		return record;
+	}
+
+	@Override
+	public void close() throws IOException {
+		this.reader.close();
+	}
+
+	private void dropCarriageReturn(StringBuilder field, int literalLength) {
+		int length = field.length();
+		if (this.dropCarriageReturn && length > literalLength && field.charAt(length - 1) == '\r') {
+			field.setLength(length - 1);
+		}
+	}
+
+	private boolean endsWith(StringBuilder field, String separator, int literalLength) {
+		int start = field.length() - separator.length();
+		if (start < literalLength) {
+			return false;
+		}
+
+		for (int i = 0; i < separator.length(); i++) {
+			if (field.charAt(start + i) != separator.charAt(i)) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+}
@@ -10,6 +10,8 @@
 
 package org.mule.module.google.spreadsheet;
 
+import java.io.IOException;
+import java.io.StringReader;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -36,32 +38,50 @@ public abstract class CsvToRowsAdapter {
 			logger.debug(String.format("extracting rows using lineSeparator: %s, columnSepartor:%s from payload:\n%s", lineSeparator, columnSeparator, input));
 		}
 		
-		String[] lines = input.split(lineSeparator);
-		
-		List<Row> rows = new ArrayList<Row>(lines.length);
+		CsvReader reader = new CsvReader(new StringReader(input), columnSeparator, lineSeparator);
+		List<Row> rows = new ArrayList<Row>();
 		int lineNumber = startingRow;
 		
-		for (String line : lines) {
-			Row row = new Row();
-			row.setRowNumber(lineNumber);
-			
-			String[] columns = line.split(columnSeparator);
-			int columnNumber = startingColumn;
-			
-			for (String column : columns) {
-				Cell cell = new Cell();
-				cell.setValueOrFormula(column);
-				cell.setColumnNumber(columnNumber);
-				cell.setRowNumber(lineNumber);
-				columnNumber++;
-				row.addCell(cell);
+		try {
+			List<String> record;
+			while ((record = reader.readRecord()) != null) {
+				// blank lines take a row number but set no cells, as setCsvValues does
+				if (!record.isEmpty()) {
+					rows.add(adapt(record, lineNumber, startingColumn));
+				}
+				lineNumber++;
 			}
-			
-			rows.add(row);
-			lineNumber++;
+		} catch (IOException e) {
+			throw new IllegalArgumentException("input is not valid delimited text", e);
 		}
 		
 		return rows;
 	}
+	
+	/**
+	 * Transforms one record read by a {@link org.mule.module.google.spreadsheet.CsvReader} into a row
+	 *
+	 * @param record the record's fields
+	 * @param rowNumber the number of the row to be created
+	 * @param startingColumn the number of the column in which the first field is to be set
+	 * @return a {@link org.mule.module.google.spreadsheet.model.Row}
+	 */
+	public static Row adapt(List<String> record, int rowNumber, int startingColumn) {
+		Row row = new Row();
+		row.setRowNumber(rowNumber);
+		
+		int columnNumber = startingColumn;
+		
+		for (String column : record) {
+			Cell cell = new Cell();
+			cell.setValueOrFormula(column);
+			cell.setColumnNumber(columnNumber);
+			cell.setRowNumber(rowNumber);
+			columnNumber++;
+			row.addCell(cell);
+		}
+		
+		return row;
+	}
 
 }
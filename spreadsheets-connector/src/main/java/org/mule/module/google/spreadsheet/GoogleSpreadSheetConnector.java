@@ -13,12 +13,31 @@
  */
 package org.mule.module.google.spreadsheet;
 
+import java.io.BufferedWriter;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.UnsupportedEncodingException;
+import java.io.Writer;
+import java.net.HttpURLConnection;
 import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import org.apache.commons.lang.StringUtils;
 import org.apache.log4j.Logger;
+import org.mule.api.MuleEvent;
 import org.mule.api.annotations.Configurable;
 import org.mule.api.annotations.Connector;
 import org.mule.api.annotations.Processor;
@@ -34,7 +53,9 @@ import org.mule.api.annotations.oauth.OAuthProtected;
 import org.mule.api.annotations.oauth.OAuthScope;
 import org.mule.api.annotations.param.Default;
 import org.mule.api.annotations.param.Optional;
+import org.mule.api.transport.OutputHandler;
 import org.mule.module.google.spreadsheet.model.Cell;
+import org.mule.module.google.spreadsheet.model.CellGrid;
 import org.mule.module.google.spreadsheet.model.ModelParser;
 import org.mule.module.google.spreadsheet.model.Row;
 import org.mule.module.google.spreadsheet.model.Spreadsheet;
@@ -43,11 +64,14 @@ import org.mule.modules.google.AbstractGoogleOAuthConnector;
 import org.mule.modules.google.AccessType;
 import org.mule.modules.google.ForcePrompt;
 import org.mule.modules.google.IdentifierPolicy;
+import org.mule.modules.google.api.concurrent.ExecutionUtils;
+import org.mule.modules.google.api.domain.BatchResult;
 import org.mule.modules.google.oauth.invalidation.InvalidationAwareCredential;
 import org.mule.modules.google.oauth.invalidation.OAuthTokenExpiredException;
 
 import com.google.api.client.auth.oauth2.BearerToken;
 import com.google.api.client.auth.oauth2.Credential;
+import com.google.common.collect.Lists;
 import com.google.gdata.client.authn.oauth.OAuthException;
 import com.google.gdata.client.docs.DocsService;
 import com.google.gdata.client.spreadsheet.CellQuery;
@@ -59,6 +83,7 @@ import com.google.gdata.data.Link;
 import com.google.gdata.data.Person;
 import com.google.gdata.data.PlainTextConstruct;
 import com.google.gdata.data.batch.BatchOperationType;
+import com.google.gdata.data.batch.BatchStatus;
 import com.google.gdata.data.batch.BatchUtils;
 import com.google.gdata.data.spreadsheet.CellEntry;
 import com.google.gdata.data.spreadsheet.CellFeed;
@@ -138,6 +163,52 @@ public class GoogleSpreadSheetConnector extends AbstractGoogleOAuthConnector {
     @Default("Mule-GoogleSpreadsheetsConnector/1.0")
     private String applicationName;
     
+    /**
+     * If true, batch updates fetch all the target cells in one single range query
+     * instead of retrieving each cell entry individually before submitting the batch.
+     * Set to false to fall back to one request per cell
+     */
+    @Configurable
+    @Optional
+    @Default("true")
+    private boolean prefetchCells = true;
+    
+    /**
+     * The maximum number of cell updates to be sent on each batch request.
+     * Bigger updates are split into several batches
+     */
+    @Configurable
+    @Optional
+    @Default("500")
+    private int batchSize = 500;
+    
+    /**
+     * The maximum number of batch requests to be submitted concurrently
+     */
+    @Configurable
+    @Optional
+    @Default("4")
+    private int batchThreads = 4;
+    
+    /**
+     * Number of seconds for which a resolved worksheet is cached, saving the spreadsheet and worksheet
+     * title queries on subsequent operations over the same worksheet. Use zero to disable the cache
+     */
+    @Configurable
+    @Optional
+    @Default("60")
+    private int worksheetCacheTtl = 60;
+    
+    /**
+     * The maximum number of resolved worksheets to be cached
+     */
+    @Configurable
+    @Optional
+    @Default("100")
+    private int worksheetCacheMaxSize = 100;
+    
+    private WorksheetEntryCache worksheetCache;
+    
     @OAuthAccessToken
     private String accessToken;
     
@@ -264,6 +335,7 @@ public class GoogleSpreadSheetConnector extends AbstractGoogleOAuthConnector {
     	setHeaderValue(null);
     	ws = this.spreadsheetService.insert(ss.getWorksheetFeedUrl(), ws);
     	setHeaderValue("*");
+    	this.getWorksheetCache().invalidate(spreadsheet);
     	return new Worksheet(ws);
     }
     
@@ -294,6 +366,7 @@ public class GoogleSpreadSheetConnector extends AbstractGoogleOAuthConnector {
     	
     	WorksheetEntry ws = this.getItem(this.getWorksheetEntriesByTitle(spreadsheet, worksheet, spreadsheetIndex), worksheetIndex);
     	ws.delete();
+    	this.getWorksheetCache().invalidate(spreadsheet);
     }
     
     /**
@@ -335,7 +408,8 @@ public class GoogleSpreadSheetConnector extends AbstractGoogleOAuthConnector {
     		@Optional @Default("0") int spreadsheetIndex,
 			@Optional @Default("0") int worksheetIndex) throws IOException, ServiceException {
     	
-    	WorksheetEntry ws = this.getWorksheetEntry(accessToken, spreadsheet, worksheet, spreadsheetIndex, worksheetIndex);
+    	// always resolve a fresh entry so that a cached one doesn't overwrite newer metadata
+    	WorksheetEntry ws = this.getItem(this.getWorksheetEntriesByTitle(spreadsheet, worksheet, spreadsheetIndex), worksheetIndex);
 		
     	if (!StringUtils.isEmpty(title)) {
     		ws.setTitle(new PlainTextConstruct(title));
@@ -363,6 +437,7 @@ public class GoogleSpreadSheetConnector extends AbstractGoogleOAuthConnector {
     	}
     	
     	ws.update();
+    	this.getWorksheetCache().invalidate(spreadsheet);
     }
     
     /**
@@ -381,12 +456,15 @@ public class GoogleSpreadSheetConnector extends AbstractGoogleOAuthConnector {
      * 							it returns a list with all the ones matching the given title. Use this optional
      * 							attribute to specify the zero-based list index of the want you want to use
      * @param purge if true, the worksheet will be purged before the values are set
+     * @param encoding the encoding used to read the csv when it is given as a byte array or an {@link java.io.InputStream}
+     * @return a list of {@link org.mule.modules.google.api.domain.BatchResult} with the cell updates that failed.
+     * 			The id of each result is the R{row}C{column} reference of the cell. The list is empty if all updates succeeded
      * @throws Exception if an error occurs
      */
     @Processor
     @OAuthProtected
 	@OAuthInvalidateAccessTokenOn(exception=OAuthTokenExpiredException.class)
-    public void setRowValues(
+    public List<BatchResult> setRowValues(
 			@Optional @Default("#[payload:]") List<Row> rows,
 			String spreadsheet,
     		String worksheet,
@@ -396,7 +474,7 @@ public class GoogleSpreadSheetConnector extends AbstractGoogleOAuthConnector {
     	
     	if (rows == null || rows.isEmpty()) {
     		logger.warn("Worksheet contains no rows... skipping update and possible purge");
-    		return;
+    		return new ArrayList<BatchResult>();
     	}
     	
     	if (purge) {
@@ -404,33 +482,61 @@ public class GoogleSpreadSheetConnector extends AbstractGoogleOAuthConnector {
     	}
     	
     	URL cellFeedUrl = this.getWorksheetEntry(accessToken, spreadsheet, worksheet, spreadsheetIndex, worksheetIndex).getCellFeedUrl();
-    	CellFeed batchRequest = new CellFeed();
+    	ExecutorService executor = this.newBatchExecutor();
+    	
+    	try {
+    		return this.updateCells(cellFeedUrl, rows, executor);
+    	} finally {
+    		executor.shutdown();
+    	}
+    }
+    
+    /**
+     * Sets the values of the given rows' cells through the cells batch feed
+     * 
+     * @return a list of {@link org.mule.modules.google.api.domain.BatchResult} with the failed updates
+     */
+    private List<BatchResult> updateCells(URL cellFeedUrl, List<Row> rows, ExecutorService executor) throws Exception {
+    	List<CellEntry> updates = new ArrayList<CellEntry>();
+    	
+    	CellFeed prefetched = this.prefetchCells ? this.prefetchCellEntries(cellFeedUrl, rows) : null;
+    	CellGrid entries = new CellGrid(prefetched != null ? prefetched.getEntries() : new ArrayList<CellEntry>());
     	
     	for (Row row : rows) {
     		for (Cell cell : row.getCells()) {
     			String batchId = "R" + row.getRowNumber() + "C" + cell.getColumnNumber();
-    			URL entryUrl = new URL(cellFeedUrl.toString() + "/" + batchId);
-    			CellEntry batchOperation = this.spreadsheetService.getEntry(entryUrl, CellEntry.class);
+    			CellEntry batchOperation = entries.getEntry(row.getRowNumber(), cell.getColumnNumber());
+    			
+    			if (batchOperation == null) {
+    				URL entryUrl = new URL(cellFeedUrl.toString() + "/" + batchId);
+    				batchOperation = this.spreadsheetService.getEntry(entryUrl, CellEntry.class);
+    			}
+    			
     			batchOperation.changeInputValueLocal(cell.getValueOrFormula());
     			BatchUtils.setBatchId(batchOperation, batchId);
     			BatchUtils.setBatchOperationType(batchOperation, BatchOperationType.UPDATE);
-    			batchRequest.getEntries().add(batchOperation);
+    			updates.add(batchOperation);
     		}
     	}
     	
         // Get the batch feed URL and submit the batch requests
-        CellFeed feed = this.spreadsheetService.getFeed(cellFeedUrl, CellFeed.class);
+        CellFeed feed = prefetched != null ? prefetched : this.spreadsheetService.getFeed(cellFeedUrl, CellFeed.class);
         Link batchLink = feed.getLink(Link.Rel.FEED_BATCH, Link.Type.ATOM);
         URL batchUrl = new URL(batchLink.getHref());
         
-        this.spreadsheetService.batch(batchUrl, batchRequest);
+        return this.submitBatches(batchUrl, updates, executor);
     }
     
     /**
      * 
-     * Performs a batch update of a worksheet's cells taking values from a csv String.
+     * Performs a batch update of a worksheet's cells taking values from a csv.
      * This csv file can have multiple lines and columns and you get to specify what those separators are. 
-     * You can manually specify the csv string or else it will automatically taken from the message payload
+     * You can manually specify the csv string or else it will automatically taken from the message payload.
+     * 
+     * The csv can be a String, a byte array, an {@link java.io.InputStream} or a {@link java.io.Reader}. It is read
+     * as a stream and its cells are sent in chunks of batchSize times batchThreads cells, so that memory usage does not
+     * depend on the csv's size. Fields can be quoted as defined in RFC 4180, in which case they can contain separators,
+     * line breaks and escaped double quotes. Blank lines are skipped, leaving their row untouched
      * 
      * {@sample.xml ../../../doc/GoogleSpreadSheets-connector.xml.sample GoogleSpreadSheets:set-csv-values}
      * 
@@ -449,40 +555,98 @@ public class GoogleSpreadSheetConnector extends AbstractGoogleOAuthConnector {
      * 							it returns a list with all the ones matching the given title. Use this optional
      * 							attribute to specify the zero-based list index of the want you want to use
      * @param purge if true, the worksheet will be purged before the values are set
+     * @param encoding the encoding used to read the csv when it is given as a byte array or an {@link java.io.InputStream}
+     * @return a list of {@link org.mule.modules.google.api.domain.BatchResult} with the cell updates that failed
      * @throws Exception if an error occurs
      */
     @Processor
     @OAuthProtected
 	@OAuthInvalidateAccessTokenOn(exception=OAuthTokenExpiredException.class)
-    public void setCsvValues(
+    public List<BatchResult> setCsvValues(
 			String spreadsheet,
     		String worksheet,
-    		@Optional @Default("#[payload:]") String csv,
+    		@Optional @Default("#[payload:]") Object csv,
     		@Optional @Default("1") int startingRow,
     		@Optional @Default("1") int startingColumn,
     		@Optional @Default("\n") String lineSeparator,
     		@Optional @Default(",") String columnSeparator,
     		@Optional @Default("0") int spreadsheetIndex,
 			@Optional @Default("0") int worksheetIndex,
-			@Optional @Default("false") boolean purge) throws Exception {
+			@Optional @Default("false") boolean purge,
+			@Optional @Default("UTF-8") String encoding) throws Exception {
     	
-    	if (StringUtils.isEmpty(csv)) {
+    	if (csv == null || (csv instanceof String && StringUtils.isEmpty((String) csv))) {
     		if (logger.isDebugEnabled()) {
     			logger.debug("received empty csv value... exiting without updating values nor purging");
     		}
-    		return;
+    		return new ArrayList<BatchResult>();
     	}
     	
     	if (StringUtils.isEmpty(lineSeparator)) {
     		lineSeparator = "\n";
     	}
     	
-    	if (StringUtils.isEmpty(",")) {
+    	if (StringUtils.isEmpty(columnSeparator)) {
     		columnSeparator = ",";
     	}
     	
-    	List<Row> rows = CsvToRowsAdapter.adapt(csv, startingRow, startingColumn, columnSeparator, lineSeparator);
-    	this.setRowValues(rows, spreadsheet, worksheet, spreadsheetIndex, worksheetIndex, purge);
+    	CsvReader reader = new CsvReader(this.toReader(csv, encoding), columnSeparator, lineSeparator);
+    	ExecutorService executor = null;
+    	
+    	try {
+    		if (purge) {
+    			this.purgeWorksheet(spreadsheet, worksheet, spreadsheetIndex, worksheetIndex);
+    		}
+    		
+    		URL cellFeedUrl = this.getWorksheetEntry(accessToken, spreadsheet, worksheet, spreadsheetIndex, worksheetIndex).getCellFeedUrl();
+    		executor = this.newBatchExecutor();
+    		int chunkSize = Math.max(1, this.batchSize) * Math.max(1, this.batchThreads);
+    		
+    		List<BatchResult> failures = new ArrayList<BatchResult>();
+    		List<Row> chunk = new ArrayList<Row>();
+    		int cellCount = 0;
+    		int rowNumber = startingRow;
+    		List<String> record;
+    		
+    		while ((record = reader.readRecord()) != null) {
+    			if (!record.isEmpty()) {
+    				chunk.add(CsvToRowsAdapter.adapt(record, rowNumber, startingColumn));
+    				cellCount += record.size();
+    			}
+    			rowNumber++;
+    			
+    			if (cellCount >= chunkSize) {
+    				failures.addAll(this.updateCells(cellFeedUrl, chunk, executor));
+    				chunk.clear();
+    				cellCount = 0;
+    			}
+    		}
+    		
+    		if (!chunk.isEmpty()) {
+    			failures.addAll(this.updateCells(cellFeedUrl, chunk, executor));
+    		}
+    		
+    		return failures;
+    	} finally {
+    		if (executor != null) {
+    			executor.shutdown();
+    		}
+    		reader.close();
+    	}
+    }
+    
+    private Reader toReader(Object csv, String encoding) throws UnsupportedEncodingException {
+    	if (csv instanceof Reader) {
+    		return (Reader) csv;
+    	} else if (csv instanceof InputStream) {
+    		return new InputStreamReader((InputStream) csv, encoding);
+    	} else if (csv instanceof byte[]) {
+    		return new InputStreamReader(new ByteArrayInputStream((byte[]) csv), encoding);
+    	} else if (csv instanceof String) {
+    		return new StringReader((String) csv);
+    	}
+    	
+    	throw new IllegalArgumentException("Unsupported csv type " + csv.getClass().getCanonicalName());
     }
 
     /**
@@ -601,6 +765,7 @@ public class GoogleSpreadSheetConnector extends AbstractGoogleOAuthConnector {
     
     /**
      * This processors deletes all the cell entries of a specified worksheet.
+     * The cells are cleared through the worksheet's batch feed, using batches of at most batchSize cells
      * 
      * {@sample.xml ../../../doc/GoogleSpreadSheets-connector.xml.sample GoogleSpreadSheets:purge-worksheet}
      * 
@@ -613,7 +778,7 @@ public class GoogleSpreadSheetConnector extends AbstractGoogleOAuthConnector {
      * 							it returns a list with all the ones matching the given title. Use this optional
      * 							attribute to specify the zero-based list index of the want you want to use
      * @throws IOException if there's a communication error with google's servers
-     * @throws ServiceException if the operation raises an error on google's end
+     * @throws ServiceException if the operation raises an error on google's end or any cell could not be cleared
      */
     @Processor
     @OAuthProtected
@@ -627,9 +792,44 @@ public class GoogleSpreadSheetConnector extends AbstractGoogleOAuthConnector {
     	WorksheetEntry worksheetEntry = this.getWorksheetEntry(accessToken, spreadsheet, worksheet, spreadsheetIndex, worksheetIndex);
     	
     	CellFeed cellFeed = this.spreadsheetService.getFeed(worksheetEntry.getCellFeedUrl(), CellFeed.class);
-
-    	for (CellEntry cell : cellFeed.getEntries()) {
-    		cell.delete();
+    	List<CellEntry> cells = cellFeed.getEntries();
+    	
+    	if (cells.isEmpty()) {
+    		return;
+    	}
+    	
+    	// the cells batch feed only supports updates, so clearing a cell's value is the way to delete it
+    	for (CellEntry cell : cells) {
+    		com.google.gdata.data.spreadsheet.Cell googleCell = cell.getCell();
+    		cell.changeInputValueLocal("");
+    		BatchUtils.setBatchId(cell, "R" + googleCell.getRow() + "C" + googleCell.getCol());
+    		BatchUtils.setBatchOperationType(cell, BatchOperationType.UPDATE);
+    	}
+    	
+    	URL batchUrl = new URL(cellFeed.getLink(Link.Rel.FEED_BATCH, Link.Type.ATOM).getHref());
+    	ExecutorService executor = this.newBatchExecutor();
+    	List<BatchResult> failures;
+    	
+    	try {
+    		failures = this.submitBatches(batchUrl, cells, executor);
+    	} finally {
+    		executor.shutdown();
+    	}
+    	
+    	if (!failures.isEmpty()) {
+    		StringBuilder failed = new StringBuilder();
+    		for (BatchResult failure : failures) {
+    			if (failed.length() > 0) {
+    				failed.append(", ");
+    			}
+    			failed.append(failure.getId());
+    			
+    			if (failure.getStatus() != null) {
+    				failed.append(" (").append(failure.getStatus().getCode()).append(' ').append(failure.getStatus().getReason()).append(')');
+    			}
+    		}
+    		
+    		throw new ServiceException(String.format("Could not clear %d out of %d cells of worksheet %s: %s", failures.size(), cells.size(), worksheet, failed));
     	}
     }
     
@@ -820,6 +1020,241 @@ public class GoogleSpreadSheetConnector extends AbstractGoogleOAuthConnector {
     	return ModelParser.toCSV(rows, lineSeparator, columnSeparator);
     }
 
+    /**
+     * Same as get-all-cells-as-csv but instead of building the whole csv in memory, it returns
+     * a streaming payload that writes it into the output stream it's consumed through. The cells
+     * are fetched in windows of rowWindow rows while the payload is being written, so at most one window
+     * is held in memory at a time regardless of the size of the worksheet
+     * 
+     * {@sample.xml ../../../doc/GoogleSpreadSheets-connector.xml.sample GoogleSpreadSheets:get-all-cells-as-csv-stream}
+     * 
+     * @param spreadsheet the title of the spreadsheet containing the worksheet on which the cells are
+     * @param worksheet the title of the worksheet containing the cells you want to get
+     * @param spreadsheetIndex google's api allows for several spreadsheet to have the same name. In this cases
+     * 							it returns a list with all the ones matching the given title. Use this optional
+     * 							attribute to specify the zero-based list index of the want you want to use
+     * @param worksheetIndex google's api allows for several worksheets to have the same name. In this cases
+     * 							it returns a list with all the ones matching the given title. Use this optional
+     * 							attribute to specify the zero-based list index of the want you want to use
+     * @param lineSeparator specifies the character to be used as a line separator. Defaults to the new line <code>\n</code> character
+     * @param columnSeparator specifies the character to be used as a column sperator. Defaults to a comma character
+     * @param encoding the encoding of the generated csv
+     * @param rowWindow the number of rows to be fetched on each request
+     * @return an instance of {@link org.mule.api.transport.OutputHandler} that writes the csv
+     * @throws IOException if there's a communication error with google's servers
+     * @throws ServiceException if the operation raises an error on google's end
+     */
+    @Processor
+    @OAuthProtected
+	@OAuthInvalidateAccessTokenOn(exception=OAuthTokenExpiredException.class)
+    public OutputHandler getAllCellsAsCsvStream(
+			String spreadsheet,
+    		String worksheet,
+    		@Optional @Default(",") String columnSeparator,
+			@Optional @Default("\n") String lineSeparator,
+			@Optional @Default("UTF-8") String encoding,
+			@Optional @Default("500") int rowWindow,
+    		@Optional @Default("0") int spreadsheetIndex,
+			@Optional @Default("0") int worksheetIndex) throws IOException, ServiceException {
+    	
+    	URL cellFeedUrl = this.getCellFeedUrl(spreadsheet, worksheet, spreadsheetIndex, worksheetIndex);
+    	return this.newCsvOutputHandler(cellFeedUrl, 1, Integer.MAX_VALUE, null, null, columnSeparator, lineSeparator, encoding, rowWindow);
+    }
+    
+    /**
+     * Same as get-cell-range-as-csv but instead of building the whole csv in memory, it returns
+     * a streaming payload that writes it into the output stream it's consumed through. The cells
+     * are fetched in windows of rowWindow rows while the payload is being written, so at most one window
+     * is held in memory at a time regardless of the size of the range
+     * 
+     * {@sample.xml ../../../doc/GoogleSpreadSheets-connector.xml.sample GoogleSpreadSheets:get-cell-range-as-csv-stream}
+     * 
+     * @param spreadsheet the title of the spreadsheet containing the worksheet on which the cells are 
+     * @param worksheet the title of the worksheet containing the cells you want to get
+     * @param spreadsheetIndex google's api allows for several spreadsheet to have the same name. In this cases
+     * 							it returns a list with all the ones matching the given title. Use this optional
+     * 							attribute to specify the zero-based list index of the want you want to use
+     * @param worksheetIndex google's api allows for several worksheets to have the same name. In this cases
+     * 							it returns a list with all the ones matching the given title. Use this optional
+     * 							attribute to specify the zero-based list index of the want you want to use
+     * @param minRow the range starting row. This is a 1-based index
+     * @param maxRow the range ending row. This is a 1-based index
+     * @param minCol the range starting column. This is a 1-based index
+     * @param maxCol the range ending column. This is a 1-based index
+     * @param lineSeparator specifies the character to be used as a line separator. Defaults to the new line <code>\n</code> character
+     * @param columnSeparator specifies the character to be used as a column sperator. Defaults to a comma character
+     * @param encoding the encoding of the generated csv
+     * @param rowWindow the number of rows to be fetched on each request
+     * @return an instance of {@link org.mule.api.transport.OutputHandler} that writes the csv
+     * @throws IOException if there's a communication error with google's servers
+     * @throws ServiceException if the operation raises an error on google's end
+     */
+    @Processor
+    @OAuthProtected
+	@OAuthInvalidateAccessTokenOn(exception=OAuthTokenExpiredException.class)
+    public OutputHandler getCellRangeAsCsvStream(
+			String spreadsheet,
+			String worksheet,
+			@Optional @Default("0") int spreadsheetIndex,
+			@Optional @Default("0") int worksheetIndex,
+			@Optional @Default(",") String columnSeparator,
+			@Optional @Default("\n") String lineSeparator,
+			@Optional @Default("UTF-8") String encoding,
+			@Optional @Default("500") int rowWindow,
+			int minRow,
+			int maxRow,
+			int minCol,
+			int maxCol) throws IOException, ServiceException {
+    	
+    	URL cellFeedUrl = this.getCellFeedUrl(spreadsheet, worksheet, spreadsheetIndex, worksheetIndex);
+    	return this.newCsvOutputHandler(cellFeedUrl, minRow, maxRow, minCol, maxCol, columnSeparator, lineSeparator, encoding, rowWindow);
+    }
+    
+    /**
+     * Same as get-all-cells but instead of fetching all the cells at once, it returns an iterator
+     * of {@link org.mule.module.google.spreadsheet.model.Row} that walks the worksheet in windows of rowWindow rows.
+     * Each window is only requested once the rows of the previous ones are being consumed, and up to
+     * prefetchWindows windows are fetched in the background ahead of the consumer, so that the next rows are
+     * usually ready by the time they're needed. Use it with a foreach scope to process large worksheets
+     * without holding them in memory
+     * 
+     * {@sample.xml ../../../doc/GoogleSpreadSheets-connector.xml.sample GoogleSpreadSheets:get-all-cells-as-iterator}
+     * 
+     * @param spreadsheet the title of the spreadsheet containing the worksheet on which the cells are
+     * @param worksheet the title of the worksheet containing the cells you want to get
+     * @param rowWindow the number of rows to be fetched on each request
+     * @param prefetchWindows the maximum number of windows to be fetched ahead of the consumer. Use zero to disable prefetching
+     * @param spreadsheetIndex google's api allows for several spreadsheet to have the same name. In this cases
+     * 							it returns a list with all the ones matching the given title. Use this optional
+     * 							attribute to specify the zero-based list index of the want you want to use
+     * @param worksheetIndex google's api allows for several worksheets to have the same name. In this cases
+     * 							it returns a list with all the ones matching the given title. Use this optional
+     * 							attribute to specify the zero-based list index of the want you want to use
+     * @return an iterator of {@link org.mule.module.google.spreadsheet.model.Row}
+     * @throws IOException if there's a communication error with google's servers
+     * @throws ServiceException if the operation raises an error on google's end
+     */
+    @Processor
+    @OAuthProtected
+	@OAuthInvalidateAccessTokenOn(exception=OAuthTokenExpiredException.class)
+    public Iterator<Row> getAllCellsAsIterator(
+			String spreadsheet,
+    		String worksheet,
+			@Optional @Default("500") int rowWindow,
+			@Optional @Default("1") int prefetchWindows,
+    		@Optional @Default("0") int spreadsheetIndex,
+			@Optional @Default("0") int worksheetIndex) throws IOException, ServiceException {
+    	
+    	URL cellFeedUrl = this.getCellFeedUrl(spreadsheet, worksheet, spreadsheetIndex, worksheetIndex);
+    	return this.newRowIterator(cellFeedUrl, 1, Integer.MAX_VALUE, null, null, rowWindow, prefetchWindows).open();
+    }
+    
+    /**
+     * Same as get-cell-range but instead of fetching all the cells at once, it returns an iterator
+     * of {@link org.mule.module.google.spreadsheet.model.Row} that walks the range in windows of rowWindow rows.
+     * Each window is only requested once the rows of the previous ones are being consumed, and up to
+     * prefetchWindows windows are fetched in the background ahead of the consumer
+     * 
+     * {@sample.xml ../../../doc/GoogleSpreadSheets-connector.xml.sample GoogleSpreadSheets:get-cell-range-as-iterator}
+     * 
+     * @param spreadsheet the title of the spreadsheet containing the worksheet on which the cells are 
+     * @param worksheet the title of the worksheet containing the cells you want to get
+     * @param spreadsheetIndex google's api allows for several spreadsheet to have the same name. In this cases
+     * 							it returns a list with all the ones matching the given title. Use this optional
+     * 							attribute to specify the zero-based list index of the want you want to use
+     * @param worksheetIndex google's api allows for several worksheets to have the same name. In this cases
+     * 							it returns a list with all the ones matching the given title. Use this optional
+     * 							attribute to specify the zero-based list index of the want you want to use
+     * @param rowWindow the number of rows to be fetched on each request
+     * @param prefetchWindows the maximum number of windows to be fetched ahead of the consumer. Use zero to disable prefetching
+     * @param minRow the range starting row. This is a 1-based index
+     * @param maxRow the range ending row. This is a 1-based index
+     * @param minCol the range starting column. This is a 1-based index
+     * @param maxCol the range ending column. This is a 1-based index
+     * @return an iterator of {@link org.mule.module.google.spreadsheet.model.Row}
+     * @throws IOException if there's a communication error with google's servers
+     * @throws ServiceException if the operation raises an error on google's end
+     */
+    @Processor
+    @OAuthProtected
+	@OAuthInvalidateAccessTokenOn(exception=OAuthTokenExpiredException.class)
+    public Iterator<Row> getCellRangeAsIterator(
+			String spreadsheet,
+			String worksheet,
+			@Optional @Default("0") int spreadsheetIndex,
+			@Optional @Default("0") int worksheetIndex,
+			@Optional @Default("500") int rowWindow,
+			@Optional @Default("1") int prefetchWindows,
+			int minRow,
+			int maxRow,
+			int minCol,
+			int maxCol) throws IOException, ServiceException {
+    	
+    	URL cellFeedUrl = this.getCellFeedUrl(spreadsheet, worksheet, spreadsheetIndex, worksheetIndex);
+    	return this.newRowIterator(cellFeedUrl, minRow, maxRow, minCol, maxCol, rowWindow, prefetchWindows).open();
+    }
+    
+    /**
+     * Creates an output handler that pages through the given range in windows of rowWindow
+     * rows, writing the cells of each window as csv while the next one is being fetched
+     */
+    private OutputHandler newCsvOutputHandler(
+    		final URL cellFeedUrl,
+    		final int minRow,
+    		final int maxRow,
+    		final Integer minCol,
+    		final Integer maxCol,
+    		String columnSeparator,
+    		String lineSeparator,
+    		final String encoding,
+    		final int rowWindow) {
+    	
+    	final String lineSep = StringUtils.isEmpty(lineSeparator) ? "\n" : lineSeparator;
+    	final String columnSep = StringUtils.isEmpty(columnSeparator) ? "," : columnSeparator;
+    	
+    	return new OutputHandler() {
+    		
+    		@Override
+    		public void write(MuleEvent event, OutputStream out) throws IOException {
+    			Writer writer = new BufferedWriter(new OutputStreamWriter(out, encoding));
+    			RowWindowIterator<CellEntry> entries = newCellEntryIterator(cellFeedUrl, minRow, maxRow, minCol, maxCol, rowWindow, 1);
+    			
+    			try {
+    				ModelParser.writeCSV(entries, writer, lineSep, columnSep);
+    			} catch (RuntimeException e) {
+    				if (e.getCause() instanceof IOException || e.getCause() instanceof ServiceException) {
+    					throw new IOException("Could not fetch cells: " + e.getCause().getMessage(), e.getCause());
+    				}
+    				throw e;
+    			} finally {
+    				entries.close();
+    			}
+    			
+    			writer.flush();
+    		}
+    	};
+    }
+    
+    private RowWindowIterator<CellEntry> newCellEntryIterator(URL cellFeedUrl, int minRow, int maxRow, Integer minCol, Integer maxCol, int rowWindow, int prefetchWindows) {
+    	return new RowWindowIterator<CellEntry>(this.spreadsheetService, cellFeedUrl, minRow, maxRow, minCol, maxCol, rowWindow, prefetchWindows) {
+    		
+    		@Override
+    		protected Collection<CellEntry> getItems(CellFeed page) {
+    			return page.getEntries();
+    		}
+    	};
+    }
+    
+    private RowWindowIterator<Row> newRowIterator(URL cellFeedUrl, int minRow, int maxRow, Integer minCol, Integer maxCol, int rowWindow, int prefetchWindows) {
+    	return new RowWindowIterator<Row>(this.spreadsheetService, cellFeedUrl, minRow, maxRow, minCol, maxCol, rowWindow, prefetchWindows) {
+    		
+    		@Override
+    		protected Collection<Row> getItems(CellFeed page) {
+    			return ModelParser.parseRows(page);
+    		}
+    	};
+    }
+    
     /**
      * Performs a full-text search on a worksheet and returns a list of {@link org.mule.module.google.spreadsheet.model.Row} 
      * in which each entry represent a cell containing a matching value
@@ -878,13 +1313,30 @@ public class GoogleSpreadSheetConnector extends AbstractGoogleOAuthConnector {
     
     private WorksheetEntry getWorksheetEntry(
     		String accessToken,
-			String spreadsheet,
-    		String worksheet,
-    		int spreadsheetIndex,
-    		int worksheetIndex) throws IOException, ServiceException {
+			final String spreadsheet,
+    		final String worksheet,
+    		final int spreadsheetIndex,
+    		final int worksheetIndex) throws IOException, ServiceException {
     	
-    	List<WorksheetEntry> worksheets = this.getWorksheetEntriesByTitle(spreadsheet, worksheet, spreadsheetIndex);
-    	return this.getItem(worksheets, worksheetIndex);
+    	return this.getWorksheetCache().get(spreadsheet, spreadsheetIndex, worksheet, worksheetIndex, new Callable<WorksheetEntry>() {
+    		
+    		@Override
+    		public WorksheetEntry call() throws Exception {
+    			List<WorksheetEntry> worksheets = getWorksheetEntriesByTitle(spreadsheet, worksheet, spreadsheetIndex);
+    			return getItem(worksheets, worksheetIndex);
+    		}
+    	});
+    }
+    
+    /**
+     * Returns the cache of resolved worksheets, creating it on first use
+     * so that it honors the configured ttl and size
+     */
+    public synchronized WorksheetEntryCache getWorksheetCache() {
+    	if (this.worksheetCache == null) {
+    		this.worksheetCache = new WorksheetEntryCache(this.worksheetCacheTtl, this.worksheetCacheMaxSize);
+    	}
+    	return this.worksheetCache;
     }
     
     private URL getCellFeedUrl(
@@ -896,6 +1348,143 @@ public class GoogleSpreadSheetConnector extends AbstractGoogleOAuthConnector {
     	return this.getWorksheetEntry(accessToken, spreadsheet, worksheet, spreadsheetIndex, worksheetIndex).getCellFeedUrl();
     }
     
+    /**
+     * @return an executor with batchThreads threads to submit the batches of one processor call
+     */
+    private ExecutorService newBatchExecutor() {
+    	return Executors.newFixedThreadPool(Math.max(1, this.batchThreads));
+    }
+    
+    /**
+     * Splits the given batch operations in batches of at most batchSize entries and submits them
+     * through the given executor. A batch that cannot be submitted doesn't abort the others, instead
+     * each of its operations is reported as failed with the status of the error.
+     * 
+     * @return a list of {@link org.mule.modules.google.api.domain.BatchResult} with the failed operations of all batches
+     */
+    private List<BatchResult> submitBatches(final URL batchUrl, List<CellEntry> operations, ExecutorService executor) throws IOException, ServiceException {
+    	List<Callable<List<BatchResult>>> batches = new ArrayList<Callable<List<BatchResult>>>();
+    	
+    	// a single empty batch is still sent when there are no operations, as it always was
+    	List<List<CellEntry>> chunks = operations.isEmpty() ? Collections.singletonList(operations) : Lists.partition(operations, Math.max(1, this.batchSize));
+    	
+    	for (final List<CellEntry> chunk : chunks) {
+    		batches.add(new Callable<List<BatchResult>>() {
+    			
+    			@Override
+    			public List<BatchResult> call() throws Exception {
+    				CellFeed batchRequest = new CellFeed();
+    				batchRequest.getEntries().addAll(chunk);
+    				
+    				CellFeed batchResponse;
+    				
+    				try {
+    					batchResponse = spreadsheetService.batch(batchUrl, batchRequest);
+    				} catch (ServiceException e) {
+    					return failed(chunk, new BatchStatus(e), e);
+    				} catch (IOException e) {
+    					return failed(chunk, null, e);
+    				}
+    				
+    				List<BatchResult> failures = new ArrayList<BatchResult>();
+    				for (CellEntry entry : batchResponse.getEntries()) {
+    					BatchStatus status = BatchUtils.getBatchStatus(entry);
+    					if (status != null && (status.getCode() < 200 || status.getCode() >= 300)) {
+    						failures.add(new BatchResult(entry));
+    					}
+    				}
+    				
+    				return failures;
+    			}
+    		});
+    	}
+    	
+    	List<BatchResult> failures = new ArrayList<BatchResult>();
+    	
+    	try {
+	    	for (List<BatchResult> batchFailures : ExecutionUtils.invokeAll(batches, executor)) {
+	    		failures.addAll(batchFailures);
+	    	}
+    	} catch (IOException e) {
+    		throw e;
+    	} catch (ServiceException e) {
+    		throw e;
+    	} catch (RuntimeException e) {
+    		throw e;
+    	} catch (Exception e) {
+    		throw new IOException("Could not submit cell batches", e);
+    	}
+    	
+    	if (!failures.isEmpty()) {
+    		logger.warn(String.format("%d out of %d cell batch operations failed", failures.size(), operations.size()));
+    	}
+    	
+    	return failures;
+    }
+    
+    /**
+     * Reports every operation of a batch that could not be submitted as failed
+     * 
+     * @param chunk the operations of the batch
+     * @param status the status of the error or null if the request didn't get a response
+     * @param cause the error
+     * @return a list with one {@link org.mule.modules.google.api.domain.BatchResult} per operation
+     */
+    private List<BatchResult> failed(List<CellEntry> chunk, BatchStatus status, Exception cause) {
+    	logger.warn(String.format("Could not submit a batch of %d cell operations", chunk.size()), cause);
+    	
+    	if (status == null) {
+    		status = new BatchStatus();
+    		status.setCode(HttpURLConnection.HTTP_INTERNAL_ERROR);
+    		status.setReason(cause.getMessage());
+    	}
+    	
+    	List<BatchResult> failures = new ArrayList<BatchResult>(chunk.size());
+    	for (CellEntry entry : chunk) {
+    		BatchResult failure = new BatchResult(entry);
+    		failure.setStatus(status);
+    		failures.add(failure);
+    	}
+    	
+    	return failures;
+    }
+    
+    /**
+     * Fetches in one single query all the cell entries in the smallest range that
+     * contains every cell in the given rows. Empty cells are returned too
+     * so that they can be used as batch update entries.
+     * 
+     * @return the fetched feed or null if the rows have no cells
+     */
+    private CellFeed prefetchCellEntries(URL cellFeedUrl, List<Row> rows) throws IOException, ServiceException {
+    	int minRow = Integer.MAX_VALUE;
+    	int maxRow = 0;
+    	int minCol = Integer.MAX_VALUE;
+    	int maxCol = 0;
+    	
+    	for (Row row : rows) {
+    		for (Cell cell : row.getCells()) {
+    			minRow = Math.min(minRow, row.getRowNumber());
+    			maxRow = Math.max(maxRow, row.getRowNumber());
+    			minCol = Math.min(minCol, cell.getColumnNumber());
+    			maxCol = Math.max(maxCol, cell.getColumnNumber());
+    		}
+    	}
+    	
+    	if (maxRow == 0) {
+    		return null;
+    	}
+    	
+    	CellQuery query = new CellQuery(cellFeedUrl);
+    	query.setMinimumRow(minRow);
+    	query.setMaximumRow(maxRow);
+    	query.setMinimumCol(minCol);
+    	query.setMaximumCol(maxCol);
+    	query.setReturnEmpty(true);
+    	
+    	return this.spreadsheetService.query(query, CellFeed.class);
+    }
+    
     private <T> T getItem(List<T> list, int index) {
     	if (list.isEmpty()) {
     		throw new IllegalArgumentException("No item found for that name");
@@ -956,6 +1545,46 @@ public class GoogleSpreadSheetConnector extends AbstractGoogleOAuthConnector {
 		this.docService = docService;
 	}
 
+	public boolean isPrefetchCells() {
+		return prefetchCells;
+	}
+
+	public void setPrefetchCells(boolean prefetchCells) {
+		this.prefetchCells = prefetchCells;
+	}
+
+	public int getBatchSize() {
+		return batchSize;
+	}
+
+	public void setBatchSize(int batchSize) {
+		this.batchSize = batchSize;
+	}
+
+	public int getBatchThreads() {
+		return batchThreads;
+	}
+
+	public void setBatchThreads(int batchThreads) {
+		this.batchThreads = batchThreads;
+	}
+
+	public int getWorksheetCacheTtl() {
+		return worksheetCacheTtl;
+	}
+
+	public void setWorksheetCacheTtl(int worksheetCacheTtl) {
+		this.worksheetCacheTtl = worksheetCacheTtl;
+	}
+
+	public int getWorksheetCacheMaxSize() {
+		return worksheetCacheMaxSize;
+	}
+
+	public void setWorksheetCacheMaxSize(int worksheetCacheMaxSize) {
+		this.worksheetCacheMaxSize = worksheetCacheMaxSize;
+	}
+
 	public IdentifierPolicy getIdentifierPolicy() {
 		return identifierPolicy;
 	}
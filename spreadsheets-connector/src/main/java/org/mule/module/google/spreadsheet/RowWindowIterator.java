@@ -0,0 +1,86 @@
+/**
+ * Mule Google Spreadsheets Cloud Connector
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.module.google.spreadsheet;
+
+import java.net.URL;
+
+import org.mule.modules.google.api.pagination.PagingIterator;
+
+import com.google.gdata.client.spreadsheet.CellQuery;
+import com.google.gdata.client.spreadsheet.SpreadsheetService;
+import com.google.gdata.data.spreadsheet.CellFeed;
+
+/**
+ * {@link org.mule.modules.google.api.pagination.PagingIterator} that walks a range of a worksheet
+ * in windows of a fixed number of rows, issuing one cell query per window. Since the windows are
+ * aligned to rows, every row is completely contained in one window.
+ *
+ * The range's upper row bound is capped by the worksheet's row count as reported by each response,
+ * so that a range open at the bottom doesn't need to know the size of the worksheet beforehand.
+ *
+ * @author mariano.gonzalez@mulesoft.com
+ *
+ * @param <T> the type of the items obtained from each window
+ */
+public abstract class RowWindowIterator<T> extends PagingIterator<CellFeed, T> {
+
+	private final SpreadsheetService spreadsheetService;
+	private final URL cellFeedUrl;
+	private final Integer minCol;
+	private final Integer maxCol;
+	private final int maxRow;
+	private final int rowWindow;
+	private int windowStart;
+	private int lastRow;
+
+	/**
+	 * @param spreadsheetService the service to query the windows with
+	 * @param cellFeedUrl the worksheet's cell feed url
+	 * @param minRow the range starting row. This is a 1-based index
+	 * @param maxRow the range ending row. This is a 1-based index
+	 * @param minCol the range starting column or null if the range is not bounded to the left
+	 * @param maxCol the range ending column or null if the range is not bounded to the right
+	 * @param rowWindow the number of rows to be fetched on each query
+	 * @param prefetchWindows the number of windows to be fetched ahead of the consumer
+	 */
+	public RowWindowIterator(SpreadsheetService spreadsheetService, URL cellFeedUrl, int minRow, int maxRow,
+			Integer minCol, Integer maxCol, int rowWindow, int prefetchWindows) {
+		super(prefetchWindows);
+		this.spreadsheetService = spreadsheetService;
+		this.cellFeedUrl = cellFeedUrl;
+		this.minCol = minCol;
+		this.maxCol = maxCol;
+		this.maxRow = maxRow;
+		this.rowWindow = Math.max(1, rowWindow);
+		this.windowStart = minRow;
+		this.lastRow = maxRow;
+	}
+
+	@Override
+	protected CellFeed fetchPage(CellFeed previous) throws Exception {
+		if (previous != null) {
+			this.lastRow = Math.min(this.maxRow, previous.getRowCount());
+			this.windowStart += this.rowWindow;
+		}
+
+		if (this.windowStart > this.lastRow) {
+			return null;
+		}
+
+		CellQuery query = new CellQuery(this.cellFeedUrl);
+		query.setMinimumRow(this.windowStart);
+		query.setMaximumRow((int) Math.min((long) this.windowStart + this.rowWindow - 1, this.lastRow));
+		query.setMinimumCol(this.minCol);
+		query.setMaximumCol(this.maxCol);
+
+		return this.spreadsheetService.query(query, CellFeed.class);
+	}
+}
@@ -0,0 +1,155 @@
+/**
+ * Mule Google Spreadsheets Cloud Connector
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.module.google.spreadsheet;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import com.google.gdata.data.spreadsheet.WorksheetEntry;
+import com.google.gdata.util.ServiceException;
+
+/**
+ * Cache of resolved worksheet entries keyed by spreadsheet title, spreadsheet index,
+ * worksheet title and worksheet index. It saves the spreadsheet and worksheet
+ * queries that are otherwise needed before any operation on a worksheet.
+ *
+ * Entries expire after a configurable time to live and the least recently used ones
+ * are evicted once the maximum size is reached. A time to live or maximum size lower than one
+ * disables the cache.
+ *
+ * @author mariano.gonzalez@mulesoft.com
+ *
+ */
+public class WorksheetEntryCache {
+
+	private final Cache<Key, WorksheetEntry> cache;
+	private final boolean enabled;
+
+	public WorksheetEntryCache(long ttlSeconds, long maxSize) {
+		this.enabled = ttlSeconds > 0 && maxSize > 0;
+		this.cache = CacheBuilder.newBuilder()
+							.expireAfterWrite(Math.max(ttlSeconds, 0), TimeUnit.SECONDS)
+							.maximumSize(Math.max(maxSize, 0))
+							.recordStats()
+							.build();
+	}
+
+	/**
+	 * Returns the cached worksheet entry for the given coordinates or resolves it
+	 * using the given loader if not present
+	 *
+	 * @param loader the callable that resolves the entry on a cache miss
+	 * @return the worksheet entry
+	 * @throws IOException if the loader fails with it
+	 * @throws ServiceException if the loader fails with it
+	 */
+	public WorksheetEntry get(String spreadsheet, int spreadsheetIndex, String worksheet, int worksheetIndex, Callable<WorksheetEntry> loader) throws IOException, ServiceException {
+		if (!this.enabled) {
+			return call(loader);
+		}
+
+		try {
+			return this.cache.get(new Key(spreadsheet, spreadsheetIndex, worksheet, worksheetIndex), loader);
+		} catch (ExecutionException e) {
+			throw rethrow(e.getCause());
+		} catch (UncheckedExecutionException e) {
+			throw rethrow(e.getCause());
+		}
+	}
+
+	/**
+	 * Discards all the cached worksheets that belong to spreadsheets with the given title
+	 * @param spreadsheet the spreadsheet title
+	 */
+	public void invalidate(String spreadsheet) {
+		for (Iterator<Key> it = this.cache.asMap().keySet().iterator(); it.hasNext();) {
+			if (it.next().spreadsheet.equals(spreadsheet)) {
+				it.remove();
+			}
+		}
+	}
+
+	public void invalidateAll() {
+		this.cache.invalidateAll();
+	}
+
+	public long getHitCount() {
+		return this.stats().hitCount();
+	}
+
+	public long getMissCount() {
+		return this.stats().missCount();
+	}
+
+	public CacheStats stats() {
+		return this.cache.stats();
+	}
+
+	private static WorksheetEntry call(Callable<WorksheetEntry> loader) throws IOException, ServiceException {
+		try {
+			return loader.call();
+		} catch (Exception e) {
+			throw rethrow(e);
+		}
+	}
+
+	private static RuntimeException rethrow(Throwable t) throws IOException, ServiceException {
+		if (t instanceof IOException) {
+			throw (IOException) t;
+		} else if (t instanceof ServiceException) {
+			throw (ServiceException) t;
+		} else if (t instanceof RuntimeException) {
+			throw (RuntimeException) t;
+		} else if (t instanceof Error) {
+			throw (Error) t;
+		}
+
+		return new RuntimeException(t);
+	}
+
+	private static class Key {
+
+		private final String spreadsheet;
+		private final int spreadsheetIndex;
+		private final String worksheet;
+		private final int worksheetIndex;
+
+		private Key(String spreadsheet, int spreadsheetIndex, String worksheet, int worksheetIndex) {
+			this.spreadsheet = spreadsheet;
+			this.spreadsheetIndex = spreadsheetIndex;
+			this.worksheet = worksheet;
+			this.worksheetIndex = worksheetIndex;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (obj instanceof Key) {
+				Key o = (Key) obj;
+				return this.spreadsheetIndex == o.spreadsheetIndex && this.worksheetIndex == o.worksheetIndex
+						&& this.spreadsheet.equals(o.spreadsheet) && this.worksheet.equals(o.worksheet);
+			}
+
+			return false;
+		}
+
+		@Override
+		public int hashCode() {
+			return ((this.spreadsheet.hashCode() * 31 + this.spreadsheetIndex) * 31 + this.worksheet.hashCode()) * 31 + this.worksheetIndex;
+		}
+	}
+}
@@ -0,0 +1,230 @@
+/**
+ * Mule Google Spreadsheets Cloud Connector
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.module.google.spreadsheet.model;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.google.gdata.data.spreadsheet.CellEntry;
+
+/**
+ * Compact sparse grid of cell entries. Entries are indexed by a primitive key
+ * built from their row and column numbers and kept in row major order, so that grouping them
+ * into rows requires no boxing, no hashing and no sorting of the resulting rows or cells.
+ *
+ * Since cell feeds are already returned in row major order, the entries are only sorted if they're not.
+ *
+ * The grid can be exposed as a list of {@link org.mule.module.google.spreadsheet.model.Row} which
+ * are only created the first time they're accessed.
+ *
+ * @author mariano.gonzalez@mulesoft.com
+ *
+ */
+public class CellGrid {
+
+	private final CellEntry[] entries;
+	private final int[] columns;
+	private final int[] rowNumbers;
+
+	/**
+	 * rowOffsets[i] is the position in entries of the first cell of the i-th row. It has one extra element
+	 * holding the total number of entries
+	 */
+	private final int[] rowOffsets;
+
+	public CellGrid(List<CellEntry> entries) {
+		int size = entries.size();
+		long[] keys = new long[size];
+		boolean sorted = true;
+
+		for (int i = 0; i < size; i++) {
+			com.google.gdata.data.spreadsheet.Cell cell = entries.get(i).getCell();
+			keys[i] = key(cell.getRow(), cell.getCol());
+			sorted &= i == 0 || keys[i - 1] <= keys[i];
+		}
+
+		int[] order = new int[size];
+		for (int i = 0; i < size; i++) {
+			order[i] = i;
+		}
+
+		if (!sorted) {
+			sort(order, new int[size], keys, 0, size);
+		}
+
+		this.entries = new CellEntry[size];
+		this.columns = new int[size];
+		int[] rowNumbers = new int[size];
+		int[] rowOffsets = new int[size + 1];
+		int rowCount = 0;
+
+		for (int i = 0; i < size; i++) {
+			long key = keys[order[i]];
+			int row = (int) (key >>> 32);
+
+			this.entries[i] = entries.get(order[i]);
+			this.columns[i] = (int) key;
+
+			if (rowCount == 0 || rowNumbers[rowCount - 1] != row) {
+				rowNumbers[rowCount] = row;
+				rowOffsets[rowCount] = i;
+				rowCount++;
+			}
+		}
+
+		rowOffsets[rowCount] = size;
+
+		this.rowNumbers = Arrays.copyOf(rowNumbers, rowCount);
+		this.rowOffsets = Arrays.copyOf(rowOffsets, rowCount + 1);
+	}
+
+	/**
+	 * @param entries cell entries
+	 * @return whether the entries are sorted by row and then by column
+	 */
+	public static boolean isRowMajor(List<CellEntry> entries) {
+		long previous = Long.MIN_VALUE;
+
+		for (CellEntry entry : entries) {
+			com.google.gdata.data.spreadsheet.Cell cell = entry.getCell();
+			long key = key(cell.getRow(), cell.getCol());
+
+			if (key < previous) {
+				return false;
+			}
+
+			previous = key;
+		}
+
+		return true;
+	}
+
+	/**
+	 * @return the number of rows with at least one cell
+	 */
+	public int getRowCount() {
+		return this.rowNumbers.length;
+	}
+
+	/**
+	 * @return the total number of cells
+	 */
+	public int getCellCount() {
+		return this.entries.length;
+	}
+
+	/**
+	 * @param index the zero based position of the row in the grid
+	 * @return the row's 1-based number in the worksheet
+	 */
+	public int getRowNumber(int index) {
+		return this.rowNumbers[index];
+	}
+
+	/**
+	 * Returns the cell entry on the given row and column
+	 * @param rowNumber the 1-based row number
+	 * @param columnNumber the 1-based column number
+	 * @return a cell entry or null if the grid doesn't have such cell
+	 */
+	public CellEntry getEntry(int rowNumber, int columnNumber) {
+		int row = Arrays.binarySearch(this.rowNumbers, rowNumber);
+		if (row < 0) {
+			return null;
+		}
+
+		int cell = Arrays.binarySearch(this.columns, this.rowOffsets[row], this.rowOffsets[row + 1], columnNumber);
+		return cell < 0 ? null : this.entries[cell];
+	}
+
+	/**
+	 * Returns the rows in the grid, sorted by row number and with their cells sorted by column number.
+	 * Each {@link org.mule.module.google.spreadsheet.model.Row} is created the first time it's accessed
+	 * and the same instance is returned afterwards
+	 *
+	 * @return a list of {@link org.mule.module.google.spreadsheet.model.Row}
+	 */
+	public List<Row> toRows() {
+		return new RowList();
+	}
+
+	private Row createRow(int index) {
+		int from = this.rowOffsets[index];
+		int to = this.rowOffsets[index + 1];
+
+		Row row = new Row();
+		row.setRowNumber(this.rowNumbers[index]);
+
+		List<Cell> cells = new ArrayList<Cell>(to - from);
+		for (int i = from; i < to; i++) {
+			cells.add(ModelParser.parseCell(this.entries[i]));
+		}
+
+		row.setCells(cells);
+		return row;
+	}
+
+	private class RowList extends AbstractList<Row> {
+
+		private final Row[] rows = new Row[rowNumbers.length];
+
+		@Override
+		public Row get(int index) {
+			Row row = this.rows[index];
+			if (row == null) {
+				row = createRow(index);
+				this.rows[index] = row;
+			}
+
+			return row;
+		}
+
+		@Override
+		public int size() {
+			return this.rows.length;
+		}
+	}
+
+	private static long key(int row, int column) {
+		return ((long) row << 32) | (column & 0xFFFFFFFFL);
+	}
+
+	/**
+	 * Stable merge sort of the positions in order by their keys
+	 */
+	private static void sort(int[] order, int[] buffer, long[] keys, int from, int to) {
+		if (to - from < 2) {
+			return;
+		}
+
+		int middle = (from + to) >>> 1;
+		sort(order, buffer, keys, from, middle);
+		sort(order, buffer, keys, middle, to);
+
+		if (keys[order[middle - 1]] <= keys[order[middle]]) {
+			return;
+		}
+
+		System.arraycopy(order, from, buffer, from, to - from);
+
+		int left = from;
+		int right = middle;
+		for (int i = from; i < to; i++) {
+			if (right >= to || (left < middle && keys[buffer[left]] <= keys[buffer[right]])) {
+				order[i] = buffer[left++];
+			} else {
+				order[i] = buffer[right++];
+			}
+		}
+	}
+}
@@ -10,9 +10,11 @@
 
 package org.mule.module.google.spreadsheet.model;
 
+import java.io.IOException;
+import java.io.Writer;
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 
@@ -77,29 +79,34 @@ public abstract class ModelParser {
 		return parseCell(feed.getEntries());
 	}
 	
+	/**
+	 * Groups the entries into rows without reordering them. Rows are returned in the order
+	 * their first cell appears and cells keep their order within each row
+	 */
 	public static List<Row> parseCell(List<CellEntry> entries) {
+		if (CellGrid.isRowMajor(entries)) {
+			// the grid only sorts entries which are not already in row major order
+			return new ArrayList<Row>(new CellGrid(entries).toRows());
+		}
+		
 		List<Row> result = new ArrayList<Row>();
+		Map<Integer, Row> rows = new HashMap<Integer, Row>();
 
-		if (entries.size() > 0) {
+		for (CellEntry entry : entries) {
 			
-			Map<Integer, Row> rows = new HashMap<Integer, Row>();
-
-			for (CellEntry entry : entries) {
-				
-				int rowNumber = entry.getCell().getRow();
-				Row row = rows.get(rowNumber);
-				
-				if (row == null)  {
-					row = new Row();
-					row.setRowNumber(rowNumber);
-					rows.put(rowNumber, row);
-					result.add(row);
-				}
-				
-				row.addCell(parseCell(entry));
+			int rowNumber = entry.getCell().getRow();
+			Row row = rows.get(rowNumber);
+			
+			if (row == null)  {
+				row = new Row();
+				row.setRowNumber(rowNumber);
+				rows.put(rowNumber, row);
+				result.add(row);
 			}
 			
+			row.addCell(parseCell(entry));
 		}
+		
 		return result;
 	}
 	
@@ -118,37 +125,7 @@ public abstract class ModelParser {
 	}
 	
 	public static List<Row> parseRows(List<CellEntry> entries) {
-		List<Row> retVal = new ArrayList<Row>();
-		
-		if (entries.isEmpty()) {
-			return retVal;
-		}
-		
-		Map<Integer, Row> rows = new HashMap<Integer, Row>();
-		
-		for (CellEntry entry : entries) {
-			com.google.gdata.data.spreadsheet.Cell cell = entry.getCell();
-			int rowNumber = cell.getRow();
-			
-			Row row = rows.get(rowNumber);
-			if (row == null) {
-				row = new Row();
-				row.setRowNumber(rowNumber);
-				rows.put(rowNumber, row);
-				retVal.add(row);
-			}
-			
-			Cell myCell = parseCell(entry);
-			row.addCell(myCell);
-		}
-		
-		Collections.sort(retVal);
-		
-		for (Row row : retVal) {
-			row.sortCells();
-		}
-		return retVal;
-		
+		return new ArrayList<Row>(new CellGrid(entries).toRows());
 	}
 	
 	public static String toCSV(List<Row> rows, String lineSeparator, String columnSeparator) {
@@ -172,4 +149,34 @@ public abstract class ModelParser {
 		return csv.toString();
 	}
 	
+	/**
+	 * Writes the given cell entries with the same format as {@link #toCSV(List, String, String)}
+	 * but straight into a writer, without creating any intermediate rows, cells or strings.
+	 * Entries are written in the order they are iterated, so they can be fetched lazily.
+	 * 
+	 * @param entries the cell entries to be written
+	 * @param writer the writer to write into
+	 * @param lineSeparator the line separator
+	 * @param columnSeparator the column separator
+	 * @throws IOException if the writer fails
+	 */
+	public static void writeCSV(Iterator<CellEntry> entries, Writer writer, String lineSeparator, String columnSeparator) throws IOException {
+		boolean first = true;
+		
+		while (entries.hasNext()) {
+			com.google.gdata.data.spreadsheet.Cell cell = entries.next().getCell();
+			
+			if (!first) {
+				writer.write(lineSeparator);
+			}
+			
+			writer.write(String.valueOf(cell.getRow()));
+			writer.write(columnSeparator);
+			writer.write(String.valueOf(cell.getCol()));
+			writer.write(columnSeparator);
+			writer.write(String.valueOf(cell.getValue()));
+			first = false;
+		}
+	}
+	
 }
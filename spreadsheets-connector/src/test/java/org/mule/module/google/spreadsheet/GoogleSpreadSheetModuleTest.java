@@ -14,7 +14,6 @@
 package org.mule.module.google.spreadsheet;
 
 import static org.mockito.Matchers.any;
-import static org.mockito.Matchers.anyInt;
 import static org.mockito.Matchers.anyString;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.mock;
@@ -23,24 +22,29 @@ import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URL;
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
 
 import junit.framework.TestCase;
 
 import org.apache.commons.io.IOUtils;
 import org.junit.Test;
-import org.mockito.Matchers;
 import org.mockito.Mockito;
 import org.mockito.invocation.InvocationOnMock;
 import org.mockito.stubbing.Answer;
+import org.mule.api.transport.OutputHandler;
 import org.mule.module.google.spreadsheet.model.Cell;
+import org.mule.module.google.spreadsheet.model.CellGrid;
+import org.mule.module.google.spreadsheet.model.ModelParser;
 import org.mule.module.google.spreadsheet.model.Row;
 import org.mule.module.google.spreadsheet.model.Spreadsheet;
 import org.mule.module.google.spreadsheet.model.Worksheet;
+import org.mule.modules.google.api.domain.BatchResult;
 
 import com.google.gdata.client.docs.DocsService;
 import com.google.gdata.client.spreadsheet.CellQuery;
@@ -50,6 +54,8 @@ import com.google.gdata.client.spreadsheet.WorksheetQuery;
 import com.google.gdata.data.IFeed;
 import com.google.gdata.data.Link;
 import com.google.gdata.data.PlainTextConstruct;
+import com.google.gdata.data.batch.BatchStatus;
+import com.google.gdata.data.batch.BatchUtils;
 import com.google.gdata.data.spreadsheet.CellEntry;
 import com.google.gdata.data.spreadsheet.CellFeed;
 import com.google.gdata.data.spreadsheet.SpreadsheetEntry;
@@ -109,6 +115,103 @@ public class GoogleSpreadSheetModuleTest extends TestCase {
 		this.assertCsv(csv); 
 	}
 	
+	@Test
+	public void testGetCellRangeAsCsvStream() throws Exception {
+		when(this.ss.query(any(CellQuery.class), eq(CellFeed.class))).thenAnswer(new Answer<CellFeed>() {
+
+			@Override
+			public CellFeed answer(InvocationOnMock invocation) throws Throwable {
+				CellQuery query = (CellQuery) invocation.getArguments()[0];
+				assertTrue("window bigger than expected", query.getMaximumRow() - query.getMinimumRow() < 2);
+				return rowWindow(query.getMinimumRow(), query.getMaximumRow());
+			}
+		});
+
+		OutputHandler handler = this.connector.getCellRangeAsCsvStream(SPREADSHEET_NAME, WORKSHEET_NAME,
+				0, 0, ",", "\n", "UTF-8", 2, 1, 10, 1, 2);
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		handler.write(null, out);
+
+		this.assertCsv(out.toString("UTF-8"));
+		verify(this.ss, times(2)).query(any(CellQuery.class), eq(CellFeed.class));
+	}
+
+	@Test
+	public void testGetAllCellsAsIterator() throws Exception {
+		when(this.ss.query(any(CellQuery.class), eq(CellFeed.class))).thenAnswer(new Answer<CellFeed>() {
+
+			@Override
+			public CellFeed answer(InvocationOnMock invocation) throws Throwable {
+				CellQuery query = (CellQuery) invocation.getArguments()[0];
+				return rowWindow(query.getMinimumRow(), query.getMaximumRow());
+			}
+		});
+
+		Iterator<Row> it = this.connector.getAllCellsAsIterator(SPREADSHEET_NAME, WORKSHEET_NAME, 1, 1, 0, 0);
+		List<Row> rows = new ArrayList<Row>();
+		while (it.hasNext()) {
+			rows.add(it.next());
+		}
+
+		this.assertRows(rows);
+		verify(this.ss, times(this.loadTestDataLines().length)).query(any(CellQuery.class), eq(CellFeed.class));
+	}
+
+	@Test
+	public void testParseRowsOutOfOrder() throws Exception {
+		List<CellEntry> entries = new ArrayList<CellEntry>();
+		entries.add(newCellEntry(3, 2, "c"));
+		entries.add(newCellEntry(1, 5, "b"));
+		entries.add(newCellEntry(3, 1, "d"));
+		entries.add(newCellEntry(1, 1, "a"));
+
+		List<Row> rows = ModelParser.parseRows(entries);
+		assertEquals("unexpected number of rows", 2, rows.size());
+		assertEquals(1, rows.get(0).getRowNumber());
+		assertEquals(3, rows.get(1).getRowNumber());
+		assertSame("rows should be created only once", rows.get(0), rows.get(0));
+
+		StringBuilder values = new StringBuilder();
+		for (Row row : rows) {
+			for (Cell cell : row.getCells()) {
+				values.append(cell.getEvaluatedValue());
+			}
+		}
+
+		assertEquals("cells not sorted", "abdc", values.toString());
+
+		CellGrid grid = new CellGrid(entries);
+		assertEquals("c", grid.getEntry(3, 2).getCell().getValue());
+		assertNull(grid.getEntry(2, 2));
+		assertNull(grid.getEntry(1, 2));
+	}
+
+	@Test
+	public void testParseCellKeepsOrder() throws Exception {
+		List<CellEntry> entries = new ArrayList<CellEntry>();
+		entries.add(newCellEntry(3, 2, "c"));
+		entries.add(newCellEntry(1, 5, "b"));
+		entries.add(newCellEntry(3, 1, "d"));
+		entries.add(newCellEntry(1, 1, "a"));
+
+		List<Row> rows = ModelParser.parseCell(entries);
+		assertTrue("rows should be materialized", rows instanceof ArrayList);
+		assertEquals("unexpected number of rows", 2, rows.size());
+		assertEquals(3, rows.get(0).getRowNumber());
+		assertEquals(1, rows.get(1).getRowNumber());
+
+		StringBuilder values = new StringBuilder();
+		for (Row row : rows) {
+			for (Cell cell : row.getCells()) {
+				values.append(cell.getEvaluatedValue());
+			}
+		}
+
+		assertEquals("cells should keep their order", "cdba", values.toString());
+		assertTrue("rows should be materialized", ModelParser.parseRows(entries) instanceof ArrayList);
+	}
+
 	@Test
 	public void testSpreadsheetQuery() throws Exception {
 		when(this.ss.query(any(SpreadsheetQuery.class), eq(SpreadsheetFeed.class))).thenAnswer(new Answer<SpreadsheetFeed>() {
@@ -172,6 +275,22 @@ public class GoogleSpreadSheetModuleTest extends TestCase {
 		this.assertRows(rows);
 	}
 	
+	@Test
+	public void testWorksheetCache() throws Exception {
+		this.connector.getAllCells(SPREADSHEET_NAME, WORKSHEET_NAME, 0, 0);
+		this.connector.getAllCells(SPREADSHEET_NAME, WORKSHEET_NAME, 0, 0);
+		verify(this.ss, times(1)).query(any(WorksheetQuery.class), eq(WorksheetFeed.class));
+
+		WorksheetEntryCache cache = this.connector.getWorksheetCache();
+		assertEquals("unexpected cache hits", 1, cache.getHitCount());
+		assertEquals("unexpected cache misses", 1, cache.getMissCount());
+
+		this.connector.deleteWorksheet(SPREADSHEET_NAME, WORKSHEET_NAME, 0, 0);
+		this.connector.getAllCells(SPREADSHEET_NAME, WORKSHEET_NAME, 0, 0);
+		verify(this.ss, times(3)).query(any(WorksheetQuery.class), eq(WorksheetFeed.class));
+		assertEquals("unexpected cache misses", 2, cache.getMissCount());
+	}
+
 	@Test
 	public void testGetAllCellsAsCSV() throws Exception {
 		String csv = this.connector.getAllCellsAsCsv(SPREADSHEET_NAME, WORKSHEET_NAME, ",", "\n", 0, 0);
@@ -290,14 +409,131 @@ public class GoogleSpreadSheetModuleTest extends TestCase {
 		verify(this.ss, times(1)).batch(any(URL.class), any(IFeed.class));
 	}
 	
-	@SuppressWarnings("unchecked")
+	@Test
+	public void testSetRowValuesInOneBatch() throws Exception {
+		List<Row> rows = this.loadTestRows();
+		List<BatchResult> failures = this.connector.setRowValues(rows, SPREADSHEET_NAME, WORKSHEET_NAME, 0, 0, false);
+		verify(this.ss, times(1)).batch(any(URL.class), any(IFeed.class));
+		assertTrue("no failures were expected", failures.isEmpty());
+	}
+	
+	@Test
+	public void testSetRowValuesInChunks() throws Exception {
+		final CellEntry failed = new CellEntry(2, 1, "Java");
+		BatchUtils.setBatchId(failed, "R2C1");
+		BatchStatus status = new BatchStatus();
+		status.setCode(409);
+		failed.setExtension(status);
+		
+		when(this.ss.batch(any(URL.class), any(CellFeed.class))).thenAnswer(new Answer<CellFeed>() {
+			
+			@Override
+			public CellFeed answer(InvocationOnMock invocation) throws Throwable {
+				CellFeed request = (CellFeed) invocation.getArguments()[1];
+				assertTrue("batch bigger than configured", request.getEntries().size() <= 3);
+				
+				CellFeed response = new CellFeed();
+				if (request.getEntries().contains(testCellFeed.getEntries().get(2))) {
+					response.getEntries().add(failed);
+				}
+				return response;
+			}
+		});
+		
+		this.connector.setBatchSize(3);
+		List<BatchResult> failures = this.connector.setRowValues(this.loadTestRows(), SPREADSHEET_NAME, WORKSHEET_NAME, 0, 0, false);
+		
+		verify(this.ss, times(3)).batch(any(URL.class), any(CellFeed.class));
+		assertEquals("only one failure was expected", 1, failures.size());
+		assertEquals("unexpected failed cell", "R2C1", failures.get(0).getId());
+	}
+	
+	@Test
+	public void testSetRowValuesReportsFailedBatch() throws Exception {
+		when(this.ss.batch(any(URL.class), any(CellFeed.class))).thenAnswer(new Answer<CellFeed>() {
+			
+			@Override
+			public CellFeed answer(InvocationOnMock invocation) throws Throwable {
+				CellFeed request = (CellFeed) invocation.getArguments()[1];
+				if (request.getEntries().contains(testCellFeed.getEntries().get(2))) {
+					throw new ServiceException("batch rejected");
+				}
+				return new CellFeed();
+			}
+		});
+		
+		this.connector.setBatchSize(3);
+		this.connector.setBatchThreads(2);
+		List<BatchResult> failures = this.connector.setRowValues(this.loadTestRows(), SPREADSHEET_NAME, WORKSHEET_NAME, 0, 0, false);
+		
+		verify(this.ss, times(3)).batch(any(URL.class), any(CellFeed.class));
+		assertEquals("every cell of the rejected batch should fail", 3, failures.size());
+		for (BatchResult failure : failures) {
+			assertEquals("unexpected status", 500, failure.getStatus().getCode());
+			assertEquals("unexpected reason", "batch rejected", failure.getStatus().getReason());
+		}
+	}
+	
+	@Test
+	public void testSetRowValuesPrefetchesCells() throws Exception {
+		when(this.ss.query(any(CellQuery.class), eq(CellFeed.class))).thenAnswer(new Answer<CellFeed>() {
+
+			@Override
+			public CellFeed answer(InvocationOnMock invocation) throws Throwable {
+				CellQuery query = (CellQuery) invocation.getArguments()[0];
+				assertTrue("min row mismatch", 1 == query.getMinimumRow());
+				assertTrue("max row mismatch", 4 == query.getMaximumRow());
+				assertTrue("min col mismatch", 1 == query.getMinimumCol());
+				assertTrue("max col mismatch", 2 == query.getMaximumCol());
+				assertTrue("empty cells should be returned", query.getReturnEmpty());
+
+				return testCellFeed;
+			}
+		});
+
+		List<Row> rows = this.loadTestRows();
+		this.connector.setRowValues(rows, SPREADSHEET_NAME, WORKSHEET_NAME, 0, 0, false);
+
+		verify(this.ss, times(1)).query(any(CellQuery.class), eq(CellFeed.class));
+		verify(this.ss, Mockito.never()).getEntry(any(URL.class), eq(CellEntry.class));
+		verify(this.ss, times(1)).batch(any(URL.class), any(IFeed.class));
+	}
+
 	@Test
 	public void testSetCsvValues() throws Exception {
-		Mockito.doNothing().when(this.connector).
-			setRowValues(any(List.class), anyString(), anyString(), anyInt(), anyInt(), Matchers.anyBoolean());
+		this.connector.setBatchSize(2);
+		this.connector.setBatchThreads(2);
 		
-		this.connector.setCsvValues(SPREADSHEET_NAME, WORKSHEET_NAME, "csv", 0, 0, "\n", ",", 0, 0, false);
-		verify(this.connector, times(1)).setRowValues(any(List.class), eq(SPREADSHEET_NAME), eq(WORKSHEET_NAME), eq(0), eq(0), eq(false));
+		InputStream csv = this.getClass().getResourceAsStream("/delimited.csv");
+		List<BatchResult> failures = this.connector.setCsvValues(SPREADSHEET_NAME, WORKSHEET_NAME, csv, 1, 1, "\n", ",", 0, 0, false, "UTF-8");
+		
+		assertTrue("no failures were expected", failures.isEmpty());
+		verify(this.connector, Mockito.never()).purgeWorksheet(SPREADSHEET_NAME, WORKSHEET_NAME, 0, 0);
+		verify(this.ss, times(2)).query(any(CellQuery.class), eq(CellFeed.class));
+		verify(this.ss, times(4)).batch(any(URL.class), any(CellFeed.class));
+		
+		List<CellEntry> entries = this.testCellFeed.getEntries();
+		verify(entries.get(0)).changeInputValueLocal("Language");
+		verify(entries.get(7)).changeInputValueLocal("Logic");
+	}
+	
+	@Test
+	public void testSetCsvValuesWithQuotes() throws Exception {
+		String csv = "\"Language, \"\"name\"\"\",Paradigm\r\n";
+		this.connector.setCsvValues(SPREADSHEET_NAME, WORKSHEET_NAME, csv, 1, 1, "\n", ",", 0, 0, false, "UTF-8");
+		
+		List<CellEntry> entries = this.testCellFeed.getEntries();
+		verify(entries.get(0)).changeInputValueLocal("Language, \"name\"");
+		verify(entries.get(1)).changeInputValueLocal("Paradigm");
+	}
+	
+	@Test
+	public void testCsvAdapterSkipsBlankLines() throws Exception {
+		List<Row> rows = CsvToRowsAdapter.adapt("a,b\n\nc,d\n", 1, 1, ",", "\n");
+		
+		assertEquals("blank lines should not produce rows", 2, rows.size());
+		assertEquals(1, rows.get(0).getRowNumber());
+		assertEquals("blank lines should still take a row number", 3, rows.get(1).getRowNumber());
 	}
 	
 	@Test
@@ -322,11 +558,49 @@ public class GoogleSpreadSheetModuleTest extends TestCase {
 	
 	@Test
 	public void testPurgeWorksheet() throws Exception {
+		this.connector.setBatchSize(5);
 		this.connector.purgeWorksheet(SPREADSHEET_NAME, WORKSHEET_NAME, 0, 0);
 		
 		for (CellEntry entry : this.testCellFeed.getEntries()) {
-			verify(entry, times(1)).delete();
+			verify(entry, times(1)).changeInputValueLocal("");
+			verify(entry, Mockito.never()).delete();
+		}
+		verify(this.ss, times(2)).batch(any(URL.class), any(CellFeed.class));
+	}
+	
+	@Test
+	public void testPurgeWorksheetFailure() throws Exception {
+		final CellEntry failed = new CellEntry(2, 1, "Java");
+		BatchUtils.setBatchId(failed, "R2C1");
+		BatchStatus status = new BatchStatus();
+		status.setCode(409);
+		failed.setExtension(status);
+		
+		when(this.ss.batch(any(URL.class), any(CellFeed.class))).thenAnswer(new Answer<CellFeed>() {
+			
+			@Override
+			public CellFeed answer(InvocationOnMock invocation) throws Throwable {
+				CellFeed response = new CellFeed();
+				response.getEntries().add(failed);
+				return response;
+			}
+		});
+		
+		try {
+			this.connector.purgeWorksheet(SPREADSHEET_NAME, WORKSHEET_NAME, 0, 0);
+			fail("a partly failed purge should throw");
+		} catch (ServiceException e) {
+			assertTrue("failed cells should be reported", e.getMessage().contains("R2C1"));
+		}
+		
+		try {
+			this.connector.setRowValues(this.loadTestRows(), SPREADSHEET_NAME, WORKSHEET_NAME, 0, 0, true);
+			fail("rows should not be set over a partly purged worksheet");
+		} catch (ServiceException e) {
+			// expected
 		}
+		
+		verify(this.ss, times(2)).batch(any(URL.class), any(CellFeed.class));
 	}
 	
 	@Test
@@ -450,6 +724,7 @@ public class GoogleSpreadSheetModuleTest extends TestCase {
 		when(this.ss.query(any(WorksheetQuery.class), eq(WorksheetFeed.class))).thenReturn(this.testWorksheet);
 		when(this.ss.query(any(CellQuery.class), eq(CellFeed.class))).thenReturn(this.testCellFeed);
 		when(this.ss.getFeed(any(URL.class), eq(CellFeed.class))).thenReturn(this.testCellFeed);
+		when(this.ss.batch(any(URL.class), any(CellFeed.class))).thenReturn(new CellFeed());
 	}
 
 	private void initTestSpreadsheet() throws Exception {
@@ -498,6 +773,14 @@ public class GoogleSpreadSheetModuleTest extends TestCase {
 		when(this.testCellFeed.getLink(anyString(), anyString())).thenReturn(link);
 	}
 
+	private List<Row> loadTestRows() {
+		try {
+			return CsvToRowsAdapter.adapt(IOUtils.toString(this.getClass().getResourceAsStream("/delimited.csv")), 1, 1, ",", "\n");
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+	
 	private String[] loadTestDataLines() {
 		try {
 			InputStream in = this.getClass().getResourceAsStream("/delimited.csv");
@@ -508,6 +791,23 @@ public class GoogleSpreadSheetModuleTest extends TestCase {
 		}
 	}
 	
+	private CellFeed rowWindow(int minRow, int maxRow) {
+		List<CellEntry> entries = new ArrayList<CellEntry>();
+		
+		for (CellEntry entry : this.testCellFeed.getEntries()) {
+			int row = entry.getCell().getRow();
+			if (row >= minRow && row <= maxRow) {
+				entries.add(entry);
+			}
+		}
+		
+		CellFeed feed = mock(CellFeed.class);
+		when(feed.getEntries()).thenReturn(entries);
+		when(feed.getRowCount()).thenReturn(this.loadTestDataLines().length);
+		
+		return feed;
+	}
+	
 	private CellEntry newCellEntry(int row, int column, String value) {
 		com.google.gdata.data.spreadsheet.Cell googleCell = mock(com.google.gdata.data.spreadsheet.Cell.class);
 		when(googleCell.getRow()).thenReturn(row);
@@ -11,14 +11,23 @@
 package org.mule.module.google.task;
 
 import java.io.IOException;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
 import java.util.List;
 
 import javax.inject.Inject;
 
+import org.apache.commons.lang.StringUtils;
+import org.mule.api.MuleContext;
 import org.mule.api.MuleMessage;
 import org.mule.api.annotations.Configurable;
 import org.mule.api.annotations.Connector;
 import org.mule.api.annotations.Processor;
+import org.mule.api.annotations.Source;
+import org.mule.api.annotations.lifecycle.Start;
+import org.mule.api.annotations.lifecycle.Stop;
 import org.mule.api.annotations.oauth.OAuth2;
 import org.mule.api.annotations.oauth.OAuthAccessToken;
 import org.mule.api.annotations.oauth.OAuthAccessTokenIdentifier;
@@ -31,20 +40,35 @@ import org.mule.api.annotations.oauth.OAuthProtected;
 import org.mule.api.annotations.oauth.OAuthScope;
 import org.mule.api.annotations.param.Default;
 import org.mule.api.annotations.param.Optional;
+import org.mule.api.callback.SourceCallback;
+import org.mule.api.context.MuleContextAware;
+import org.mule.api.store.ObjectStore;
 import org.mule.module.google.task.model.Task;
 import org.mule.module.google.task.model.TaskList;
+import org.mule.module.google.task.model.TaskMove;
+import org.mule.module.google.task.model.TaskNode;
+import org.mule.module.google.task.model.batch.TaskBatchCallback;
+import org.mule.module.google.task.tree.TaskTreeBuilder;
 import org.mule.modules.google.AbstractGoogleOAuthConnector;
 import org.mule.modules.google.AccessType;
 import org.mule.modules.google.ForcePrompt;
 import org.mule.modules.google.IdentifierPolicy;
+import org.mule.modules.google.api.client.batch.BatchResponse;
+import org.mule.modules.google.api.client.batch.ChunkedBatch;
+import org.mule.modules.google.api.client.batch.IdBatchCallback;
+import org.mule.modules.google.api.client.http.HttpTransportProvider;
+import org.mule.modules.google.api.pagination.PageTokenIterator;
 import org.mule.modules.google.api.pagination.PaginationUtils;
+import org.mule.modules.google.api.sync.SyncPoller;
+import org.mule.modules.google.api.sync.UpdatedMinWatermark;
 import org.mule.modules.google.oauth.invalidation.InvalidationAwareCredential;
 import org.mule.modules.google.oauth.invalidation.OAuthTokenExpiredException;
 
 import com.google.api.client.auth.oauth2.BearerToken;
 import com.google.api.client.auth.oauth2.Credential;
-import com.google.api.client.http.javanet.NetHttpTransport;
-import com.google.api.client.json.jackson.JacksonFactory;
+import com.google.api.client.googleapis.batch.BatchRequest;
+import com.google.api.client.util.DateTime;
+import com.google.api.services.tasks.Tasks.TasksOperations;
 import com.google.api.services.tasks.Tasks.TasksOperations.Move;
 import com.google.api.services.tasks.TasksScopes;
 import com.google.api.services.tasks.model.TaskLists;
@@ -70,9 +94,10 @@ import com.google.api.services.tasks.model.TaskLists;
 											" Use force to request authorization every time or auto to only do it the first time. Default is auto", optional=true)
 		}
 )
-public class GoogleTasksConnector extends AbstractGoogleOAuthConnector {
+public class GoogleTasksConnector extends AbstractGoogleOAuthConnector implements MuleContextAware {
 
 	public static final String NEXT_PAGE_TOKEN = "GoogleTask_NEXT_PAGE_TOKEN";
+	public static final String TASKS_WATERMARK = "GoogleTask_TASKS_WATERMARK";
 	
 	/**
      * The OAuth2 consumer key 
@@ -118,14 +143,72 @@ public class GoogleTasksConnector extends AbstractGoogleOAuthConnector {
     @Default("Mule-GoogleTasksConnector/1.0")
     private String applicationName;
     
+    /**
+     * Provider of the pooled http transport used by the client. Set it to a bean to tune
+     * pool limits and timeouts. If not provided, the provider shared by all the connectors is used
+     */
+    @Configurable
+    @Optional
+    private HttpTransportProvider transportProvider;
+    
+    /**
+     * The maximum number of operations to be sent on each batch request.
+     * Bigger batches are split into several requests. It cannot be higher than 100
+     */
+    @Configurable
+    @Optional
+    @Default("100")
+    private int batchSize = ChunkedBatch.MAX_BATCH_SIZE;
+    
+    /**
+     * The maximum number of batch requests to be submitted concurrently
+     */
+    @Configurable
+    @Optional
+    @Default("4")
+    private int batchThreads = 4;
+    
+    /**
+     * Object store in which the sync-tasks source keeps its watermark.
+     * If not provided, Mule's default persistent object store is used
+     */
+    @Configurable
+    @Optional
+    private ObjectStore<Serializable> objectStore;
+    
     @OAuthAccessToken
     private String accessToken;
     
+    private MuleContext muleContext;
+    
 	/**
 	 * The google api client
 	 */
 	private com.google.api.services.tasks.Tasks client;
 	
+	/**
+	 * Initializes the connector. if no transportProvider was provided, then the one
+	 * shared by all the connectors is used
+	 */
+	@Start
+	public void init() {
+		if (this.transportProvider == null) {
+			this.transportProvider = HttpTransportProvider.getDefault();
+		}
+		
+		this.transportProvider.retain();
+	}
+	
+	/**
+	 * Releases the transport provider, so that its connections are closed once no connector uses it
+	 */
+	@Stop
+	public void stop() {
+		if (this.transportProvider != null) {
+			this.transportProvider.release();
+		}
+	}
+	
 	@OAuthAccessTokenIdentifier
 	public String getAccessTokenId() {
 		return this.identifierPolicy.getId(this);
@@ -136,7 +219,8 @@ public class GoogleTasksConnector extends AbstractGoogleOAuthConnector {
 		Credential credential = new InvalidationAwareCredential(BearerToken.authorizationHeaderAccessMethod());
 		credential.setAccessToken(this.getAccessToken());
 		
-		this.client = new com.google.api.services.tasks.Tasks.Builder(new NetHttpTransport(), new JacksonFactory(), credential)
+		this.client = new com.google.api.services.tasks.Tasks.Builder(this.transportProvider.getTransport(), this.transportProvider.getJsonFactory(),
+						this.transportProvider.getRequestInitializer(credential))
 						.setApplicationName(this.applicationName)
 						.build();
 	}
@@ -173,6 +257,47 @@ public class GoogleTasksConnector extends AbstractGoogleOAuthConnector {
     	return TaskList.valueOf(list.getItems(), TaskList.class);
     }
     
+    /**
+     * Returns all the authenticated user's task lists. Unlike get-task-lists, this processor doesn't return
+     * just one page but a lazy iterator over the whole listing. Pages of maxResults task lists are only requested
+     * as the iterator is consumed, and up to pagesInFlight pages are fetched in the background ahead of the consumer
+     * 
+     * {@sample.xml ../../../doc/GoogleTasksConnector.xml.sample google-tasks:get-all-task-lists}
+     * 
+     * @param maxResults Maximum number of task lists on each page
+     * @param pagesInFlight The maximum number of pages to fetch ahead of the consumer. Use zero to disable prefetching
+     * @return an iterator of {@link org.mule.module.google.task.model.TaskList}
+     * @throws IOException if there's an error in the communication
+     */
+    @Processor
+	@OAuthProtected
+	@OAuthInvalidateAccessTokenOn(exception=OAuthTokenExpiredException.class)
+    public Iterator<TaskList> getAllTaskLists(
+    		@Optional @Default("100") final long maxResults,
+    		@Optional @Default("1") int pagesInFlight) throws IOException {
+    	
+    	return new PageTokenIterator<TaskLists, TaskList>(pagesInFlight, null) {
+    		
+    		@Override
+    		protected TaskLists fetch(String pageToken) throws Exception {
+    			return client.tasklists().list()
+    					.setMaxResults(maxResults)
+    					.setPageToken(pageToken)
+    					.execute();
+    		}
+    		
+    		@Override
+    		protected String getNextPageToken(TaskLists page) {
+    			return page.getNextPageToken();
+    		}
+    		
+    		@Override
+    		protected Collection<TaskList> getItems(TaskLists page) {
+    			return TaskList.valueOf(page.getItems(), TaskList.class);
+    		}
+    	}.open();
+    }
+    
     /**
      * Returns the authenticated user's specified task list
      * 
@@ -301,6 +426,227 @@ public class GoogleTasksConnector extends AbstractGoogleOAuthConnector {
     	return Task.valueOf(taskList.getItems(), Task.class);
     }
     
+    /**
+     * Returns all tasks in the specified task list. Unlike get-tasks, this processor doesn't return
+     * just one page but a lazy iterator over the whole listing. Pages of maxResults tasks are only requested
+     * as the iterator is consumed, and up to pagesInFlight pages are fetched in the background ahead of the consumer.
+     * The filtering attributes for which no value is specified will not be used
+     * 
+     * {@sample.xml ../../../doc/GoogleTasksConnector.xml.sample google-tasks:get-all-tasks}
+     * 
+     * @param taskListId Task list identifier
+     * @param completedMin Lower bound for a task's completion date (as a RFC 3339 timestamp) to filter by
+     * @param completedMax Upper bound for a task's completion date (as a RFC 3339 timestamp) to filter by
+     * @param dueMin Lower bound for a task's due date (as a RFC 3339 timestamp) to filter by
+     * @param dueMax Upper bound for a task's due date (as a RFC 3339 timestamp) to filter by
+     * @param updatedMin Lower bound for a task's last modification time (as a RFC 3339 timestamp) to filter by
+     * @param maxResults Maximum number of tasks on each page
+     * @param showDeleted Flag indicating whether deleted tasks are returned in the result
+     * @param showHidden Flag indicating whether hidden tasks are returned in the result
+     * @param showcompleted Flag indicating whether completed tasks are returned in the result
+     * @param pagesInFlight The maximum number of pages to fetch ahead of the consumer. Use zero to disable prefetching
+     * @return an iterator of {@link org.mule.module.google.task.model.Task}
+     * @throws IOException if there's an error in the communication
+     */
+    @Processor
+	@OAuthProtected
+	@OAuthInvalidateAccessTokenOn(exception=OAuthTokenExpiredException.class)
+    public Iterator<Task> getAllTasks(
+    					@Optional @Default("@default") String taskListId,
+    					@Optional String completedMin,
+    					@Optional String completedMax,
+    					@Optional String dueMin,
+    					@Optional String dueMax,
+    					@Optional String updatedMin,
+    					@Optional @Default("100") long maxResults,
+    					@Optional @Default("false") boolean showDeleted,
+    					@Optional @Default("false") boolean showHidden,
+    					@Optional @Default("false") boolean showcompleted,
+    					@Optional @Default("1") int pagesInFlight) throws IOException {
+    	
+    	return this.iterateTasks(taskListId, completedMin, completedMax, dueMin, dueMax, updatedMin, maxResults, showDeleted, showHidden, showcompleted, pagesInFlight).open();
+    }
+    
+    /**
+     * Returns the tasks of the specified task list arranged as a tree. All the pages of the listing are read, with up to
+     * pagesInFlight pages fetched ahead, and each task is placed under its parent in a single pass over the listing.
+     * Top level tasks and the children of each task are ordered by position. Tasks which parent is filtered out are
+     * returned at the top level. The filtering attributes for which no value is specified will not be used
+     * 
+     * {@sample.xml ../../../doc/GoogleTasksConnector.xml.sample google-tasks:get-task-tree}
+     * 
+     * @param taskListId Task list identifier
+     * @param completedMin Lower bound for a task's completion date (as a RFC 3339 timestamp) to filter by
+     * @param completedMax Upper bound for a task's completion date (as a RFC 3339 timestamp) to filter by
+     * @param dueMin Lower bound for a task's due date (as a RFC 3339 timestamp) to filter by
+     * @param dueMax Upper bound for a task's due date (as a RFC 3339 timestamp) to filter by
+     * @param maxResults Maximum number of tasks on each page
+     * @param showHidden Flag indicating whether hidden tasks are returned in the result
+     * @param showcompleted Flag indicating whether completed tasks are returned in the result
+     * @param pagesInFlight The maximum number of pages to fetch ahead. Use zero to disable prefetching
+     * @return a list with the top level instances of {@link org.mule.module.google.task.model.TaskNode}
+     * @throws IOException if there's an error in the communication
+     */
+    @Processor
+	@OAuthProtected
+	@OAuthInvalidateAccessTokenOn(exception=OAuthTokenExpiredException.class)
+    public List<TaskNode> getTaskTree(
+    					@Optional @Default("@default") String taskListId,
+    					@Optional String completedMin,
+    					@Optional String completedMax,
+    					@Optional String dueMin,
+    					@Optional String dueMax,
+    					@Optional @Default("100") long maxResults,
+    					@Optional @Default("false") boolean showHidden,
+    					@Optional @Default("false") boolean showcompleted,
+    					@Optional @Default("1") int pagesInFlight) throws IOException {
+    	
+    	PageTokenIterator<com.google.api.services.tasks.model.Tasks, Task> tasks = this.iterateTasks(taskListId, completedMin, completedMax,
+    			dueMin, dueMax, null, maxResults, false, showHidden, showcompleted, pagesInFlight);
+    	
+    	try {
+    		return TaskTreeBuilder.build(tasks.open());
+    	} finally {
+    		tasks.close();
+    	}
+    }
+    
+    private PageTokenIterator<com.google.api.services.tasks.model.Tasks, Task> iterateTasks(
+    		final String taskListId,
+    		final String completedMin,
+    		final String completedMax,
+    		final String dueMin,
+    		final String dueMax,
+    		final String updatedMin,
+    		final long maxResults,
+    		final boolean showDeleted,
+    		final boolean showHidden,
+    		final boolean showcompleted,
+    		int pagesInFlight) {
+    	
+    	return new PageTokenIterator<com.google.api.services.tasks.model.Tasks, Task>(pagesInFlight, null) {
+    		
+    		@Override
+    		protected com.google.api.services.tasks.model.Tasks fetch(String pageToken) throws Exception {
+    			return client.tasks().list(taskListId)
+    					.setCompletedMax(completedMax)
+    					.setCompletedMin(completedMin)
+    					.setDueMin(dueMin)
+    					.setDueMax(dueMax)
+    					.setUpdatedMin(updatedMin)
+    					.setMaxResults(maxResults)
+    					.setPageToken(pageToken)
+    					.setShowCompleted(showcompleted)
+    					.setShowHidden(showHidden)
+    					.setShowDeleted(showDeleted)
+    					.execute();
+    		}
+    		
+    		@Override
+    		protected String getNextPageToken(com.google.api.services.tasks.model.Tasks page) {
+    			return page.getNextPageToken();
+    		}
+    		
+    		@Override
+    		protected Collection<Task> getItems(com.google.api.services.tasks.model.Tasks page) {
+    			return Task.valueOf(page.getItems(), Task.class);
+    		}
+    	};
+    }
+    
+    /**
+     * Polls a task list for tasks created, updated or deleted since the last poll and delivers them to the flow
+     * as lists of {@link org.mule.module.google.task.model.Task}, one per page of maxResults tasks. Deleted tasks are
+     * delivered with the deleted flag set, so that they can be removed downstream.
+     * 
+     * Each poll lists the tasks with the latest update time already seen as updatedMin, and drains all the pages. Since tasks
+     * don't come ordered by update time, the watermark is only moved forward once every page of the poll has been processed.
+     * It's kept per task list in the object store under watermarkKey. If a poll fails midway, the tasks it already delivered
+     * are delivered again by the next one. Tasks without an update time are skipped.
+     * 
+     * {@sample.xml ../../../doc/GoogleTasksConnector.xml.sample google-tasks:sync-tasks}
+     * 
+     * @param callback the source callback
+     * @param taskListId Task list identifier
+     * @param watermarkKey the key of the watermark in the object store. Defaults to GoogleTask_TASKS_WATERMARK followed by the access token id and the task list id
+     * @param startFrom the update time (as a RFC 3339 timestamp) to start from when there's no watermark yet. If not provided, only tasks updated after the source starts are delivered
+     * @param maxResults Maximum number of tasks to deliver on each message
+     * @param showHidden Flag indicating whether hidden tasks are delivered
+     * @param minPollInterval the number of milliseconds to wait between polls while there are changes
+     * @param maxPollInterval the maximum number of milliseconds to wait between polls when the task list is idle
+     * @param maxRedeliveries the maximum number of times a page the flow failed to process is delivered again before skipping it
+     * @throws Exception if the watermark could not be read or the access token expired
+     */
+    @Source
+	@OAuthProtected
+    public void syncTasks(
+    		final SourceCallback callback,
+    		@Optional @Default("@default") final String taskListId,
+    		@Optional String watermarkKey,
+    		@Optional final String startFrom,
+    		@Optional @Default("100") final long maxResults,
+    		@Optional @Default("true") final boolean showHidden,
+    		@Optional @Default("5000") long minPollInterval,
+    		@Optional @Default("300000") long maxPollInterval,
+    		@Optional @Default("3") int maxRedeliveries) throws Exception {
+    	
+    	String key = StringUtils.isBlank(watermarkKey) ? TASKS_WATERMARK + "." + this.getAccessTokenId() + "." + taskListId : watermarkKey;
+    	
+    	new SyncPoller<UpdatedMinWatermark>("tasks of task list " + taskListId, this.objectStore, this.muleContext, key) {
+    		
+    		@Override
+    		protected UpdatedMinWatermark createCheckpoint() {
+    			return new UpdatedMinWatermark(startFrom != null ? DateTime.parseRfc3339(startFrom).getValue() : System.currentTimeMillis());
+    		}
+    		
+    		@Override
+    		protected boolean poll(UpdatedMinWatermark watermark) throws Exception {
+    			UpdatedMinWatermark next = new UpdatedMinWatermark(watermark);
+    			boolean found = false;
+    			String pageToken = null;
+    			
+    			do {
+    				com.google.api.services.tasks.model.Tasks page = client.tasks().list(taskListId)
+    						.setUpdatedMin(new DateTime(watermark.getUpdatedMin()).toStringRfc3339())
+    						.setShowDeleted(true)
+    						.setShowHidden(showHidden)
+    						.setShowCompleted(true)
+    						.setMaxResults(maxResults)
+    						.setPageToken(pageToken)
+    						.execute();
+    				
+    				List<com.google.api.services.tasks.model.Task> changed = new ArrayList<com.google.api.services.tasks.model.Task>();
+    				
+    				if (page.getItems() != null) {
+    					for (com.google.api.services.tasks.model.Task task : page.getItems()) {
+    						// tasks without an update time can't be placed in the watermark, so they'd be delivered forever
+    						if (task.getUpdated() != null && watermark.isNew(task.getId(), task.getUpdated().getValue())) {
+    							changed.add(task);
+    						}
+    					}
+    				}
+    				
+    				if (!changed.isEmpty()) {
+    					this.deliver(callback, Task.valueOf(changed, Task.class));
+    					found = true;
+    					
+    					for (com.google.api.services.tasks.model.Task task : changed) {
+    						next.advance(task.getId(), task.getUpdated().getValue());
+    					}
+    				}
+    				
+    				pageToken = page.getNextPageToken();
+    			} while (!StringUtils.isBlank(pageToken));
+    			
+    			if (found) {
+    				this.save(next);
+    			}
+    			
+    			return found;
+    		}
+    	}.run(minPollInterval, maxPollInterval, maxRedeliveries);
+    }
+    
     /**
      * Returns the specified task.
      * 
@@ -405,6 +751,157 @@ public class GoogleTasksConnector extends AbstractGoogleOAuthConnector {
     	return new Task(move.execute());
     }
     
+    /**
+     * Inserts many tasks on the specified task list as a batch.
+     * The operations are sent in batches of at most batchSize operations, submitting up to batchThreads of them concurrently.
+     * Each error in the response keeps the index of the item that caused it under the &quot;index&quot; key
+     * 
+     * {@sample.xml ../../../doc/GoogleTasksConnector.xml.sample google-tasks:batch-insert-task}
+     * 
+     * @param taskListId Task list identifier
+     * @param tasks a collection with instances of {@link org.mule.module.google.task.model.Task} that are to be inserted
+     * @return an instance of {@link org.mule.modules.google.api.client.batch.BatchResponse<Task>} with the inserted tasks
+     * @throws IOException if there's an error in the communication
+     */
+    @Processor
+	@OAuthProtected
+	@OAuthInvalidateAccessTokenOn(exception=OAuthTokenExpiredException.class)
+    public BatchResponse<Task> batchInsertTask(
+    			@Optional @Default("@default") final String taskListId,
+    			@Optional @Default("#[payload:]") Collection<Task> tasks) throws IOException {
+    	
+    	final TasksOperations tasksClient = this.client.tasks();
+    	
+    	return new TasksBatch<Task, Task>() {
+    		
+    		@Override
+    		protected void queue(BatchRequest batch, Task task, int index, BatchResponse<Task> response) throws IOException {
+    			tasksClient.insert(taskListId, task.wrapped()).queue(batch, new TaskBatchCallback(response, index));
+    		}
+    	}.execute(tasks);
+    }
+    
+    /**
+     * Updates many tasks of the specified task list as a batch. Each task is updated using its own id.
+     * The operations are sent in batches of at most batchSize operations, submitting up to batchThreads of them concurrently.
+     * Each error in the response keeps the index of the item that caused it under the &quot;index&quot; key
+     * 
+     * {@sample.xml ../../../doc/GoogleTasksConnector.xml.sample google-tasks:batch-update-task}
+     * 
+     * @param taskListId Task list identifier
+     * @param tasks a collection with instances of {@link org.mule.module.google.task.model.Task} containing the state we want the updated tasks to have
+     * @return an instance of {@link org.mule.modules.google.api.client.batch.BatchResponse<Task>} with the updated tasks
+     * @throws IOException if there's an error in the communication
+     */
+    @Processor
+	@OAuthProtected
+	@OAuthInvalidateAccessTokenOn(exception=OAuthTokenExpiredException.class)
+    public BatchResponse<Task> batchUpdateTask(
+    			@Optional @Default("@default") final String taskListId,
+    			@Optional @Default("#[payload:]") Collection<Task> tasks) throws IOException {
+    	
+    	final TasksOperations tasksClient = this.client.tasks();
+    	
+    	return new TasksBatch<Task, Task>() {
+    		
+    		@Override
+    		protected void queue(BatchRequest batch, Task task, int index, BatchResponse<Task> response) throws IOException {
+    			tasksClient.update(taskListId, task.getId(), task.wrapped()).queue(batch, new TaskBatchCallback(response, index));
+    		}
+    	}.execute(tasks);
+    }
+    
+    /**
+     * Deletes many tasks from the specified task list as a batch.
+     * The operations are sent in batches of at most batchSize operations, submitting up to batchThreads of them concurrently.
+     * Each error in the response keeps the index of the item that caused it under the &quot;index&quot; key
+     * 
+     * {@sample.xml ../../../doc/GoogleTasksConnector.xml.sample google-tasks:batch-delete-task}
+     * 
+     * @param taskListId Task list identifier
+     * @param taskIds the identifiers of the tasks to be deleted
+     * @return an instance of {@link org.mule.modules.google.api.client.batch.BatchResponse<String>} with the ids of the deleted tasks
+     * @throws IOException if there's an error in the communication
+     */
+    @Processor
+	@OAuthProtected
+	@OAuthInvalidateAccessTokenOn(exception=OAuthTokenExpiredException.class)
+    public BatchResponse<String> batchDeleteTask(
+    			@Optional @Default("@default") final String taskListId,
+    			@Optional @Default("#[payload:]") Collection<String> taskIds) throws IOException {
+    	
+    	final TasksOperations tasksClient = this.client.tasks();
+    	
+    	return new TasksBatch<String, String>() {
+    		
+    		@Override
+    		protected void queue(BatchRequest batch, String taskId, int index, BatchResponse<String> response) throws IOException {
+    			tasksClient.delete(taskListId, taskId).queue(batch, new IdBatchCallback<Void>(taskId, response, index));
+    		}
+    	}.execute(taskIds);
+    }
+    
+    /**
+     * Moves many tasks of the specified task list as a batch.
+     * The operations are sent in batches of at most batchSize operations, submitting up to batchThreads of them concurrently.
+     * Each error in the response keeps the index of the item that caused it under the &quot;index&quot; key
+     * 
+     * Operations on a batch are not guaranteed to be executed in order, so a move which previousId is a task moved by the same
+     * invocation might be applied before that task reaches its new position.
+     * 
+     * {@sample.xml ../../../doc/GoogleTasksConnector.xml.sample google-tasks:batch-move}
+     * 
+     * @param taskListId Task list identifier
+     * @param moves a collection with instances of {@link org.mule.module.google.task.model.TaskMove} describing each move
+     * @return an instance of {@link org.mule.modules.google.api.client.batch.BatchResponse<Task>} with the moved tasks
+     * @throws IOException if there's an error in the communication
+     */
+    @Processor
+	@OAuthProtected
+	@OAuthInvalidateAccessTokenOn(exception=OAuthTokenExpiredException.class)
+    public BatchResponse<Task> batchMove(
+    			@Optional @Default("@default") final String taskListId,
+    			@Optional @Default("#[payload:]") Collection<TaskMove> moves) throws IOException {
+    	
+    	final TasksOperations tasksClient = this.client.tasks();
+    	
+    	return new TasksBatch<TaskMove, Task>() {
+    		
+    		@Override
+    		protected void queue(BatchRequest batch, TaskMove item, int index, BatchResponse<Task> response) throws IOException {
+    			Move move = tasksClient.move(taskListId, item.getTaskId());
+    			
+    			if (item.getParentId() != null) {
+    				move.setParent(item.getParentId());
+    			}
+    			
+    			if (item.getPreviousId() != null) {
+    				move.setPrevious(item.getPreviousId());
+    			}
+    			
+    			move.queue(batch, new TaskBatchCallback(response, index));
+    		}
+    	}.execute(moves);
+    }
+    
+    /**
+     * {@link org.mule.modules.google.api.client.batch.ChunkedBatch} bound to the current client
+     * and to the connector's batch settings
+     */
+    private abstract class TasksBatch<I, W> extends ChunkedBatch<I, W> {
+    	
+    	private final com.google.api.services.tasks.Tasks client = GoogleTasksConnector.this.client;
+    	
+    	private TasksBatch() {
+    		super(batchSize, batchThreads);
+    	}
+    	
+    	@Override
+    	protected BatchRequest newBatch() {
+    		return this.client.batch();
+    	}
+    }
+    
     /**
      * Clears all completed tasks from the specified task list. The affected tasks will be marked as
      * 'hidden' and no longer be returned by default when retrieving all tasks for a task list.
@@ -463,6 +960,43 @@ public class GoogleTasksConnector extends AbstractGoogleOAuthConnector {
 		this.accessToken = accessToken;
 	}
 
+	public ObjectStore<Serializable> getObjectStore() {
+		return objectStore;
+	}
+
+	public void setObjectStore(ObjectStore<Serializable> objectStore) {
+		this.objectStore = objectStore;
+	}
+
+	@Override
+	public void setMuleContext(MuleContext muleContext) {
+		this.muleContext = muleContext;
+	}
+
+	public HttpTransportProvider getTransportProvider() {
+		return transportProvider;
+	}
+
+	public void setTransportProvider(HttpTransportProvider transportProvider) {
+		this.transportProvider = transportProvider;
+	}
+
+	public int getBatchSize() {
+		return batchSize;
+	}
+
+	public void setBatchSize(int batchSize) {
+		this.batchSize = batchSize;
+	}
+
+	public int getBatchThreads() {
+		return batchThreads;
+	}
+
+	public void setBatchThreads(int batchThreads) {
+		this.batchThreads = batchThreads;
+	}
+
 	public IdentifierPolicy getIdentifierPolicy() {
 		return identifierPolicy;
 	}
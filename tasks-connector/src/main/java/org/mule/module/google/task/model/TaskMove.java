@@ -0,0 +1,65 @@
+/**
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.module.google.task.model;
+
+/**
+ * Describes the move of a task to another position in its task list.
+ * 
+ * @author mariano.gonzalez@mulesoft.com
+ */
+public class TaskMove {
+
+	private String taskId;
+	private String parentId;
+	private String previousId;
+	
+	public TaskMove() {
+	}
+	
+	public TaskMove(String taskId, String parentId, String previousId) {
+		this.taskId = taskId;
+		this.parentId = parentId;
+		this.previousId = previousId;
+	}
+
+	/**
+	 * @return the identifier of the task being moved
+	 */
+	public String getTaskId() {
+		return taskId;
+	}
+
+	public void setTaskId(String taskId) {
+		this.taskId = taskId;
+	}
+
+	/**
+	 * @return the new parent task identifier, or null to move the task to the top level
+	 */
+	public String getParentId() {
+		return parentId;
+	}
+
+	public void setParentId(String parentId) {
+		this.parentId = parentId;
+	}
+
+	/**
+	 * @return the new previous sibling task identifier, or null to move the task to the first position among its siblings
+	 */
+	public String getPreviousId() {
+		return previousId;
+	}
+
+	public void setPreviousId(String previousId) {
+		this.previousId = previousId;
+	}
+	
+}
@@ -0,0 +1,48 @@
+/**
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.module.google.task.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A task along with its child tasks, ordered by position.
+ * 
+ * @author mariano.gonzalez@mulesoft.com
+ */
+public class TaskNode {
+
+	private Task task;
+	private List<TaskNode> children = new ArrayList<TaskNode>();
+	
+	public TaskNode() {
+	}
+	
+	public TaskNode(Task task) {
+		this.task = task;
+	}
+
+	public Task getTask() {
+		return task;
+	}
+
+	public void setTask(Task task) {
+		this.task = task;
+	}
+
+	public List<TaskNode> getChildren() {
+		return children;
+	}
+
+	public void setChildren(List<TaskNode> children) {
+		this.children = children;
+	}
+	
+}
@@ -0,0 +1,40 @@
+/**
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.module.google.task.model.batch;
+
+import org.mule.module.google.task.model.Task;
+import org.mule.modules.google.api.client.batch.BatchCallback;
+import org.mule.modules.google.api.client.batch.BatchResponse;
+
+
+/**
+ * 
+ * @author mariano.gonzalez@mulesoft.com
+ *
+ */
+public class TaskBatchCallback extends BatchCallback<Task, com.google.api.services.tasks.model.Task> {
+	
+	public TaskBatchCallback() {
+		super();
+	}
+	
+	public TaskBatchCallback(BatchResponse<Task> response, int index) {
+		super(response, index);
+	}
+	
+	/**
+	 * @see org.mule.modules.google.api.client.batch.BatchCallback#typeToWrapper(java.lang.Object)
+	 */
+	@Override
+	protected Task typeToWrapper(com.google.api.services.tasks.model.Task object) {
+		return new Task(object);
+	}
+
+}
@@ -0,0 +1,92 @@
+/**
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.module.google.task.tree;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.mule.module.google.task.model.Task;
+import org.mule.module.google.task.model.TaskNode;
+
+/**
+ * Assembles the hierarchy of a task list out of its flat listing.
+ * 
+ * Tasks are indexed by id as they are read and linked to their parents once the listing is exhausted,
+ * so the listing is consumed in a single pass regardless of the order in which parents and children come.
+ * Tasks which parent is not part of the listing, for example because it was filtered out, are placed at the top level.
+ * Siblings are ordered by position, which google returns as strings that sort lexicographically.
+ * 
+ * @author mariano.gonzalez@mulesoft.com
+ */
+public class TaskTreeBuilder {
+
+	private static final Comparator<TaskNode> BY_POSITION = new Comparator<TaskNode>() {
+		
+		@Override
+		public int compare(TaskNode n1, TaskNode n2) {
+			String p1 = n1.getTask().getPosition();
+			String p2 = n2.getTask().getPosition();
+			
+			if (p1 == null) {
+				return p2 == null ? 0 : 1;
+			} else if (p2 == null) {
+				return -1;
+			}
+			
+			return p1.compareTo(p2);
+		}
+	};
+	
+	private TaskTreeBuilder() {
+	}
+	
+	/**
+	 * @param tasks the tasks of a task list
+	 * @return the top level tasks ordered by position, each one containing its children
+	 */
+	public static List<TaskNode> build(Iterator<Task> tasks) {
+		Map<String, TaskNode> index = new HashMap<String, TaskNode>();
+		List<TaskNode> nodes = new ArrayList<TaskNode>();
+		
+		while (tasks.hasNext()) {
+			TaskNode node = new TaskNode(tasks.next());
+			index.put(node.getTask().getId(), node);
+			nodes.add(node);
+		}
+		
+		List<TaskNode> roots = new ArrayList<TaskNode>();
+		
+		for (TaskNode node : nodes) {
+			String parentId = node.getTask().getParent();
+			TaskNode parent = parentId != null ? index.get(parentId) : null;
+			
+			if (parent != null && parent != node) {
+				parent.getChildren().add(node);
+			} else {
+				roots.add(node);
+			}
+		}
+		
+		for (TaskNode node : nodes) {
+			if (node.getChildren().size() > 1) {
+				Collections.sort(node.getChildren(), BY_POSITION);
+			}
+		}
+		
+		Collections.sort(roots, BY_POSITION);
+		
+		return roots;
+	}
+}